@@ -20,6 +20,10 @@ import static org.jclouds.Constants.PROPERTY_MAX_RATE_LIMIT_WAIT;
 import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.API_VERSION_PREFIX;
 import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.DEFAULT_SUBNET_ADDRESS_PREFIX;
 import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.DEFAULT_VNET_ADDRESS_SPACE_PREFIX;
+import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.IMAGE_CATALOGUE;
+import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.IMAGE_CATALOGUE_TTL;
+import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.IMAGE_LIST_CONCURRENCY;
+import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.IMAGE_LIST_RATE;
 import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.IMAGE_PUBLISHERS;
 import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.OPERATION_TIMEOUT;
 import static org.jclouds.compute.config.ComputeServiceProperties.IMAGE_AUTHENTICATE_SUDO;
@@ -98,6 +102,10 @@ public class AzureComputeProviderMetadata extends BaseProviderMetadata {
       properties.put(RESOURCENAME_PREFIX, "jclouds");
       properties.put(RESOURCENAME_DELIMITER, "-");
       properties.put(IMAGE_PUBLISHERS, "Canonical,RedHat");
+      properties.put(IMAGE_LIST_CONCURRENCY, 10);
+      properties.put(IMAGE_LIST_RATE, 20);
+      properties.put(IMAGE_CATALOGUE, "");
+      properties.put(IMAGE_CATALOGUE_TTL, 24 * 60 * 60);
       // Default credentials for all images, Azure doesn't accept root, admin; generate the password on the fly
       properties.put(IMAGE_LOGIN_USER, "jclouds");
       // Azure allows for passwordless sudo only when using a public key to login to the machine
@@ -51,6 +51,7 @@ import org.jclouds.azurecompute.arm.compute.functions.CustomImageToVMImage;
 import org.jclouds.azurecompute.arm.compute.options.AzureTemplateOptions;
 import org.jclouds.azurecompute.arm.compute.options.IpOptions;
 import org.jclouds.azurecompute.arm.compute.strategy.CleanupResources;
+import org.jclouds.azurecompute.arm.compute.strategy.MarketplaceImageCatalogue;
 import org.jclouds.azurecompute.arm.domain.AvailabilitySet;
 import org.jclouds.azurecompute.arm.domain.CreationData;
 import org.jclouds.azurecompute.arm.domain.DataDisk;
@@ -68,14 +69,12 @@ import org.jclouds.azurecompute.arm.domain.NetworkProfile.NetworkInterface;
 import org.jclouds.azurecompute.arm.domain.NetworkProfile.NetworkInterface.NetworkInterfaceProperties;
 import org.jclouds.azurecompute.arm.domain.OSDisk;
 import org.jclouds.azurecompute.arm.domain.OSProfile;
-import org.jclouds.azurecompute.arm.domain.Offer;
 import org.jclouds.azurecompute.arm.domain.Plan;
 import org.jclouds.azurecompute.arm.domain.Provisionable;
 import org.jclouds.azurecompute.arm.domain.PublicIPAddress;
 import org.jclouds.azurecompute.arm.domain.PublicIPAddressProperties;
 import org.jclouds.azurecompute.arm.domain.ResourceGroup;
 import org.jclouds.azurecompute.arm.domain.ResourceProviderMetaData;
-import org.jclouds.azurecompute.arm.domain.SKU;
 import org.jclouds.azurecompute.arm.domain.StorageAccountType;
 import org.jclouds.azurecompute.arm.domain.StorageProfile;
 import org.jclouds.azurecompute.arm.domain.VMHardware;
@@ -128,13 +127,15 @@ public class AzureComputeServiceAdapter implements ComputeServiceAdapter<Virtual
    private final PublicIpAvailablePredicateFactory publicIpAvailable;
    private final CustomImageToVMImage customImagetoVmImage;
    private final GroupNamingConvention namingConvention;
+   private final MarketplaceImageCatalogue imageCatalogue;
    private Predicate<Supplier<Provisionable>> resourceAvailable;
 
    @Inject
    AzureComputeServiceAdapter(final AzureComputeApi api, @Named(IMAGE_PUBLISHERS) String imagePublishers,
          CleanupResources cleanupResources, @Region Supplier<Set<String>> regionIds,
          PublicIpAvailablePredicateFactory publicIpAvailable, CustomImageToVMImage customImagetoVmImage,
-         GroupNamingConvention.Factory namingConvention, Predicate<Supplier<Provisionable>> resourceAvailable) {
+         GroupNamingConvention.Factory namingConvention, Predicate<Supplier<Provisionable>> resourceAvailable,
+         MarketplaceImageCatalogue imageCatalogue) {
       this.api = api;
       this.imagePublishers = Splitter.on(',').trimResults().omitEmptyStrings().splitToList(imagePublishers);
       this.cleanupResources = cleanupResources;
@@ -143,6 +144,7 @@ public class AzureComputeServiceAdapter implements ComputeServiceAdapter<Virtual
       this.customImagetoVmImage = customImagetoVmImage;
       this.namingConvention = namingConvention.create();
       this.resourceAvailable = resourceAvailable;
+      this.imageCatalogue = imageCatalogue;
    }
 
    @Override
@@ -199,36 +201,6 @@ public class AzureComputeServiceAdapter implements ComputeServiceAdapter<Virtual
       return hwProfiles;
    }
 
-   private List<VMImage> getImagesFromPublisher(String publisherName, String location) {
-      List<VMImage> osImagesRef = Lists.newArrayList();
-      OSImageApi osImageApi = api.getOSImageApi(location);
-      Iterable<Offer> offerList = osImageApi.listOffers(publisherName);
-
-      for (Offer offer : offerList) {
-         Iterable<SKU> skuList = osImageApi.listSKUs(publisherName, offer.name());
-
-         for (SKU sku : skuList) {
-            Iterable<Version> versionList = osImageApi.listVersions(publisherName, offer.name(), sku.name());
-            for (Version version : versionList) {
-               Version versionDetails = osImageApi.getVersion(publisherName, offer.name(), sku.name(), version.name());
-               VMImage vmImage = VMImage.azureImage().publisher(publisherName).offer(offer.name()).sku(sku.name())
-                       .version(versionDetails.name()).location(location).versionProperties(versionDetails.properties())
-                       .build();
-               osImagesRef.add(vmImage);
-            }
-         }
-      }
-      return osImagesRef;
-   }
-
-   private List<VMImage> listImagesByLocation(String location) {
-      final List<VMImage> osImages = Lists.newArrayList();
-      for (String publisher : imagePublishers) {
-         osImages.addAll(getImagesFromPublisher(publisher, location));
-      }
-      return osImages;
-   }
-   
    private List<VMImage> listCustomImagesByResourceGroup(String resourceGroup) {
       List<org.jclouds.azurecompute.arm.domain.Image> customImgs = api.getVirtualMachineImageApi(resourceGroup).list();
       return ImmutableList.copyOf(transform(
@@ -252,9 +224,7 @@ public class AzureComputeServiceAdapter implements ComputeServiceAdapter<Virtual
                }
             }));
 
-      for (String locationName : availableLocationNames) {
-         osImages.addAll(listImagesByLocation(locationName));
-      }
+      osImages.addAll(imageCatalogue.list(availableLocationNames, imagePublishers));
 
       // We need to look for custom images in all resource groups
       for (ResourceGroup resourceGroup : api.getResourceGroupApi().list()) {
@@ -0,0 +1,231 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.azurecompute.arm.compute.strategy;
+
+import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.IMAGE_LIST_CONCURRENCY;
+import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.IMAGE_LIST_RATE;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.azurecompute.arm.AzureComputeApi;
+import org.jclouds.azurecompute.arm.domain.Offer;
+import org.jclouds.azurecompute.arm.domain.SKU;
+import org.jclouds.azurecompute.arm.domain.VMImage;
+import org.jclouds.azurecompute.arm.domain.Version;
+import org.jclouds.azurecompute.arm.domain.Version.VersionProperties;
+import org.jclouds.azurecompute.arm.features.OSImageApi;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.logging.Logger;
+
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.RateLimiter;
+
+/**
+ * Lists the marketplace images of the given publishers and locations. The publishers, offers and
+ * SKUs are walked concurrently on the user executor by at most {@link
+ * org.jclouds.azurecompute.arm.config.AzureComputeProperties#IMAGE_LIST_CONCURRENCY} workers, and
+ * the requests are throttled to {@link
+ * org.jclouds.azurecompute.arm.config.AzureComputeProperties#IMAGE_LIST_RATE} per second.
+ * <p>
+ * The details - plan and operating system - are fetched for a single version per SKU, the last one
+ * returned by {@link OSImageApi#listVersions}, and only that version carries them. The other
+ * versions have no {@link VMImage#versionProperties()}. The version with the details is listed
+ * first, as the versions of a SKU are turned into a single image and the first of them is kept.
+ */
+@Singleton
+public class ListMarketplaceImages {
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final AzureComputeApi api;
+   private final ListeningExecutorService userExecutor;
+   private final int concurrency;
+   private final RateLimiter rateLimiter;
+
+   @Inject
+   ListMarketplaceImages(AzureComputeApi api,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named(IMAGE_LIST_CONCURRENCY) int concurrency, @Named(IMAGE_LIST_RATE) double rate) {
+      this.api = api;
+      this.userExecutor = userExecutor;
+      this.concurrency = Math.max(concurrency, 1);
+      this.rateLimiter = rate > 0 ? RateLimiter.create(rate) : null;
+   }
+
+   public List<VMImage> list(Iterable<String> locations, Iterable<String> publishers) {
+      Crawl crawl = new Crawl();
+      for (String location : locations) {
+         for (String publisher : publishers) {
+            crawl.submitOffers(location, publisher);
+         }
+      }
+      return crawl.await();
+   }
+
+   private OSImageApi osImageApi(String location) {
+      if (rateLimiter != null) {
+         rateLimiter.acquire();
+      }
+      return api.getOSImageApi(location);
+   }
+
+   /**
+    * A walk of the image tree. Each task lists one level and queues a task per child, the workers
+    * run the queued tasks until there are none left.
+    */
+   private final class Crawl {
+      private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+      private final Queue<VMImage> images = new ConcurrentLinkedQueue<VMImage>();
+      // Queued and running tasks
+      private final AtomicInteger pending = new AtomicInteger();
+      private final AtomicInteger workers = new AtomicInteger();
+      private final CountDownLatch done = new CountDownLatch(1);
+      private final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+      private final Runnable worker = new Runnable() {
+         @Override
+         public void run() {
+            try {
+               Runnable task;
+               while ((task = tasks.poll()) != null) {
+                  // Once a request failed the remaining tasks are dropped
+                  if (failure.get() == null) {
+                     try {
+                        task.run();
+                     } catch (Throwable t) {
+                        failure.compareAndSet(null, t);
+                     }
+                  }
+                  if (pending.decrementAndGet() == 0) {
+                     done.countDown();
+                  }
+               }
+            } finally {
+               workers.decrementAndGet();
+            }
+            // A task may have been queued while this worker was leaving
+            startWorkers();
+         }
+      };
+
+      void submitOffers(final String location, final String publisher) {
+         submit(new Runnable() {
+            @Override
+            public void run() {
+               for (Offer offer : osImageApi(location).listOffers(publisher)) {
+                  submitSkus(location, publisher, offer.name());
+               }
+            }
+         });
+      }
+
+      void submitSkus(final String location, final String publisher, final String offer) {
+         submit(new Runnable() {
+            @Override
+            public void run() {
+               for (SKU sku : osImageApi(location).listSKUs(publisher, offer)) {
+                  submitVersions(location, publisher, offer, sku.name());
+               }
+            }
+         });
+      }
+
+      void submitVersions(final String location, final String publisher, final String offer, final String sku) {
+         submit(new Runnable() {
+            @Override
+            public void run() {
+               List<Version> versions = osImageApi(location).listVersions(publisher, offer, sku);
+               if (versions.isEmpty()) {
+                  return;
+               }
+               // Details are fetched for a single version of the SKU and set on that version only.
+               // It's listed first: the versions of a SKU make a single image, built from the first
+               Version detailed = Iterables.getLast(versions);
+               Version details = osImageApi(location).getVersion(publisher, offer, sku, detailed.name());
+               images.add(image(location, publisher, offer, sku, detailed.name(),
+                     details == null ? null : details.properties()));
+               for (Version version : versions) {
+                  if (version != detailed) {
+                     images.add(image(location, publisher, offer, sku, version.name(), null));
+                  }
+               }
+            }
+         });
+      }
+
+      private VMImage image(String location, String publisher, String offer, String sku, String version,
+            VersionProperties properties) {
+         return VMImage.azureImage().publisher(publisher).offer(offer).sku(sku).version(version)
+               .location(location).versionProperties(properties).build();
+      }
+
+      private void submit(Runnable task) {
+         pending.incrementAndGet();
+         tasks.add(task);
+         startWorkers();
+      }
+
+      private void startWorkers() {
+         while (!tasks.isEmpty()) {
+            int running = workers.get();
+            if (running >= concurrency) {
+               return;
+            }
+            if (workers.compareAndSet(running, running + 1)) {
+               try {
+                  userExecutor.execute(worker);
+               } catch (RuntimeException e) {
+                  workers.decrementAndGet();
+                  throw e;
+               }
+            }
+         }
+      }
+
+      List<VMImage> await() {
+         if (pending.get() > 0) {
+            try {
+               done.await();
+            } catch (InterruptedException e) {
+               Thread.currentThread().interrupt();
+               failure.compareAndSet(null, e);
+            }
+         }
+         if (failure.get() != null) {
+            throw Throwables.propagate(failure.get());
+         }
+         logger.debug("<< listed %d marketplace images", images.size());
+         return ImmutableList.copyOf(images);
+      }
+   }
+
+}
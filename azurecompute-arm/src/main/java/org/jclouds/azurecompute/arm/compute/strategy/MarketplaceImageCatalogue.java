@@ -0,0 +1,313 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.azurecompute.arm.compute.strategy;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.IMAGE_CATALOGUE;
+import static org.jclouds.azurecompute.arm.config.AzureComputeProperties.IMAGE_CATALOGUE_TTL;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.jclouds.Constants;
+import org.jclouds.azurecompute.arm.domain.VMImage;
+import org.jclouds.azurecompute.arm.domain.Version.VersionProperties;
+import org.jclouds.compute.reference.ComputeServiceConstants;
+import org.jclouds.json.Json;
+import org.jclouds.logging.Logger;
+import org.jclouds.util.Closeables2;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+/**
+ * A disk backed catalogue of the marketplace images. The images of each location and publisher are
+ * stored as one JSON line in the {@link
+ * org.jclouds.azurecompute.arm.config.AzureComputeProperties#IMAGE_CATALOGUE} file, which is loaded
+ * the first time the images are listed. Only the locations and publishers that are not in the file
+ * are crawled before returning. The ones that are older than {@link
+ * org.jclouds.azurecompute.arm.config.AzureComputeProperties#IMAGE_CATALOGUE_TTL} seconds are
+ * returned as they are and refreshed in the background, one publisher at a time.
+ * <p>
+ * When no file is configured the images are always listed from the API.
+ */
+@Singleton
+public class MarketplaceImageCatalogue {
+   @Resource
+   @Named(ComputeServiceConstants.COMPUTE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final ListMarketplaceImages listMarketplaceImages;
+   private final Json json;
+   private final ListeningExecutorService userExecutor;
+   private final File file;
+   private final long ttlNanos;
+   private final Ticker ticker;
+
+   // Keyed by location/publisher
+   private final Map<String, Entry> entries = new ConcurrentHashMap<String, Entry>();
+   private final Set<String> refreshing = Sets.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+   private boolean loaded;
+
+   @Inject
+   MarketplaceImageCatalogue(ListMarketplaceImages listMarketplaceImages, Json json,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named(IMAGE_CATALOGUE) String file, @Named(IMAGE_CATALOGUE_TTL) long ttlSeconds) {
+      this(listMarketplaceImages, json, userExecutor, file, ttlSeconds, Ticker.systemTicker());
+   }
+
+   @VisibleForTesting
+   MarketplaceImageCatalogue(ListMarketplaceImages listMarketplaceImages, Json json,
+         ListeningExecutorService userExecutor, String file, long ttlSeconds, Ticker ticker) {
+      this.listMarketplaceImages = listMarketplaceImages;
+      this.json = json;
+      this.userExecutor = userExecutor;
+      this.file = file.trim().isEmpty() ? null : new File(file);
+      this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+      this.ticker = ticker;
+   }
+
+   public List<VMImage> list(List<String> locations, List<String> publishers) {
+      if (file == null) {
+         return listMarketplaceImages.list(locations, publishers);
+      }
+      load();
+
+      ImmutableList.Builder<VMImage> images = ImmutableList.builder();
+      ListMultimap<String, String> missing = ArrayListMultimap.create();
+      List<String> stale = Lists.newArrayList();
+      for (String publisher : publishers) {
+         for (String location : locations) {
+            Entry entry = entries.get(key(location, publisher));
+            if (entry == null) {
+               missing.put(publisher, location);
+            } else {
+               images.addAll(entry.toImages());
+               if (isStale(entry) && !stale.contains(publisher)) {
+                  stale.add(publisher);
+               }
+            }
+         }
+      }
+
+      if (!missing.isEmpty()) {
+         for (String publisher : missing.keySet()) {
+            images.addAll(crawl(missing.get(publisher), publisher));
+         }
+         save();
+      }
+      for (String publisher : stale) {
+         refreshInBackground(locations, publisher);
+      }
+      return images.build();
+   }
+
+   private boolean isStale(Entry entry) {
+      return ticker.read() - entry.refreshed >= ttlNanos;
+   }
+
+   /**
+    * Lists the images of a publisher and replaces the entries of the given locations.
+    */
+   private List<VMImage> crawl(List<String> locations, String publisher) {
+      List<VMImage> images = listMarketplaceImages.list(locations, ImmutableList.of(publisher));
+      ListMultimap<String, VMImage> byLocation = ArrayListMultimap.create();
+      for (VMImage image : images) {
+         byLocation.put(image.location(), image);
+      }
+      long now = ticker.read();
+      for (String location : locations) {
+         entries.put(key(location, publisher), Entry.create(location, publisher, now, byLocation.get(location)));
+      }
+      return images;
+   }
+
+   private void refreshInBackground(final List<String> locations, final String publisher) {
+      if (!refreshing.add(publisher)) {
+         return;
+      }
+      try {
+         userExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  logger.debug(">> refreshing the marketplace images of %s", publisher);
+                  crawl(locations, publisher);
+                  save();
+               } catch (RuntimeException e) {
+                  // The stale images are kept and the refresh is retried the next time they are listed
+                  logger.warn(e, "could not refresh the marketplace images of %s", publisher);
+               } finally {
+                  refreshing.remove(publisher);
+               }
+            }
+         });
+      } catch (RuntimeException e) {
+         refreshing.remove(publisher);
+         logger.warn(e, "could not schedule the refresh of the marketplace images of %s", publisher);
+      }
+   }
+
+   private synchronized void load() {
+      if (loaded) {
+         return;
+      }
+      loaded = true;
+      if (!file.isFile()) {
+         return;
+      }
+      // The age of the entries is kept relative to the ticker, which has no fixed origin
+      long now = ticker.read();
+      long wallClock = System.currentTimeMillis();
+      BufferedReader reader = null;
+      try {
+         reader = Files.newBufferedReader(file.toPath(), UTF_8);
+         String line;
+         while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+               continue;
+            }
+            try {
+               Entry entry = json.fromJson(line, Entry.class);
+               entry.refreshed = now - TimeUnit.MILLISECONDS.toNanos(Math.max(wallClock - entry.timestamp, 0));
+               entries.put(key(entry.location, entry.publisher), entry);
+            } catch (RuntimeException e) {
+               logger.warn(e, "ignoring malformed line in image catalogue %s", file);
+            }
+         }
+         logger.debug("<< loaded %d image catalogue entries from %s", entries.size(), file);
+      } catch (IOException e) {
+         logger.warn(e, "could not read image catalogue %s", file);
+      } finally {
+         Closeables2.closeQuietly(reader);
+      }
+   }
+
+   /**
+    * Rewrites the catalogue. The file is replaced atomically, so a concurrent reader never sees a
+    * partial catalogue.
+    */
+   private synchronized void save() {
+      long now = ticker.read();
+      long wallClock = System.currentTimeMillis();
+      try {
+         File parent = file.getAbsoluteFile().getParentFile();
+         if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("could not create " + parent);
+         }
+         File tmp = File.createTempFile(file.getName(), ".tmp", parent);
+         try {
+            BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), UTF_8);
+            try {
+               for (Entry entry : entries.values()) {
+                  entry.timestamp = wallClock - TimeUnit.NANOSECONDS.toMillis(now - entry.refreshed);
+                  writer.write(json.toJson(entry));
+                  writer.newLine();
+               }
+            } finally {
+               writer.close();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                  StandardCopyOption.ATOMIC_MOVE);
+         } finally {
+            tmp.delete();
+         }
+      } catch (IOException e) {
+         logger.warn(e, "could not write image catalogue %s", file);
+      }
+   }
+
+   private static String key(String location, String publisher) {
+      return location + "/" + publisher;
+   }
+
+   /**
+    * The images of a publisher in a location, as stored in one line of the catalogue.
+    */
+   @VisibleForTesting
+   static final class Entry {
+      String location;
+      String publisher;
+      // Milliseconds since the epoch when the images were listed, only meaningful in the file
+      long timestamp;
+      List<Image> images;
+      // Ticker value when the images were listed
+      transient long refreshed;
+
+      static Entry create(String location, String publisher, long refreshed, List<VMImage> images) {
+         Entry entry = new Entry();
+         entry.location = location;
+         entry.publisher = publisher;
+         entry.refreshed = refreshed;
+         entry.images = Lists.newArrayListWithCapacity(images.size());
+         for (VMImage image : images) {
+            entry.images.add(Image.create(image.offer(), image.sku(), image.version(), image.versionProperties()));
+         }
+         return entry;
+      }
+
+      List<VMImage> toImages() {
+         if (images == null) {
+            return ImmutableList.of();
+         }
+         ImmutableList.Builder<VMImage> result = ImmutableList.builder();
+         for (Image image : images) {
+            result.add(VMImage.azureImage().publisher(publisher).offer(image.offer).sku(image.sku)
+                  .version(image.version).location(location).versionProperties(image.versionProperties).build());
+         }
+         return result.build();
+      }
+   }
+
+   @VisibleForTesting
+   static final class Image {
+      String offer;
+      String sku;
+      String version;
+      VersionProperties versionProperties;
+
+      static Image create(String offer, String sku, String version, VersionProperties versionProperties) {
+         Image image = new Image();
+         image.offer = offer;
+         image.sku = sku;
+         image.version = version;
+         image.versionProperties = versionProperties;
+         return image;
+      }
+   }
+
+}
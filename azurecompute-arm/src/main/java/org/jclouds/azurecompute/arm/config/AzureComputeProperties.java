@@ -26,6 +26,14 @@ public class AzureComputeProperties {
 
    public static final String IMAGE_PUBLISHERS = "jclouds.azurecompute.arm.publishers";
 
+   public static final String IMAGE_LIST_CONCURRENCY = "jclouds.azurecompute.arm.publishers.concurrency";
+
+   public static final String IMAGE_LIST_RATE = "jclouds.azurecompute.arm.publishers.rate";
+
+   public static final String IMAGE_CATALOGUE = "jclouds.azurecompute.arm.image.catalogue";
+
+   public static final String IMAGE_CATALOGUE_TTL = "jclouds.azurecompute.arm.image.catalogue.ttl";
+
    public static final String TIMEOUT_RESOURCE_DELETED = "jclouds.azurecompute.arm.timeout.resourcedeleted";
 
    public static final String DEFAULT_VNET_ADDRESS_SPACE_PREFIX = "jclouds.azurecompute.arm.vnet.addressprefix";
@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.azurecompute.arm.compute.strategy;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+import org.jclouds.azurecompute.arm.domain.VMImage;
+import org.jclouds.azurecompute.arm.internal.BaseAzureComputeApiMockTest;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+@Test(groups = "unit", testName = "ListMarketplaceImagesMockTest", singleThreaded = true)
+public class ListMarketplaceImagesMockTest extends BaseAzureComputeApiMockTest {
+
+   private static final String VERSION = "{\"location\": \"eastus\", \"name\": \"2.0.20151214\", \"id\": \"version\","
+         + " \"properties\": {\"osDiskImage\": {\"operatingSystem\": \"Windows\"}}}";
+
+   public void testListImages() {
+      server.setDispatcher(new Dispatcher() {
+         @Override
+         public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath();
+            path = path.substring(0, path.indexOf('?'));
+            if (path.endsWith("/offers")) {
+               return jsonResponse("/offers.json");
+            } else if (path.endsWith("/skus")) {
+               return jsonResponse("/skus.json");
+            } else if (path.endsWith("/versions")) {
+               return jsonResponse("/versions.json");
+            } else if (path.contains("/versions/")) {
+               return new MockResponse().addHeader("Content-Type", "application/json").setBody(VERSION);
+            }
+            return response404();
+         }
+      });
+
+      ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+      try {
+         ListMarketplaceImages listImages = new ListMarketplaceImages(api, executor, 4, 0);
+         List<VMImage> images = listImages.list(ImmutableList.of("eastus"), ImmutableList.of("MicrosoftWindowsServer"));
+
+         // 1 offer, 2 SKUs with 2 versions each
+         assertEquals(images.size(), 4);
+         Map<String, VMImage> firstBySku = Maps.newHashMap();
+         for (VMImage image : images) {
+            assertEquals(image.location(), "eastus");
+            assertEquals(image.offer(), "WindowsServer");
+            if (!firstBySku.containsKey(image.sku())) {
+               firstBySku.put(image.sku(), image);
+            }
+            // Only the version whose details were fetched has them
+            if (image.version().equals("2.0.20151214")) {
+               assertEquals(image.versionProperties().osDiskImage().operatingSystem(), "Windows");
+            } else {
+               assertNull(image.versionProperties());
+            }
+         }
+         assertEquals(firstBySku.size(), 2);
+         for (VMImage image : firstBySku.values()) {
+            assertEquals(image.version(), "2.0.20151214");
+         }
+         // The details are fetched once per SKU
+         assertEquals(server.getRequestCount(), 6);
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+   public void testListNoImages() {
+      ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newCachedThreadPool());
+      try {
+         ListMarketplaceImages listImages = new ListMarketplaceImages(api, executor, 4, 0);
+         assertEquals(listImages.list(ImmutableList.<String>of(), ImmutableList.of("Canonical")).size(), 0);
+      } finally {
+         executor.shutdownNow();
+      }
+   }
+
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.azurecompute.arm.compute.strategy;
+
+import static com.google.common.base.Charsets.UTF_8;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jclouds.azurecompute.arm.domain.VMImage;
+import org.jclouds.azurecompute.arm.domain.Version.VersionProperties;
+import org.jclouds.azurecompute.arm.domain.Version.VersionProperties.OSDiskImage;
+import org.jclouds.azurecompute.arm.internal.BaseAzureComputeApiMockTest;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.squareup.okhttp.mockwebserver.Dispatcher;
+import com.squareup.okhttp.mockwebserver.MockResponse;
+import com.squareup.okhttp.mockwebserver.RecordedRequest;
+
+@Test(groups = "unit", testName = "MarketplaceImageCatalogueMockTest", singleThreaded = true)
+public class MarketplaceImageCatalogueMockTest extends BaseAzureComputeApiMockTest {
+
+   private static final String VERSION = "{\"location\": \"eastus\", \"name\": \"2.0.20151214\", \"id\": \"version\","
+         + " \"properties\": {\"osDiskImage\": {\"operatingSystem\": \"Windows\"}}}";
+   private static final List<String> LOCATIONS = ImmutableList.of("eastus");
+   private static final List<String> PUBLISHERS = ImmutableList.of("MicrosoftWindowsServer");
+
+   private final ListeningExecutorService executor = MoreExecutors.sameThreadExecutor();
+   private final AtomicLong nanos = new AtomicLong();
+   private final Ticker ticker = new Ticker() {
+      @Override
+      public long read() {
+         return nanos.get();
+      }
+   };
+   private File folder;
+   private File file;
+
+   @BeforeMethod
+   public void createFolder() {
+      folder = Files.createTempDir();
+      file = new File(folder, "images.json");
+   }
+
+   @AfterMethod(alwaysRun = true)
+   public void deleteFolder() {
+      for (File child : folder.listFiles()) {
+         child.delete();
+      }
+      folder.delete();
+   }
+
+   public void testCrawlsMissingPublishersAndStoresThem() throws IOException {
+      dispatchImages();
+
+      List<VMImage> images = catalogue(file.getPath()).list(LOCATIONS, PUBLISHERS);
+      assertEquals(images.size(), 4);
+      assertEquals(server.getRequestCount(), 6);
+      assertEquals(Files.readLines(file, UTF_8).size(), 1);
+
+      // A new catalogue loads the images from the file
+      List<VMImage> loaded = catalogue(file.getPath()).list(LOCATIONS, PUBLISHERS);
+      assertEquals(loaded, images);
+      assertEquals(server.getRequestCount(), 6);
+   }
+
+   public void testListsOfflineFromFile() throws IOException {
+      VersionProperties properties = VersionProperties.create(null, OSDiskImage.create("Linux"));
+      VMImage image = VMImage.azureImage().publisher("Canonical").offer("UbuntuServer").sku("16.04-LTS")
+            .version("16.04.201701130").location("eastus").versionProperties(properties).build();
+      MarketplaceImageCatalogue.Entry entry = MarketplaceImageCatalogue.Entry.create("eastus", "Canonical", 0,
+            ImmutableList.of(image));
+      entry.timestamp = System.currentTimeMillis();
+      Files.write(context.utils().json().toJson(entry) + "\n", file, UTF_8);
+
+      List<VMImage> images = catalogue(file.getPath()).list(LOCATIONS, ImmutableList.of("Canonical"));
+      assertEquals(images, ImmutableList.of(image));
+      assertEquals(server.getRequestCount(), 0);
+   }
+
+   public void testRefreshesStaleEntriesInBackground() {
+      dispatchImages();
+
+      MarketplaceImageCatalogue catalogue = catalogue(file.getPath());
+      List<VMImage> images = catalogue.list(LOCATIONS, PUBLISHERS);
+      assertEquals(server.getRequestCount(), 6);
+
+      nanos.addAndGet(TimeUnit.SECONDS.toNanos(59));
+      assertEquals(catalogue.list(LOCATIONS, PUBLISHERS), images);
+      assertEquals(server.getRequestCount(), 6);
+
+      // The stale images are returned and the publisher is crawled again
+      nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+      assertEquals(catalogue.list(LOCATIONS, PUBLISHERS), images);
+      assertEquals(server.getRequestCount(), 12);
+
+      assertEquals(catalogue.list(LOCATIONS, PUBLISHERS), images);
+      assertEquals(server.getRequestCount(), 12);
+   }
+
+   public void testAlwaysCrawlsWithoutFile() {
+      dispatchImages();
+
+      MarketplaceImageCatalogue catalogue = catalogue("");
+      assertEquals(catalogue.list(LOCATIONS, PUBLISHERS).size(), 4);
+      assertEquals(catalogue.list(LOCATIONS, PUBLISHERS).size(), 4);
+      assertEquals(server.getRequestCount(), 12);
+      assertTrue(!file.exists());
+   }
+
+   private MarketplaceImageCatalogue catalogue(String path) {
+      ListMarketplaceImages listImages = new ListMarketplaceImages(api, executor, 1, 0);
+      return new MarketplaceImageCatalogue(listImages, context.utils().json(), executor, path, 60, ticker);
+   }
+
+   private void dispatchImages() {
+      server.setDispatcher(new Dispatcher() {
+         @Override
+         public MockResponse dispatch(RecordedRequest request) {
+            String path = request.getPath();
+            path = path.substring(0, path.indexOf('?'));
+            if (path.endsWith("/offers")) {
+               return jsonResponse("/offers.json");
+            } else if (path.endsWith("/skus")) {
+               return jsonResponse("/skus.json");
+            } else if (path.endsWith("/versions")) {
+               return jsonResponse("/versions.json");
+            } else if (path.contains("/versions/")) {
+               return new MockResponse().addHeader("Content-Type", "application/json").setBody(VERSION);
+            }
+            return response404();
+         }
+      });
+   }
+
+}
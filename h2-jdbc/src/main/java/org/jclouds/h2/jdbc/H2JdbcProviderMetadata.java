@@ -16,6 +16,20 @@
  */
 package org.jclouds.h2.jdbc;
 
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.DEFAULT_FILE;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.DEFAULT_FILE_LOCK;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.DEFAULT_POOL_SIZE;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.DEFAULT_SCHEMA;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.DEFAULT_STATEMENT_CACHE_SIZE;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_FILE;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_FILE_LOCK;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_MVCC;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_POOL_SIZE;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_SCHEMA;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_STATEMENT_CACHE_SIZE;
+
+import java.util.Properties;
+
 import org.jclouds.h2.jdbc.config.H2JdbcBlobStoreContextModule;
 import org.jclouds.jdbc.JdbcApiMetadata;
 import org.jclouds.providers.ProviderMetadata;
@@ -43,6 +57,17 @@ public class H2JdbcProviderMetadata extends BaseProviderMetadata {
       super(builder);
    }
 
+   public static Properties defaultProperties() {
+      Properties properties = JdbcApiMetadata.defaultProperties();
+      properties.setProperty(PROPERTY_H2_JDBC_FILE, DEFAULT_FILE);
+      properties.setProperty(PROPERTY_H2_JDBC_SCHEMA, DEFAULT_SCHEMA);
+      properties.setProperty(PROPERTY_H2_JDBC_POOL_SIZE, String.valueOf(DEFAULT_POOL_SIZE));
+      properties.setProperty(PROPERTY_H2_JDBC_STATEMENT_CACHE_SIZE, String.valueOf(DEFAULT_STATEMENT_CACHE_SIZE));
+      properties.setProperty(PROPERTY_H2_JDBC_MVCC, "true");
+      properties.setProperty(PROPERTY_H2_JDBC_FILE_LOCK, DEFAULT_FILE_LOCK);
+      return properties;
+   }
+
    public static class Builder extends BaseProviderMetadata.Builder {
       protected Builder() {
          id("h2-jdbc")
@@ -50,7 +75,8 @@ public class H2JdbcProviderMetadata extends BaseProviderMetadata {
                .apiMetadata(new JdbcApiMetadata()
                      .toBuilder()
                      .defaultModule(H2JdbcBlobStoreContextModule.class)
-                     .build());
+                     .build())
+               .defaultProperties(H2JdbcProviderMetadata.defaultProperties());
       }
 
       @Override
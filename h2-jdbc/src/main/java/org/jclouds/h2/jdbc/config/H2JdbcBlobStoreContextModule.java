@@ -16,23 +16,63 @@
  */
 package org.jclouds.h2.jdbc.config;
 
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_FILE;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_FILE_LOCK;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_MVCC;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_POOL_SIZE;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_SCHEMA;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_STATEMENT_CACHE_SIZE;
+
 import java.util.Properties;
 
+import javax.inject.Inject;
+import javax.inject.Named;
+
 import org.jclouds.jdbc.config.JdbcBlobStoreContextModule;
+import org.jclouds.jdbc.reference.JdbcConstants;
 
 import com.google.inject.persist.jpa.JpaPersistModule;
 
 public class H2JdbcBlobStoreContextModule extends JdbcBlobStoreContextModule {
 
-   private static final String DEFAULT_FILE = "./jclouds-db";
+   // Statements batched by Hibernate, at least the number of chunks written per flush
+   private static final int MIN_BATCH_SIZE = 16;
 
    protected void configure() {
       super.configure();
 
+      // Filled in from the jclouds properties when the injector is created, before the
+      // persistence service is started by the eager JPAInitializer
       Properties properties = new Properties();
-      properties.setProperty("hibernate.connection.url", "jdbc:h2:" + DEFAULT_FILE);
-
       install(new JpaPersistModule("jclouds-h2").properties(properties));
+      requestInjection(new PersistenceProperties(properties));
+   }
+
+   static class PersistenceProperties {
+
+      private final Properties properties;
+
+      PersistenceProperties(Properties properties) {
+         this.properties = properties;
+      }
+
+      @Inject
+      void configure(@Named(PROPERTY_H2_JDBC_FILE) String file,
+            @Named(PROPERTY_H2_JDBC_SCHEMA) String schema,
+            @Named(PROPERTY_H2_JDBC_POOL_SIZE) int poolSize,
+            @Named(PROPERTY_H2_JDBC_STATEMENT_CACHE_SIZE) int statementCacheSize,
+            @Named(PROPERTY_H2_JDBC_MVCC) boolean mvcc,
+            @Named(PROPERTY_H2_JDBC_FILE_LOCK) String fileLock,
+            @Named(JdbcConstants.PROPERTY_JDBC_WRITE_BATCH_CHUNKS) int writeBatchChunks) {
+         properties.setProperty("hibernate.connection.url",
+               String.format("jdbc:h2:%s;MVCC=%s;FILE_LOCK=%s", file, mvcc ? "TRUE" : "FALSE", fileLock));
+         properties.setProperty("hibernate.hbm2ddl.auto", schema);
+         properties.setProperty("hibernate.jdbc.batch_size", String.valueOf(Math.max(MIN_BATCH_SIZE, writeBatchChunks)));
+         properties.setProperty("hibernate.c3p0.min_size", "1");
+         properties.setProperty("hibernate.c3p0.max_size", String.valueOf(poolSize));
+         properties.setProperty("hibernate.c3p0.timeout", "300");
+         properties.setProperty("hibernate.c3p0.maxStatementsPerConnection", String.valueOf(statementCacheSize));
+      }
    }
 
 }
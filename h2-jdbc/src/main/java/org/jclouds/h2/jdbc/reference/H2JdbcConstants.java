@@ -0,0 +1,63 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.reference;
+
+/**
+ * Constants used by the h2-jdbc provider
+ */
+public final class H2JdbcConstants {
+
+   /**
+    * Path of the database file, without its extension
+    */
+   public static final String PROPERTY_H2_JDBC_FILE = "jclouds.h2-jdbc.file";
+   public static final String DEFAULT_FILE = "./jclouds-db";
+
+   /**
+    * Hibernate schema handling on startup: {@code update}, which creates the missing tables and
+    * keeps the stored data, {@code validate} or {@code create}, which drops all the stored data
+    */
+   public static final String PROPERTY_H2_JDBC_SCHEMA = "jclouds.h2-jdbc.schema";
+   public static final String DEFAULT_SCHEMA = "update";
+
+   /**
+    * Maximum number of pooled connections
+    */
+   public static final String PROPERTY_H2_JDBC_POOL_SIZE = "jclouds.h2-jdbc.pool-size";
+   public static final int DEFAULT_POOL_SIZE = 10;
+
+   /**
+    * Number of prepared statements cached per pooled connection
+    */
+   public static final String PROPERTY_H2_JDBC_STATEMENT_CACHE_SIZE = "jclouds.h2-jdbc.statement-cache-size";
+   public static final int DEFAULT_STATEMENT_CACHE_SIZE = 50;
+
+   /**
+    * Whether H2 uses multi-version concurrency control, so that readers do not block writers
+    */
+   public static final String PROPERTY_H2_JDBC_MVCC = "jclouds.h2-jdbc.mvcc";
+
+   /**
+    * H2 file locking method: {@code FILE}, {@code SOCKET}, {@code FS} or {@code NO}
+    */
+   public static final String PROPERTY_H2_JDBC_FILE_LOCK = "jclouds.h2-jdbc.file-lock";
+   public static final String DEFAULT_FILE_LOCK = "FILE";
+
+   private H2JdbcConstants() {
+      throw new AssertionError("Intentionally Unimplemented");
+   }
+}
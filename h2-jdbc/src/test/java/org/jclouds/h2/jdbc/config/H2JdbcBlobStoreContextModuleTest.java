@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.h2.jdbc.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_FILE;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_FILE_LOCK;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_MVCC;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_POOL_SIZE;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_SCHEMA;
+import static org.jclouds.h2.jdbc.reference.H2JdbcConstants.PROPERTY_H2_JDBC_STATEMENT_CACHE_SIZE;
+
+import java.io.File;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.blobstore.BlobStoreContext;
+import org.testng.annotations.Test;
+
+import com.google.common.io.Files;
+
+@Test(groups = "unit", testName = "H2JdbcBlobStoreContextModuleTest")
+public class H2JdbcBlobStoreContextModuleTest {
+
+   public void testPropertiesReachEntityManagerFactory() throws Exception {
+      String file = new File(Files.createTempDir(), "jclouds-db").getPath();
+      Properties overrides = new Properties();
+      overrides.setProperty(PROPERTY_H2_JDBC_FILE, file);
+      overrides.setProperty(PROPERTY_H2_JDBC_SCHEMA, "create");
+      overrides.setProperty(PROPERTY_H2_JDBC_POOL_SIZE, "3");
+      overrides.setProperty(PROPERTY_H2_JDBC_STATEMENT_CACHE_SIZE, "7");
+      overrides.setProperty(PROPERTY_H2_JDBC_MVCC, "false");
+      overrides.setProperty(PROPERTY_H2_JDBC_FILE_LOCK, "NO");
+
+      BlobStoreContext context = ContextBuilder.newBuilder("h2-jdbc")
+            .overrides(overrides)
+            .build(BlobStoreContext.class);
+      try {
+         Map<String, Object> properties = context.utils().injector().getInstance(EntityManagerFactory.class)
+               .getProperties();
+         assertThat(properties.get("hibernate.connection.url"))
+               .isEqualTo("jdbc:h2:" + file + ";MVCC=FALSE;FILE_LOCK=NO");
+         assertThat(properties.get("hibernate.hbm2ddl.auto")).isEqualTo("create");
+         assertThat(properties.get("hibernate.c3p0.max_size")).isEqualTo("3");
+         assertThat(properties.get("hibernate.c3p0.maxStatementsPerConnection")).isEqualTo("7");
+         // The schema has been created, so the context is usable
+         assertThat(context.getBlobStore().createContainerInLocation(null, "container")).isTrue();
+      } finally {
+         context.close();
+      }
+   }
+
+}
@@ -23,8 +23,10 @@ import org.jclouds.apis.ApiMetadata;
 import org.jclouds.apis.internal.BaseApiMetadata;
 import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.jdbc.config.JdbcBlobStoreContextModule;
+import org.jclouds.jdbc.reference.JdbcConstants;
 
 import java.net.URI;
+import java.util.Properties;
 
 /**
  * Implementation of {@link ApiMetadata} for jclouds Jdbc BlobStore
@@ -45,6 +47,34 @@ public class JdbcApiMetadata extends BaseApiMetadata {
       super(builder);
    }
 
+   public static Properties defaultProperties() {
+      Properties properties = BaseApiMetadata.defaultProperties();
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_CHUNK_SIZE, String.valueOf(JdbcConstants.DEFAULT_CHUNK_SIZE));
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_CHUNK_CODEC, JdbcConstants.DEFAULT_CHUNK_CODEC);
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_CHUNK_DEDUP, "false");
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_READ_AHEAD_CHUNKS,
+            String.valueOf(JdbcConstants.DEFAULT_READ_AHEAD_CHUNKS));
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_WRITE_BATCH_CHUNKS,
+            String.valueOf(JdbcConstants.DEFAULT_WRITE_BATCH_CHUNKS));
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_ETAG_DIGEST, JdbcConstants.DEFAULT_ETAG_DIGEST);
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_TRUST_CONTENT_MD5, "false");
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_CONTAINER_CACHE_SIZE,
+            String.valueOf(JdbcConstants.DEFAULT_CONTAINER_CACHE_SIZE));
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_CONTAINER_CACHE_EXPIRY,
+            String.valueOf(JdbcConstants.DEFAULT_CONTAINER_CACHE_EXPIRY));
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_FILE_STORE_DIRECTORY, "");
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_FILE_STORE_THRESHOLD,
+            String.valueOf(JdbcConstants.DEFAULT_FILE_STORE_THRESHOLD));
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_GC_INTERVAL, String.valueOf(JdbcConstants.DEFAULT_GC_INTERVAL));
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_GC_GRACE, String.valueOf(JdbcConstants.DEFAULT_GC_GRACE));
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_GC_BATCH_SIZE,
+            String.valueOf(JdbcConstants.DEFAULT_GC_BATCH_SIZE));
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_GC_PAUSE, String.valueOf(JdbcConstants.DEFAULT_GC_PAUSE));
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_GC_SCRUB, "false");
+      properties.setProperty(JdbcConstants.PROPERTY_JDBC_METRICS, JdbcConstants.DEFAULT_METRICS);
+      return properties;
+   }
+
    public static class Builder extends BaseApiMetadata.Builder<Builder> {
 
       protected Builder() {
@@ -58,6 +88,7 @@ public class JdbcApiMetadata extends BaseApiMetadata {
          .version("1")
          .documentation(URI.create("http://www.jclouds.org/documentation/userguide/blobstore-guide"))
          .view(BlobStoreContext.class)
+         .defaultProperties(JdbcApiMetadata.defaultProperties())
          .defaultModules(ImmutableSet.<Class<? extends Module>>of(JdbcBlobStoreContextModule.class));
       }
 
@@ -0,0 +1,104 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.blobstore;
+
+import java.io.IOException;
+import java.util.List;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.jclouds.blobstore.BlobStore;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.blobstore.util.ForwardingBlobStore;
+import org.jclouds.io.Payload;
+import org.jclouds.jdbc.strategy.JdbcStorageStrategy;
+
+import com.google.common.base.Throwables;
+
+/**
+ * The local blob store, with the operations that can be pushed down to the database
+ * served by {@link JdbcStorageStrategy} instead of being computed in memory.
+ */
+public class JdbcBlobStore extends ForwardingBlobStore {
+
+   /**
+    * Binding of the local blob store this blob store forwards to. It is bound to the
+    * {@link BlobStore} interface so that Guice can proxy it, as the local blob store depends on
+    * the context, which depends on this blob store.
+    */
+   public static final String LOCAL_BLOBSTORE = "jclouds.jdbc.local-blobstore";
+
+   private final JdbcStorageStrategy storageStrategy;
+
+   @Inject
+   JdbcBlobStore(@Named(LOCAL_BLOBSTORE) BlobStore localBlobStore, JdbcStorageStrategy storageStrategy) {
+      super(localBlobStore);
+      this.storageStrategy = storageStrategy;
+   }
+
+   @Override
+   public PageSet<? extends StorageMetadata> list(String container) {
+      return list(container, ListContainerOptions.NONE);
+   }
+
+   @Override
+   public PageSet<? extends StorageMetadata> list(String container, ListContainerOptions options) {
+      return storageStrategy.list(container, options);
+   }
+
+   @Override
+   public MultipartUpload initiateMultipartUpload(String container, BlobMetadata blobMetadata, PutOptions options) {
+      return storageStrategy.initiateMultipartUpload(container, blobMetadata, options);
+   }
+
+   @Override
+   public MultipartPart uploadMultipartPart(MultipartUpload mpu, int partNumber, Payload payload) {
+      try {
+         return storageStrategy.uploadMultipartPart(mpu, partNumber, payload);
+      } catch (IOException ioe) {
+         throw Throwables.propagate(ioe);
+      }
+   }
+
+   @Override
+   public String completeMultipartUpload(MultipartUpload mpu, List<MultipartPart> parts) {
+      return storageStrategy.completeMultipartUpload(mpu, parts);
+   }
+
+   @Override
+   public void abortMultipartUpload(MultipartUpload mpu) {
+      storageStrategy.abortMultipartUpload(mpu);
+   }
+
+   @Override
+   public List<MultipartPart> listMultipartUpload(MultipartUpload mpu) {
+      return storageStrategy.listMultipartUpload(mpu);
+   }
+
+   @Override
+   public List<MultipartUpload> listMultipartUploads(String container) {
+      return storageStrategy.listMultipartUploads(container);
+   }
+
+}
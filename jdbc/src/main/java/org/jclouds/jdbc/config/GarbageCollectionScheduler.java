@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.config;
+
+import com.google.common.util.concurrent.ListeningScheduledExecutorService;
+import com.google.inject.Inject;
+import org.jclouds.Constants;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.service.JdbcGarbageCollector;
+import org.jclouds.lifecycle.Closer;
+
+import javax.inject.Named;
+import java.io.Closeable;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the {@link JdbcGarbageCollector} every {@link JdbcConstants#PROPERTY_JDBC_GC_INTERVAL}
+ * seconds on the jclouds scheduler, until the context is closed.
+ */
+public class GarbageCollectionScheduler {
+
+   @Inject
+   private GarbageCollectionScheduler(final JdbcGarbageCollector collector,
+         @Named(Constants.PROPERTY_SCHEDULER_THREADS) ListeningScheduledExecutorService scheduler,
+         @Named(JdbcConstants.PROPERTY_JDBC_GC_INTERVAL) long interval, Closer closer) {
+      if (interval <= 0) {
+         return;
+      }
+      final ScheduledFuture<?> collection = scheduler.scheduleWithFixedDelay(new Runnable() {
+         @Override
+         public void run() {
+            collector.collect();
+         }
+      }, interval, interval, TimeUnit.SECONDS);
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() {
+            collection.cancel(true);
+         }
+      });
+   }
+
+}
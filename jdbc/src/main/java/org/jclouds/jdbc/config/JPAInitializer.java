@@ -18,6 +18,7 @@ package org.jclouds.jdbc.config;
 
 import java.io.Closeable;
 
+import org.jclouds.jdbc.service.JdbcService;
 import org.jclouds.lifecycle.Closer;
 
 import com.google.inject.Inject;
@@ -26,8 +27,9 @@ import com.google.inject.persist.PersistService;
 public class JPAInitializer {
 
    @Inject
-   private JPAInitializer(final PersistService persistService, Closer closer) {
+   private JPAInitializer(final PersistService persistService, JdbcService jdbcService, Closer closer) {
       persistService.start();
+      jdbcService.initializeBlobVersions();
       closer.addToClose(new Closeable() {
          @Override
          public void close() {
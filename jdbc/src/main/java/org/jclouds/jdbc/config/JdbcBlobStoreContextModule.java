@@ -17,6 +17,7 @@
 package org.jclouds.jdbc.config;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
 import org.jclouds.blobstore.BlobRequestSigner;
 import org.jclouds.blobstore.BlobStore;
 import org.jclouds.blobstore.LocalBlobRequestSigner;
@@ -25,6 +26,8 @@ import org.jclouds.blobstore.attr.ConsistencyModel;
 import org.jclouds.blobstore.config.BlobStoreObjectModule;
 import org.jclouds.blobstore.config.LocalBlobStore;
 import org.jclouds.blobstore.util.BlobUtils;
+import org.jclouds.concurrent.config.ScheduledExecutorServiceModule;
+import org.jclouds.jdbc.blobstore.JdbcBlobStore;
 import org.jclouds.jdbc.strategy.JdbcStorageStrategy;
 import org.jclouds.jdbc.util.JdbcBlobUtils;
 
@@ -33,7 +36,12 @@ public class JdbcBlobStoreContextModule extends AbstractModule {
    @Override
    protected void configure() {
       bind(JPAInitializer.class).asEagerSingleton();
-      bind(BlobStore.class).to(LocalBlobStore.class);
+      // The garbage collector runs on the scheduler, which blob store contexts do not bind
+      install(new ScheduledExecutorServiceModule());
+      bind(GarbageCollectionScheduler.class).asEagerSingleton();
+      install(new JdbcMetricsModule());
+      bind(BlobStore.class).to(JdbcBlobStore.class);
+      bind(BlobStore.class).annotatedWith(Names.named(JdbcBlobStore.LOCAL_BLOBSTORE)).to(LocalBlobStore.class);
       install(new BlobStoreObjectModule());
       bind(ConsistencyModel.class).toInstance(ConsistencyModel.STRICT);
       bind(LocalStorageStrategy.class).to(JdbcStorageStrategy.class);
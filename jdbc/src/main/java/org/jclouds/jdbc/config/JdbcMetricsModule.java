@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.config;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+import com.google.inject.matcher.Matchers;
+import com.google.inject.persist.Transactional;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
+import org.jclouds.jdbc.metrics.JmxJdbcMetrics;
+import org.jclouds.jdbc.metrics.TransactionTimer;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.service.JdbcService;
+
+import javax.inject.Named;
+
+/**
+ * Binds the {@link JdbcMetrics} selected by {@link JdbcConstants#PROPERTY_JDBC_METRICS}: {@code none},
+ * {@code jmx} or the name of a class implementing it, and times the transactions of {@link JdbcService}.
+ */
+public class JdbcMetricsModule extends AbstractModule {
+
+   @Override
+   protected void configure() {
+      bindInterceptor(Matchers.subclassesOf(JdbcService.class), Matchers.annotatedWith(Transactional.class),
+            new TransactionTimer(getProvider(JdbcMetrics.class)));
+   }
+
+   @Provides
+   @Singleton
+   JdbcMetrics provideMetrics(@Named(JdbcConstants.PROPERTY_JDBC_METRICS) String metrics, Injector injector) {
+      if ("none".equalsIgnoreCase(metrics)) {
+         return JdbcMetrics.NONE;
+      }
+      if ("jmx".equalsIgnoreCase(metrics)) {
+         return injector.getInstance(JmxJdbcMetrics.class);
+      }
+      try {
+         return injector.getInstance(Class.forName(metrics).asSubclass(JdbcMetrics.class));
+      } catch (ClassNotFoundException e) {
+         throw new IllegalArgumentException(JdbcConstants.PROPERTY_JDBC_METRICS + " must be none, jmx or the name "
+               + "of a class implementing " + JdbcMetrics.class.getName() + ": " + metrics, e);
+      }
+   }
+
+}
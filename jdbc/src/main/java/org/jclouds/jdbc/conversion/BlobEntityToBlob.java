@@ -18,25 +18,40 @@ package org.jclouds.jdbc.conversion;
 
 import com.google.common.base.Function;
 import com.google.common.hash.HashCode;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
+import org.jclouds.Constants;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobBuilder;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.PayloadEntity;
+import org.jclouds.jdbc.reference.JdbcConstants;
 import org.jclouds.jdbc.service.JdbcService;
-import org.jclouds.jdbc.util.JdbcInputStream;
+import org.jclouds.jdbc.util.ChunkIdList;
+import org.jclouds.jdbc.util.JdbcByteSource;
+import org.jclouds.jdbc.util.PayloadFileStore;
+
+import javax.inject.Named;
 
 public class BlobEntityToBlob implements Function<BlobEntity, Blob> {
 
    private final Provider<BlobBuilder> blobBuilders;
    private final JdbcService jdbcService;
+   private final PayloadFileStore fileStore;
+   private final ListeningExecutorService userExecutor;
+   private final int readAheadChunks;
 
    @Inject
-   BlobEntityToBlob(Provider<BlobBuilder> blobBuilders, JdbcService jdbcService) {
+   BlobEntityToBlob(Provider<BlobBuilder> blobBuilders, JdbcService jdbcService, PayloadFileStore fileStore,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named(JdbcConstants.PROPERTY_JDBC_READ_AHEAD_CHUNKS) int readAheadChunks) {
       this.blobBuilders = blobBuilders;
       this.jdbcService = jdbcService;
+      this.fileStore = fileStore;
+      this.userExecutor = userExecutor;
+      this.readAheadChunks = readAheadChunks;
    }
 
    @Override
@@ -53,8 +68,13 @@ public class BlobEntityToBlob implements Function<BlobEntity, Blob> {
       if (blobEntity.isDirectory()) {
          builder.type(StorageType.FOLDER);
       }
+      else if (payload.getFile() != null) {
+         builder.payload(fileStore.open(payload.getFile(), storedLength(blobEntity)));
+      }
       else {
-         builder.payload(new JdbcInputStream(jdbcService, blobEntity.getPayload().getChunks()));
+         int chunkSize = payload.getChunkSize() == null ? JdbcConstants.DEFAULT_CHUNK_SIZE : payload.getChunkSize();
+         builder.payload(new JdbcByteSource(jdbcService, new ChunkIdList(jdbcService, payload.getId()), chunkSize,
+               storedLength(blobEntity), userExecutor, readAheadChunks));
       }
 
       Blob blob = builder.build();
@@ -80,4 +100,15 @@ public class BlobEntityToBlob implements Function<BlobEntity, Blob> {
       return blob;
    }
 
+   private static long storedLength(BlobEntity blobEntity) {
+      if (blobEntity.getPayload().getContentLength() != null) {
+         return blobEntity.getPayload().getContentLength();
+      }
+      if (blobEntity.getSize() != null) {
+         return blobEntity.getSize();
+      }
+      // Unknown length: read until the chunks run out
+      return Long.MAX_VALUE;
+   }
+
 }
@@ -20,21 +20,23 @@ import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.Tier;
 
 import javax.persistence.CascadeType;
-import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.Id;
 import javax.persistence.IdClass;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToOne;
 import javax.persistence.PrePersist;
 import javax.persistence.Table;
+import javax.persistence.Version;
 import java.util.Date;
 import java.util.Map;
 
 @Entity
-@Table
+// Lets listings by prefix range scan the keys of a container, whatever the primary key column order
+@Table(indexes = @Index(name = "blob_container_key", columnList = "id, key"))
 @IdClass(value = BlobEntityPK.class)
 public class BlobEntity {
 
@@ -46,12 +48,11 @@ public class BlobEntity {
    @Id
    private String key;
 
-   @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+   // The table and column names used by the bulk deletes of BlobRepository are the JPA defaults, spelled out
+   @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER, orphanRemoval = true)
+   @JoinColumn(name = "payload_id")
    private PayloadEntity payload;
 
-   @ElementCollection(fetch = FetchType.EAGER)
-   public Map<String, String> userMetadata;
-
    private Date creationDate;
    private Date lastModified;
    private BlobAccess blobAccess;
@@ -60,6 +61,11 @@ public class BlobEntity {
    private String etag;
    private boolean directory;
 
+   // Checked when the blob is modified, so that of two concurrent writers of a key only one
+   // replaces, and releases, the payload they both read
+   @Version
+   private Long version;
+
    @PrePersist
    private void defaults() {
       this.lastModified = new Date();
@@ -83,7 +89,9 @@ public class BlobEntity {
       this.payload = payload;
       this.blobAccess = blobAccess;
       this.tier = tier;
-      this.userMetadata = userMetadata;
+      if (payload != null && userMetadata != null) {
+         payload.setUserMetadata(userMetadata);
+      }
       this.size = size;
       this.etag = etag;
       this.directory = directory;
@@ -153,12 +161,15 @@ public class BlobEntity {
       this.tier = tier;
    }
 
+   /**
+    * @return the user metadata, stored with the payload
+    */
    public Map<String, String> getUserMetadata() {
-      return userMetadata;
+      return payload == null ? null : payload.getUserMetadata();
    }
 
    public void setUserMetadata(Map<String, String> userMetadata) {
-      this.userMetadata = userMetadata;
+      payload.setUserMetadata(userMetadata);
    }
 
    public Long getSize() {
@@ -177,6 +188,14 @@ public class BlobEntity {
       this.etag = etag;
    }
 
+   public Long getVersion() {
+      return version;
+   }
+
+   public void setVersion(Long version) {
+      this.version = version;
+   }
+
    public static Builder builder(ContainerEntity containerEntity, String key) {
       return new Builder(containerEntity, key);
    }
@@ -17,31 +17,64 @@
 package org.jclouds.jdbc.entity;
 
 import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.util.ChunkCodec;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Lob;
 import javax.persistence.Table;
+import javax.persistence.TableGenerator;
+import java.util.Date;
 
 @Entity
-@Table
+@Table(indexes = @Index(name = "chunk_hash", columnList = "hash"))
+@Cacheable(false)
 public class ChunkEntity {
 
+   // Identity columns would force one round trip per insert and disable JDBC batching
    @Id
-   @GeneratedValue
+   @GeneratedValue(strategy = GenerationType.TABLE, generator = "chunk_ids")
+   @TableGenerator(name = "chunk_ids", allocationSize = 100)
    private Long id;
 
    @Lob
-   @Column(length = JdbcConstants.DEFAULT_CHUNK_SIZE)
+   @Column(length = JdbcConstants.MAX_CHUNK_SIZE)
    private byte[] data;
 
+   // Size of the decoded data
    private int size;
 
+   // Null for chunks stored before codecs were introduced
+   @Enumerated(EnumType.STRING)
+   private ChunkCodec codec;
+
+   // SHA-256 of the decoded data, only set for chunks shared between blobs
+   private String hash;
+
+   // Number of payload positions referencing the chunk, null for chunks stored before reference counting
+   private Integer refCount;
+
+   // When the chunk was stored, or last reused by a deduplicated write, so that the garbage
+   // collector leaves alone the chunks of writes not committed yet. Null for older chunks
+   private Date stored;
+
    public ChunkEntity(byte[] data, int size) {
+      this(data, size, ChunkCodec.NONE);
+   }
+
+   public ChunkEntity(byte[] data, int size, ChunkCodec codec) {
       this.data = data;
       this.size = size;
+      this.codec = codec;
+      this.refCount = 1;
+      this.stored = new Date();
    }
 
    public ChunkEntity() {
@@ -70,4 +103,36 @@ public class ChunkEntity {
    public void setSize(int size) {
       this.size = size;
    }
+
+   public ChunkCodec getCodec() {
+      return codec == null ? ChunkCodec.NONE : codec;
+   }
+
+   public void setCodec(ChunkCodec codec) {
+      this.codec = codec;
+   }
+
+   public String getHash() {
+      return hash;
+   }
+
+   public void setHash(String hash) {
+      this.hash = hash;
+   }
+
+   public Integer getRefCount() {
+      return refCount;
+   }
+
+   public void setRefCount(Integer refCount) {
+      this.refCount = refCount;
+   }
+
+   public Date getStored() {
+      return stored;
+   }
+
+   public void setStored(Date stored) {
+      this.stored = stored;
+   }
 }
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.entity;
+
+import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.Tier;
+
+import javax.persistence.CascadeType;
+import javax.persistence.CollectionTable;
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToOne;
+import javax.persistence.PrePersist;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * A multipart upload in progress. Its payload holds the content metadata of the blob to be
+ * created, and becomes the payload of that blob once the chunks of the parts are appended to it.
+ */
+@Entity
+public class MultipartUploadEntity {
+
+   @Id
+   private String id;
+
+   @ManyToOne
+   @JoinColumn(name = "container_id")
+   private ContainerEntity containerEntity;
+
+   private String blobName;
+
+   @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
+   @JoinColumn(name = "payload_id")
+   private PayloadEntity payload;
+
+   @ElementCollection(fetch = FetchType.EAGER)
+   @CollectionTable(name = "MultipartUploadEntity_userMetadata",
+         joinColumns = @JoinColumn(name = "MultipartUploadEntity_id"))
+   private Map<String, String> userMetadata;
+
+   private BlobAccess blobAccess;
+   private Tier tier;
+   private Date creationDate;
+
+   @PrePersist
+   private void defaults() {
+      if (this.creationDate == null) {
+         this.creationDate = new Date();
+      }
+   }
+
+   public MultipartUploadEntity() {
+   }
+
+   public MultipartUploadEntity(String id, ContainerEntity containerEntity, String blobName, PayloadEntity payload,
+         Map<String, String> userMetadata, BlobAccess blobAccess, Tier tier) {
+      this.id = id;
+      this.containerEntity = containerEntity;
+      this.blobName = blobName;
+      this.payload = payload;
+      this.userMetadata = userMetadata;
+      this.blobAccess = blobAccess;
+      this.tier = tier;
+   }
+
+   public String getId() {
+      return id;
+   }
+
+   public void setId(String id) {
+      this.id = id;
+   }
+
+   public ContainerEntity getContainerEntity() {
+      return containerEntity;
+   }
+
+   public void setContainerEntity(ContainerEntity containerEntity) {
+      this.containerEntity = containerEntity;
+   }
+
+   public String getBlobName() {
+      return blobName;
+   }
+
+   public void setBlobName(String blobName) {
+      this.blobName = blobName;
+   }
+
+   public PayloadEntity getPayload() {
+      return payload;
+   }
+
+   public void setPayload(PayloadEntity payload) {
+      this.payload = payload;
+   }
+
+   public Map<String, String> getUserMetadata() {
+      return userMetadata;
+   }
+
+   public void setUserMetadata(Map<String, String> userMetadata) {
+      this.userMetadata = userMetadata;
+   }
+
+   public BlobAccess getBlobAccess() {
+      return blobAccess;
+   }
+
+   public void setBlobAccess(BlobAccess blobAccess) {
+      this.blobAccess = blobAccess;
+   }
+
+   public Tier getTier() {
+      return tier;
+   }
+
+   public void setTier(Tier tier) {
+      this.tier = tier;
+   }
+
+   public Date getCreationDate() {
+      return creationDate;
+   }
+
+   public void setCreationDate(Date creationDate) {
+      this.creationDate = creationDate;
+   }
+
+}
@@ -18,24 +18,53 @@ package org.jclouds.jdbc.entity;
 
 import com.google.common.collect.ImmutableList;
 
+import javax.persistence.CollectionTable;
+import javax.persistence.Column;
 import javax.persistence.ElementCollection;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.JoinColumn;
+import javax.persistence.OrderColumn;
+import javax.persistence.Table;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 @Entity
+// Lets the references to a payload file be counted before the file is deleted
+@Table(indexes = @Index(name = "payload_file", columnList = "file"))
 public class PayloadEntity {
 
    @Id
    @GeneratedValue
    private Long id;
 
-   @ElementCollection(fetch = FetchType.EAGER)
+   // Indexed so that the chunk order is kept and a chunk may appear more than once. Lazy, as
+   // streams read it in windows through PayloadRepository rather than all at once. The index on
+   // the chunk ids lets the garbage collector find the chunks no payload references
+   @ElementCollection(fetch = FetchType.LAZY)
+   @CollectionTable(name = "PayloadEntity_chunks", joinColumns = @JoinColumn(name = "PayloadEntity_id"),
+         indexes = @Index(name = "payload_chunk", columnList = "chunks"))
+   @Column(name = "chunks")
+   @OrderColumn(name = "chunkIndex")
    private List<Long> chunks;
 
+   // Kept with the content metadata rather than on the blob, whose id spans two columns, so that
+   // the bulk deletes of BlobRepository select the entries of a payload by a single explicit column
+   @ElementCollection(fetch = FetchType.EAGER)
+   @CollectionTable(name = "PayloadEntity_userMetadata", joinColumns = @JoinColumn(name = "PayloadEntity_id"))
+   private Map<String, String> userMetadata;
+
+   // Null for payloads stored before the chunk size was configurable, 0 when the chunks have
+   // different sizes, as after a multipart upload whose parts were not aligned on chunks
+   private Integer chunkSize;
+
+   // SHA-256 of the content when it is stored as a file by PayloadFileStore, the payload then has no chunks
+   private String file;
+
    private String cacheControl;
    private String contentType;
    private Long contentLength;
@@ -77,6 +106,30 @@ public class PayloadEntity {
       this.chunks = chunks;
    }
 
+   public Map<String, String> getUserMetadata() {
+      return userMetadata;
+   }
+
+   public void setUserMetadata(Map<String, String> userMetadata) {
+      this.userMetadata = userMetadata;
+   }
+
+   public Integer getChunkSize() {
+      return chunkSize;
+   }
+
+   public void setChunkSize(Integer chunkSize) {
+      this.chunkSize = chunkSize;
+   }
+
+   public String getFile() {
+      return file;
+   }
+
+   public void setFile(String file) {
+      this.file = file;
+   }
+
    public String getCacheControl() {
       return cacheControl;
    }
@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+/**
+ * Receives the measurements of the jdbc blob store. Implementations are selected with
+ * {@link org.jclouds.jdbc.reference.JdbcConstants#PROPERTY_JDBC_METRICS} and are called from
+ * the threads doing the work, so they must be thread safe and cheap.
+ */
+public interface JdbcMetrics {
+
+   enum Operation {
+      /** Storing a blob, from the first chunk written to the commit of its metadata */
+      PUT_BLOB,
+      /** Inserting a batch of chunks */
+      WRITE_CHUNKS,
+      /** Hashing a batch of chunks */
+      HASH_CHUNKS,
+      /** Committing the metadata of a blob, including the retries */
+      COMMIT_BLOB,
+      /** Loading a chunk, when a blob is read */
+      READ_CHUNK,
+      /** Looking a container up by name, when its id is not cached */
+      CONTAINER_LOOKUP,
+      /** An outermost transaction of the service, each being at least one round trip to the database */
+      TRANSACTION
+   }
+
+   void time(Operation operation, long nanos);
+
+   void bytesRead(long bytes);
+
+   void bytesWritten(long bytes);
+
+   /**
+    * @param chunks the number of chunks of the blob written
+    */
+   void blobWritten(int chunks);
+
+   JdbcMetrics NONE = new JdbcMetrics() {
+      @Override
+      public void time(Operation operation, long nanos) {
+      }
+
+      @Override
+      public void bytesRead(long bytes) {
+      }
+
+      @Override
+      public void bytesWritten(long bytes) {
+      }
+
+      @Override
+      public void blobWritten(int chunks) {
+      }
+   };
+
+}
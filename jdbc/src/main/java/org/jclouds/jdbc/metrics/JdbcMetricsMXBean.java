@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import java.util.Map;
+
+/**
+ * The measurements of {@link JmxJdbcMetrics}, by {@link JdbcMetrics.Operation} name for the timers.
+ */
+public interface JdbcMetricsMXBean {
+
+   Map<String, Long> getCounts();
+
+   Map<String, Double> getMeanMillis();
+
+   Map<String, Double> getMaxMillis();
+
+   long getBytesRead();
+
+   long getBytesWritten();
+
+   long getBlobsWritten();
+
+   double getMeanChunksPerBlob();
+
+   long getMaxChunksPerBlob();
+
+   void reset();
+
+}
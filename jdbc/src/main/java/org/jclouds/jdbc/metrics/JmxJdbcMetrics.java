@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jclouds.lifecycle.Closer;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts and times the operations in memory, and exposes the figures as an MXBean named
+ * {@code org.jclouds.jdbc:type=Metrics,instance=<n>}, one instance per blob store context.
+ */
+@Singleton
+public class JmxJdbcMetrics implements JdbcMetrics, JdbcMetricsMXBean {
+
+   private static final AtomicInteger INSTANCES = new AtomicInteger();
+   private static final JdbcMetrics.Operation[] OPERATIONS = JdbcMetrics.Operation.values();
+
+   private final AtomicLongArray counts = new AtomicLongArray(OPERATIONS.length);
+   private final AtomicLongArray totalNanos = new AtomicLongArray(OPERATIONS.length);
+   private final AtomicLongArray maxNanos = new AtomicLongArray(OPERATIONS.length);
+   private final AtomicLong bytesRead = new AtomicLong();
+   private final AtomicLong bytesWritten = new AtomicLong();
+   private final AtomicLong blobsWritten = new AtomicLong();
+   private final AtomicLong chunksWritten = new AtomicLong();
+   private final AtomicLong maxChunksPerBlob = new AtomicLong();
+   private final ObjectName name;
+
+   @Inject
+   JmxJdbcMetrics(Closer closer) throws JMException {
+      final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      name = new ObjectName("org.jclouds.jdbc:type=Metrics,instance=" + INSTANCES.incrementAndGet());
+      server.registerMBean(this, name);
+      closer.addToClose(new Closeable() {
+         @Override
+         public void close() throws IOException {
+            try {
+               server.unregisterMBean(name);
+            } catch (JMException e) {
+               throw new IOException("Could not unregister " + name, e);
+            }
+         }
+      });
+   }
+
+   public ObjectName getName() {
+      return name;
+   }
+
+   @Override
+   public void time(Operation operation, long nanos) {
+      int i = operation.ordinal();
+      counts.incrementAndGet(i);
+      totalNanos.addAndGet(i, nanos);
+      long max = maxNanos.get(i);
+      while (nanos > max && !maxNanos.compareAndSet(i, max, nanos)) {
+         max = maxNanos.get(i);
+      }
+   }
+
+   @Override
+   public void bytesRead(long bytes) {
+      bytesRead.addAndGet(bytes);
+   }
+
+   @Override
+   public void bytesWritten(long bytes) {
+      bytesWritten.addAndGet(bytes);
+   }
+
+   @Override
+   public void blobWritten(int chunks) {
+      blobsWritten.incrementAndGet();
+      chunksWritten.addAndGet(chunks);
+      long max = maxChunksPerBlob.get();
+      while (chunks > max && !maxChunksPerBlob.compareAndSet(max, chunks)) {
+         max = maxChunksPerBlob.get();
+      }
+   }
+
+   @Override
+   public Map<String, Long> getCounts() {
+      ImmutableMap.Builder<String, Long> result = ImmutableMap.builder();
+      for (Operation operation : OPERATIONS) {
+         result.put(operation.name(), counts.get(operation.ordinal()));
+      }
+      return result.build();
+   }
+
+   @Override
+   public Map<String, Double> getMeanMillis() {
+      ImmutableMap.Builder<String, Double> result = ImmutableMap.builder();
+      for (Operation operation : OPERATIONS) {
+         long count = counts.get(operation.ordinal());
+         result.put(operation.name(), count == 0 ? 0 : millis(totalNanos.get(operation.ordinal())) / count);
+      }
+      return result.build();
+   }
+
+   @Override
+   public Map<String, Double> getMaxMillis() {
+      ImmutableMap.Builder<String, Double> result = ImmutableMap.builder();
+      for (Operation operation : OPERATIONS) {
+         result.put(operation.name(), millis(maxNanos.get(operation.ordinal())));
+      }
+      return result.build();
+   }
+
+   @Override
+   public long getBytesRead() {
+      return bytesRead.get();
+   }
+
+   @Override
+   public long getBytesWritten() {
+      return bytesWritten.get();
+   }
+
+   @Override
+   public long getBlobsWritten() {
+      return blobsWritten.get();
+   }
+
+   @Override
+   public double getMeanChunksPerBlob() {
+      long blobs = blobsWritten.get();
+      return blobs == 0 ? 0 : (double) chunksWritten.get() / blobs;
+   }
+
+   @Override
+   public long getMaxChunksPerBlob() {
+      return maxChunksPerBlob.get();
+   }
+
+   @Override
+   public void reset() {
+      for (int i = 0; i < OPERATIONS.length; i++) {
+         counts.set(i, 0);
+         totalNanos.set(i, 0);
+         maxNanos.set(i, 0);
+      }
+      bytesRead.set(0);
+      bytesWritten.set(0);
+      blobsWritten.set(0);
+      chunksWritten.set(0);
+      maxChunksPerBlob.set(0);
+   }
+
+   private static double millis(long nanos) {
+      return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+   }
+
+}
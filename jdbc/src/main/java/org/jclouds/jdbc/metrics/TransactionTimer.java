@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.metrics;
+
+import com.google.inject.Provider;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+/**
+ * Times the outermost transactional calls. Bound before the persistence module, the time
+ * includes the commit.
+ */
+public class TransactionTimer implements MethodInterceptor {
+
+   private final ThreadLocal<Boolean> inTransaction = new ThreadLocal<Boolean>();
+   private final Provider<JdbcMetrics> metrics;
+
+   public TransactionTimer(Provider<JdbcMetrics> metrics) {
+      this.metrics = metrics;
+   }
+
+   @Override
+   public Object invoke(MethodInvocation invocation) throws Throwable {
+      if (inTransaction.get() != null) {
+         return invocation.proceed();
+      }
+      inTransaction.set(Boolean.TRUE);
+      long start = System.nanoTime();
+      try {
+         return invocation.proceed();
+      } finally {
+         inTransaction.remove();
+         metrics.get().time(JdbcMetrics.Operation.TRANSACTION, System.nanoTime() - start);
+      }
+   }
+
+}
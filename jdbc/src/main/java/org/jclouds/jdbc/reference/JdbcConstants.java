@@ -22,6 +22,107 @@ package org.jclouds.jdbc.reference;
 public final class JdbcConstants {
 
     public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * Size in bytes of the chunks new blobs are split into, up to {@link #MAX_CHUNK_SIZE}
+     */
+    public static final String PROPERTY_JDBC_CHUNK_SIZE = "jclouds.jdbc.chunk-size";
+
+    /**
+     * Name of the {@link org.jclouds.jdbc.util.ChunkCodec} applied to new chunks
+     */
+    public static final String PROPERTY_JDBC_CHUNK_CODEC = "jclouds.jdbc.chunk-codec";
+    public static final String DEFAULT_CHUNK_CODEC = "NONE";
+
+    /**
+     * Whether chunks with identical content are stored once and shared between blobs
+     */
+    public static final String PROPERTY_JDBC_CHUNK_DEDUP = "jclouds.jdbc.chunk-dedup";
+
+    /**
+     * Number of chunks loaded in the background ahead of the one being read
+     */
+    public static final String PROPERTY_JDBC_READ_AHEAD_CHUNKS = "jclouds.jdbc.read-ahead-chunks";
+    public static final int DEFAULT_READ_AHEAD_CHUNKS = 2;
+
+    /**
+     * Number of chunks written per flush when storing a blob
+     */
+    public static final String PROPERTY_JDBC_WRITE_BATCH_CHUNKS = "jclouds.jdbc.write-batch-chunks";
+    public static final int DEFAULT_WRITE_BATCH_CHUNKS = 8;
+
+    /**
+     * Name of the {@link org.jclouds.jdbc.util.ContentDigest} the etags of new blobs are computed with
+     */
+    public static final String PROPERTY_JDBC_ETAG_DIGEST = "jclouds.jdbc.etag-digest";
+    public static final String DEFAULT_ETAG_DIGEST = "MD5";
+
+    /**
+     * Whether the Content-MD5 supplied with a payload is taken as is instead of being checked
+     */
+    public static final String PROPERTY_JDBC_TRUST_CONTENT_MD5 = "jclouds.jdbc.trust-content-md5";
+
+    /**
+     * Maximum number of container ids cached by name, 0 to look containers up on every operation
+     */
+    public static final String PROPERTY_JDBC_CONTAINER_CACHE_SIZE = "jclouds.jdbc.container-cache-size";
+    public static final long DEFAULT_CONTAINER_CACHE_SIZE = 1000;
+
+    /**
+     * Number of seconds a cached container id is used before it is looked up again
+     */
+    public static final String PROPERTY_JDBC_CONTAINER_CACHE_EXPIRY = "jclouds.jdbc.container-cache-expiry";
+    public static final long DEFAULT_CONTAINER_CACHE_EXPIRY = 60;
+
+    /**
+     * Directory in which payloads of at least {@link #PROPERTY_JDBC_FILE_STORE_THRESHOLD} bytes
+     * are stored as files, empty to store every payload in the database
+     */
+    public static final String PROPERTY_JDBC_FILE_STORE_DIRECTORY = "jclouds.jdbc.file-store.directory";
+
+    /**
+     * Size in bytes from which payloads of a known length are stored as files
+     */
+    public static final String PROPERTY_JDBC_FILE_STORE_THRESHOLD = "jclouds.jdbc.file-store.threshold";
+    public static final long DEFAULT_FILE_STORE_THRESHOLD = 64 * 1024 * 1024;
+
+    /**
+     * Number of seconds between two runs of the garbage collector, 0 to never run it
+     */
+    public static final String PROPERTY_JDBC_GC_INTERVAL = "jclouds.jdbc.gc.interval";
+    public static final long DEFAULT_GC_INTERVAL = 3600;
+
+    /**
+     * Number of seconds an unreferenced chunk or file is kept, which must exceed the duration of
+     * the longest write
+     */
+    public static final String PROPERTY_JDBC_GC_GRACE = "jclouds.jdbc.gc.grace";
+    public static final long DEFAULT_GC_GRACE = 24 * 3600;
+
+    /**
+     * Number of chunks, files or blobs the garbage collector handles per transaction
+     */
+    public static final String PROPERTY_JDBC_GC_BATCH_SIZE = "jclouds.jdbc.gc.batch-size";
+    public static final int DEFAULT_GC_BATCH_SIZE = 1000;
+
+    /**
+     * Number of milliseconds the garbage collector sleeps between two batches
+     */
+    public static final String PROPERTY_JDBC_GC_PAUSE = "jclouds.jdbc.gc.pause";
+    public static final long DEFAULT_GC_PAUSE = 100;
+
+    /**
+     * Whether the garbage collector also reads every blob with an MD5 and checks its content
+     */
+    public static final String PROPERTY_JDBC_GC_SCRUB = "jclouds.jdbc.gc.scrub";
+
+    /**
+     * Where measurements go: {@code none}, {@code jmx} or the name of a class implementing
+     * {@link org.jclouds.jdbc.metrics.JdbcMetrics}
+     */
+    public static final String PROPERTY_JDBC_METRICS = "jclouds.jdbc.metrics";
+    public static final String DEFAULT_METRICS = "none";
 
     private JdbcConstants() {
         throw new AssertionError("Intentionally Unimplemented");
@@ -16,19 +16,30 @@
  */
 package org.jclouds.jdbc.repository;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
+import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.BlobEntityPK;
 import org.jclouds.jdbc.entity.ContainerEntity;
+import org.jclouds.jdbc.entity.PayloadEntity;
 
 import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 @Singleton
 public class BlobRepository extends GenericRepository<BlobEntity, BlobEntityPK> {
 
+   // Keeps IN lists below the parameter limits of the supported databases
+   private static final int MAX_IN_PARAMETERS = 500;
+
    @Inject
    private BlobRepository(Provider<EntityManager> entityManager) {
       super(entityManager);
@@ -51,4 +62,209 @@ public class BlobRepository extends GenericRepository<BlobEntity, BlobEntityPK>
             .getResultList();
    }
 
+   /**
+    * Checks if a blob exists, without loading it.
+    */
+   public boolean blobExists(String containerName, String key) {
+      return entityManager.get().createQuery("SELECT COUNT(b) FROM " + entityClass.getName() + " b "
+            + "WHERE b.containerEntity.name = :containerName AND b.key = :key", Long.class)
+            .setParameter("containerName", containerName)
+            .setParameter("key", key)
+            .getSingleResult() > 0;
+   }
+
+   /**
+    * @return the access of a blob, without loading it, or null if the blob does not exist
+    */
+   public BlobAccess findBlobAccess(String containerName, String key) {
+      List<BlobAccess> result = entityManager.get().createQuery("SELECT b.blobAccess FROM " + entityClass.getName()
+            + " b WHERE b.containerEntity.name = :containerName AND b.key = :key", BlobAccess.class)
+            .setParameter("containerName", containerName)
+            .setParameter("key", key)
+            .getResultList();
+      return result.isEmpty() ? null : result.get(0);
+   }
+
+   /**
+    * @return the number of updated blobs, 0 if the blob does not exist
+    */
+   public int updateBlobAccess(ContainerEntity containerEntity, String key, BlobAccess blobAccess) {
+      return entityManager.get().createQuery("UPDATE " + entityClass.getName() + " b SET b.blobAccess = :blobAccess "
+            + "WHERE b.containerEntity = :containerEntity AND b.key = :key")
+            .setParameter("blobAccess", blobAccess)
+            .setParameter("containerEntity", containerEntity)
+            .setParameter("key", key)
+            .executeUpdate();
+   }
+
+   /**
+    * Lists the keys of a container in key order, without loading the blobs.
+    *
+    * @param prefix only the keys starting with this prefix are listed, if not null
+    * @param after only the keys greater than this one are listed, if not null
+    * @param skipPrefix the keys starting with this prefix are skipped, if not null
+    * @param maxResults the maximum number of keys, or 0 for all of them
+    */
+   public List<String> findBlobKeys(ContainerEntity containerEntity, String prefix, String after, String skipPrefix,
+         int maxResults) {
+      TypedQuery<String> query = entityManager.get().createQuery("SELECT b.key FROM " + entityClass.getName() + " b "
+            + "WHERE b.containerEntity = :containerEntity"
+            + (prefix == null ? "" : " AND b.key LIKE :prefix ESCAPE '!'")
+            + (after == null ? "" : " AND b.key > :after")
+            + (skipPrefix == null ? "" : " AND b.key NOT LIKE :skipPrefix ESCAPE '!'")
+            + " ORDER BY b.key", String.class)
+            .setParameter("containerEntity", containerEntity);
+      if (prefix != null) {
+         query.setParameter("prefix", likePrefix(prefix));
+      }
+      if (after != null) {
+         query.setParameter("after", after);
+      }
+      if (skipPrefix != null) {
+         query.setParameter("skipPrefix", likePrefix(skipPrefix));
+      }
+      if (maxResults > 0) {
+         query.setMaxResults(maxResults);
+      }
+      return query.getResultList();
+   }
+
+   public List<BlobEntity> findBlobsByKeys(ContainerEntity containerEntity, Collection<String> keys) {
+      ImmutableList.Builder<BlobEntity> result = ImmutableList.builder();
+      for (List<String> partition : Iterables.partition(keys, MAX_IN_PARAMETERS)) {
+         result.addAll(entityManager.get().createQuery("SELECT b FROM " + entityClass.getName() + " b "
+               + "WHERE b.containerEntity = :containerEntity AND b.key IN :keys", entityClass)
+               .setParameter("containerEntity", containerEntity)
+               .setParameter("keys", partition)
+               .getResultList());
+      }
+      return result.build();
+   }
+
+   /**
+    * Sets the version of the blobs stored before blobs were versioned, so that they can be
+    * modified.
+    *
+    * @return the number of blobs updated
+    */
+   public int initializeVersions() {
+      return entityManager.get().createQuery("UPDATE " + entityClass.getName() + " b SET b.version = 0 "
+            + "WHERE b.version IS NULL")
+            .executeUpdate();
+   }
+
+   /**
+    * Counts the blobs of a container, or the blobs under a directory, without loading them.
+    */
+   public long countBlobs(ContainerEntity containerEntity, String directory) {
+      return (Long) bindScope(entityManager.get().createQuery("SELECT COUNT(b) FROM " + entityClass.getName() + " b "
+            + "WHERE " + scope("b", directory, true)), containerEntity, directory)
+            .getSingleResult();
+   }
+
+   /**
+    * @return the files of the payloads of the blobs of a container, or of the blobs under a directory
+    */
+   public List<String> findPayloadFiles(ContainerEntity containerEntity, String directory, boolean recursive) {
+      return bindScope(entityManager.get().createQuery("SELECT DISTINCT b.payload.file FROM " + entityClass.getName()
+            + " b WHERE " + scope("b", directory, recursive) + " AND b.payload.file IS NOT NULL", String.class),
+            containerEntity, directory)
+            .getResultList();
+   }
+
+   /**
+    * Deletes the blobs of a container, or the blobs under a directory, together with their
+    * payloads and user metadata. The number of statements only grows with the number of blobs
+    * by one payload delete per batch of a few hundred blobs, and only the payloads of the deleted
+    * blobs are looked at. The chunks of the blobs have to be released beforehand.
+    *
+    * @param directory the directory to delete the blobs from, or null for the whole container
+    * @param recursive whether the directory blobs under the directory are deleted as well
+    */
+   public void deleteBlobs(ContainerEntity containerEntity, String directory, boolean recursive) {
+      EntityManager em = entityManager.get();
+      List<Object> parameters = new ArrayList<Object>();
+      String nativeScope = nativeScope(containerEntity, directory, recursive, parameters);
+      // Selected before the blobs are deleted, so that only the payloads of the deleted blobs are
+      // looked at afterwards
+      List<Long> payloadIds = new ArrayList<Long>();
+      for (Object payloadId : bind(em.createNativeQuery("SELECT b.payload_id FROM BlobEntity b WHERE " + nativeScope
+            + " AND b.payload_id IS NOT NULL"), parameters).getResultList()) {
+         payloadIds.add(((Number) payloadId).longValue());
+      }
+      bind(em.createNativeQuery("DELETE FROM PayloadEntity_chunks WHERE PayloadEntity_id IN "
+            + "(SELECT b.payload_id FROM BlobEntity b WHERE " + nativeScope + ")"), parameters)
+            .executeUpdate();
+      bind(em.createNativeQuery("DELETE FROM PayloadEntity_userMetadata WHERE PayloadEntity_id IN "
+            + "(SELECT b.payload_id FROM BlobEntity b WHERE " + nativeScope + ")"), parameters)
+            .executeUpdate();
+      bindScope(em.createQuery("DELETE FROM " + entityClass.getName() + " b WHERE " + scope("b", directory, recursive)),
+            containerEntity, directory)
+            .executeUpdate();
+      // A payload is only referenced from its blob, so those of the deleted blobs go with them
+      for (List<Long> partition : Iterables.partition(payloadIds, MAX_IN_PARAMETERS)) {
+         em.createQuery("DELETE FROM " + PayloadEntity.class.getName() + " p WHERE p.id IN :ids")
+               .setParameter("ids", partition)
+               .executeUpdate();
+      }
+   }
+
+   /**
+    * @return the JPQL condition selecting the blobs of a container or of a directory
+    */
+   static String scope(String alias, String directory, boolean recursive) {
+      StringBuilder scope = new StringBuilder(alias).append(".containerEntity = :containerEntity");
+      if (directory != null) {
+         scope.append(" AND ").append(alias).append(".key != :directoryName AND ")
+               .append(alias).append(".key LIKE :directoryLike ESCAPE '!'");
+      }
+      if (!recursive) {
+         scope.append(" AND ").append(alias).append(".directory = false");
+      }
+      return scope.toString();
+   }
+
+   static <Q extends Query> Q bindScope(Q query, ContainerEntity containerEntity, String directory) {
+      query.setParameter("containerEntity", containerEntity);
+      if (directory != null) {
+         query.setParameter("directoryName", directory);
+         query.setParameter("directoryLike", likePrefix(directory));
+      }
+      return query;
+   }
+
+   /**
+    * @return a LIKE pattern matching the strings starting with the prefix, escaped with '!'
+    */
+   static String likePrefix(String prefix) {
+      return prefix.replace("!", "!!").replace("%", "!%").replace("_", "!_") + "%";
+   }
+
+   /**
+    * @return the SQL condition selecting the blobs of a container or of a directory, whose
+    *         parameters are added to the given list
+    */
+   static String nativeScope(ContainerEntity containerEntity, String directory, boolean recursive,
+         List<Object> parameters) {
+      parameters.add(containerEntity.getId());
+      StringBuilder scope = new StringBuilder("b.id = ?1");
+      if (directory != null) {
+         parameters.add(directory);
+         parameters.add(likePrefix(directory));
+         scope.append(" AND b.key <> ?2 AND b.key LIKE ?3 ESCAPE '!'");
+      }
+      if (!recursive) {
+         parameters.add(Boolean.FALSE);
+         scope.append(" AND b.directory = ?").append(parameters.size());
+      }
+      return scope.toString();
+   }
+
+   static Query bind(Query query, List<Object> parameters) {
+      for (int i = 0; i < parameters.size(); i++) {
+         query.setParameter(i + 1, parameters.get(i));
+      }
+      return query;
+   }
+
 }
@@ -16,19 +16,191 @@
  */
 package org.jclouds.jdbc.repository;
 
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.entity.ContainerEntity;
+import org.jclouds.jdbc.entity.PayloadEntity;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
 
 @Singleton
 public class ChunkRepository extends GenericRepository<ChunkEntity, Long> {
 
+   // Keeps IN lists below the parameter limits of the supported databases
+   private static final int MAX_IN_PARAMETERS = 500;
+
    @Inject
    private ChunkRepository(Provider<EntityManager> entityManager) {
       super(entityManager);
    }
 
+   /**
+    * Inserts the chunks in a single flush so that the provider can batch the statements.
+    * The chunks are detached afterwards, so their data is no longer referenced by the
+    * persistence context.
+    *
+    * @return the generated ids, in the same order as the chunks
+    */
+   public List<Long> createBatch(List<ChunkEntity> chunks) {
+      EntityManager em = entityManager.get();
+      for (ChunkEntity chunk : chunks) {
+         em.persist(chunk);
+      }
+      em.flush();
+      ImmutableList.Builder<Long> ids = ImmutableList.builder();
+      for (ChunkEntity chunk : chunks) {
+         ids.add(chunk.getId());
+         em.detach(chunk);
+      }
+      return ids.build();
+   }
+
+   /**
+    * Finds shared chunks by the hash of their content, without loading their data.
+    *
+    * @return the id of one chunk for every hash that has been found
+    */
+   public Map<String, Long> findChunkIdsByHash(Collection<String> hashes) {
+      Map<String, Long> result = Maps.newHashMap();
+      for (List<String> partition : Iterables.partition(ImmutableSet.copyOf(hashes), MAX_IN_PARAMETERS)) {
+         List<Object[]> rows = entityManager.get().createQuery("SELECT c.hash, c.id FROM " + entityClass.getName() + " c "
+               + "WHERE c.hash IN :hashes", Object[].class)
+               .setParameter("hashes", partition)
+               .getResultList();
+         for (Object[] row : rows) {
+            if (!result.containsKey(row[0])) {
+               result.put((String) row[0], (Long) row[1]);
+            }
+         }
+      }
+      return result;
+   }
+
+   /**
+    * Adds references to a shared chunk, and marks it as stored now so that the garbage
+    * collector leaves it alone until the payload referencing it is committed.
+    *
+    * @return the number of updated chunks, 0 if the chunk no longer exists
+    */
+   public int addReferences(Long id, int count) {
+      return entityManager.get().createQuery("UPDATE " + entityClass.getName() + " c "
+            + "SET c.refCount = c.refCount + :count, c.stored = :now WHERE c.id = :id")
+            .setParameter("count", count)
+            .setParameter("now", new Date())
+            .setParameter("id", id)
+            .executeUpdate();
+   }
+
+   /**
+    * @return the ids of at most {@code max} chunks following the given id, in order, without
+    *         loading their data
+    */
+   public List<Long> findIdsAfter(Long after, int max) {
+      return entityManager.get().createQuery("SELECT c.id FROM " + entityClass.getName() + " c "
+            + "WHERE c.id > :after ORDER BY c.id", Long.class)
+            .setParameter("after", after)
+            .setMaxResults(max)
+            .getResultList();
+   }
+
+   /**
+    * Deletes the chunks of an id range that no payload references and that were stored before
+    * the given date. The date is checked again by the delete, so a chunk reused concurrently by
+    * a deduplicated write is kept.
+    *
+    * @return the number of chunks deleted
+    */
+   public int deleteUnreferenced(Long after, Long upTo, Date storedBefore) {
+      EntityManager em = entityManager.get();
+      List<Long> ids = em.createQuery("SELECT c.id FROM " + entityClass.getName() + " c "
+            + "WHERE c.id > :after AND c.id <= :upTo AND (c.stored IS NULL OR c.stored < :storedBefore) "
+            + "AND NOT EXISTS (SELECT p.id FROM " + PayloadEntity.class.getName() + " p JOIN p.chunks ch "
+            + "WHERE ch = c.id)", Long.class)
+            .setParameter("after", after)
+            .setParameter("upTo", upTo)
+            .setParameter("storedBefore", storedBefore)
+            .getResultList();
+      int deleted = 0;
+      for (List<Long> partition : Iterables.partition(ids, MAX_IN_PARAMETERS)) {
+         deleted += em.createQuery("DELETE FROM " + entityClass.getName() + " c "
+               + "WHERE c.id IN :ids AND (c.stored IS NULL OR c.stored < :storedBefore)")
+               .setParameter("ids", partition)
+               .setParameter("storedBefore", storedBefore)
+               .executeUpdate();
+      }
+      return deleted;
+   }
+
+   /**
+    * Drops one reference for every occurrence of a chunk in the list, and deletes the
+    * chunks that are no longer referenced.
+    */
+   public void releaseChunks(List<Long> ids) {
+      release(HashMultiset.create(ids));
+   }
+
+   /**
+    * Releases the chunks of the blobs of a container, or of the blobs under a directory. The
+    * chunks that are not shared are deleted with a single statement, whatever their number.
+    *
+    * @see BlobRepository#deleteBlobs(ContainerEntity, String, boolean)
+    */
+   public void releaseChunksOfBlobs(ContainerEntity containerEntity, String directory, boolean recursive) {
+      EntityManager em = entityManager.get();
+      // The chunk list is an element collection, which JPQL cannot select from portably
+      List<Object> parameters = new ArrayList<Object>();
+      String blobChunks = "BlobEntity b JOIN PayloadEntity_chunks pc ON pc.PayloadEntity_id = b.payload_id WHERE "
+            + BlobRepository.nativeScope(containerEntity, directory, recursive, parameters);
+      List<?> rows = BlobRepository.bind(em.createNativeQuery("SELECT pc.chunks, COUNT(*) FROM " + blobChunks
+            + " AND pc.chunks IN (SELECT c.id FROM ChunkEntity c WHERE c.hash IS NOT NULL) GROUP BY pc.chunks"),
+            parameters)
+            .getResultList();
+      Multiset<Long> shared = HashMultiset.create();
+      for (Object row : rows) {
+         Object[] columns = (Object[]) row;
+         shared.add(((Number) columns[0]).longValue(), ((Number) columns[1]).intValue());
+      }
+      BlobRepository.bind(em.createNativeQuery("DELETE FROM ChunkEntity WHERE hash IS NULL AND id IN "
+            + "(SELECT pc.chunks FROM " + blobChunks + ")"), parameters)
+            .executeUpdate();
+      release(shared);
+   }
+
+   private void release(Multiset<Long> references) {
+      ListMultimap<Integer, Long> idsByCount = ArrayListMultimap.create();
+      for (Multiset.Entry<Long> entry : references.entrySet()) {
+         idsByCount.put(entry.getCount(), entry.getElement());
+      }
+      for (Map.Entry<Integer, Collection<Long>> entry : idsByCount.asMap().entrySet()) {
+         for (List<Long> partition : Iterables.partition(entry.getValue(), MAX_IN_PARAMETERS)) {
+            entityManager.get().createQuery("UPDATE " + entityClass.getName() + " c "
+                  + "SET c.refCount = c.refCount - :count WHERE c.id IN :ids")
+                  .setParameter("count", entry.getKey())
+                  .setParameter("ids", partition)
+                  .executeUpdate();
+         }
+      }
+      for (List<Long> partition : Iterables.partition(references.elementSet(), MAX_IN_PARAMETERS)) {
+         entityManager.get().createQuery("DELETE FROM " + entityClass.getName() + " c "
+               + "WHERE c.id IN :ids AND (c.refCount IS NULL OR c.refCount <= 0)")
+               .setParameter("ids", partition)
+               .executeUpdate();
+      }
+   }
+
 }
@@ -16,21 +16,78 @@
  */
 package org.jclouds.jdbc.repository;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import com.google.inject.Provider;
 import com.google.inject.Singleton;
 import org.jclouds.jdbc.entity.ContainerEntity;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
+import org.jclouds.jdbc.reference.JdbcConstants;
 
+import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 @Singleton
 public class ContainerRepository extends GenericRepository<ContainerEntity, Long> {
 
+   // Container ids by name. Containers are only renamed by deleting and creating them again, which
+   // invalidates the entry after commit; the expiry bounds how long other processes may see a stale id
+   private final Cache<String, Long> containerIds;
+   private final JdbcMetrics metrics;
+
    @Inject
-   private ContainerRepository(Provider<EntityManager> entityManager) {
+   private ContainerRepository(Provider<EntityManager> entityManager, JdbcMetrics metrics,
+         @Named(JdbcConstants.PROPERTY_JDBC_CONTAINER_CACHE_SIZE) long cacheSize,
+         @Named(JdbcConstants.PROPERTY_JDBC_CONTAINER_CACHE_EXPIRY) long cacheExpirySeconds) {
       super(entityManager);
+      this.metrics = metrics;
+      this.containerIds = CacheBuilder.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterWrite(cacheExpirySeconds, TimeUnit.SECONDS)
+            .build();
+   }
+
+   /**
+    * Drops the cached id of a container. Called once the transaction that created, modified or
+    * deleted the container has ended, so that a concurrent lookup cannot cache the id it read
+    * before the commit.
+    */
+   public void invalidateContainerId(String name) {
+      containerIds.invalidate(name);
+   }
+
+   /**
+    * @return the id of the container, from the cache when possible, or null if the container
+    *         does not exist
+    */
+   public Long findContainerId(String name) {
+      Long id = containerIds.getIfPresent(name);
+      if (id == null) {
+         long start = System.nanoTime();
+         ContainerEntity containerEntity = findContainerByName(name);
+         metrics.time(JdbcMetrics.Operation.CONTAINER_LOOKUP, System.nanoTime() - start);
+         if (containerEntity == null) {
+            return null;
+         }
+         id = containerEntity.getId();
+         containerIds.put(name, id);
+      }
+      return id;
+   }
+
+   /**
+    * Gets a reference to the container to use in blob queries and associations. Its state
+    * is not loaded, so no query is run when the container id is cached.
+    *
+    * @return a reference to the container, or null if the container does not exist
+    */
+   public ContainerEntity findContainerReference(String name) {
+      Long id = findContainerId(name);
+      return id == null ? null : entityManager.get().getReference(entityClass, id);
    }
 
    public ContainerEntity findContainerByName(String name) {
@@ -0,0 +1,96 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.repository;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import org.jclouds.jdbc.entity.PayloadEntity;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+
+@Singleton
+public class PayloadRepository extends GenericRepository<PayloadEntity, Long> {
+
+   @Inject
+   private PayloadRepository(Provider<EntityManager> entityManager) {
+      super(entityManager);
+   }
+
+   /**
+    * Reads a window of the chunk list of a payload, without loading the payload itself.
+    *
+    * @return the ids of the chunks at positions {@code from} to {@code from + count - 1}, in order
+    */
+   public List<Long> findChunkIds(Long payloadId, int from, int count) {
+      // The chunk list is an element collection, which JPQL cannot index portably
+      List<?> rows = entityManager.get().createNativeQuery("SELECT chunks FROM PayloadEntity_chunks "
+            + "WHERE PayloadEntity_id = ?1 AND chunkIndex >= ?2 AND chunkIndex < ?3 ORDER BY chunkIndex")
+            .setParameter(1, payloadId)
+            .setParameter(2, from)
+            .setParameter(3, from + count)
+            .getResultList();
+      List<Long> ids = new ArrayList<Long>(rows.size());
+      for (Object row : rows) {
+         ids.add(((Number) row).longValue());
+      }
+      return ids;
+   }
+
+   /**
+    * Moves the chunk list of a payload to the end of the chunk list of another one. The rows
+    * of the list are updated in place, neither the chunks nor the list are read.
+    *
+    * @param offset the number of chunks of the target payload
+    * @return the number of chunks moved
+    */
+   public int appendChunks(Long targetPayloadId, Long sourcePayloadId, int offset) {
+      EntityManager em = entityManager.get();
+      em.flush();
+      int moved = em.createNativeQuery("UPDATE PayloadEntity_chunks SET PayloadEntity_id = ?1, chunkIndex = chunkIndex + ?2 "
+            + "WHERE PayloadEntity_id = ?3")
+            .setParameter(1, targetPayloadId)
+            .setParameter(2, offset)
+            .setParameter(3, sourcePayloadId)
+            .executeUpdate();
+      // The chunk lists cached by the provider no longer match the table
+      em.getEntityManagerFactory().getCache().evict(entityClass, targetPayloadId);
+      em.getEntityManagerFactory().getCache().evict(entityClass, sourcePayloadId);
+      return moved;
+   }
+
+   /**
+    * @return the number of payloads stored in the given file
+    */
+   public long countFileReferences(String file) {
+      return entityManager.get().createQuery("SELECT COUNT(p) FROM " + entityClass.getName() + " p "
+            + "WHERE p.file = :file", Long.class)
+            .setParameter("file", file)
+            .getSingleResult();
+   }
+
+   public int countChunks(Long payloadId) {
+      return ((Number) entityManager.get().createNativeQuery("SELECT COUNT(*) FROM PayloadEntity_chunks "
+            + "WHERE PayloadEntity_id = ?1")
+            .setParameter(1, payloadId)
+            .getSingleResult())
+            .intValue();
+   }
+
+}
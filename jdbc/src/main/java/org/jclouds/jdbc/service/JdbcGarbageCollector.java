@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.service;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.jdbc.conversion.BlobEntityToBlob;
+import org.jclouds.jdbc.entity.BlobEntity;
+import org.jclouds.jdbc.entity.ContainerEntity;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.util.PayloadFileStore;
+import org.jclouds.logging.Logger;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes the chunks and the payload files no payload references, as left by writes that
+ * failed or by releases that did not complete, and optionally checks the content of the blobs
+ * against their MD5. Work is done in batches, each in its own short transaction, with a pause
+ * between batches so that foreground operations are not starved. Chunks and files are only
+ * deleted once they have not been written or reused for the grace period, so that the writes
+ * in progress, whose data is stored before it is referenced, are left alone.
+ */
+@Singleton
+public class JdbcGarbageCollector {
+
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
+
+   private final JdbcService jdbcService;
+   private final BlobEntityToBlob blobEntityToBlob;
+   private final PayloadFileStore fileStore;
+   private final long graceMillis;
+   private final int batchSize;
+   private final long pauseMillis;
+   private final boolean scrub;
+
+   @Inject
+   JdbcGarbageCollector(JdbcService jdbcService, BlobEntityToBlob blobEntityToBlob, PayloadFileStore fileStore,
+         @Named(JdbcConstants.PROPERTY_JDBC_GC_GRACE) long grace,
+         @Named(JdbcConstants.PROPERTY_JDBC_GC_BATCH_SIZE) int batchSize,
+         @Named(JdbcConstants.PROPERTY_JDBC_GC_PAUSE) long pauseMillis,
+         @Named(JdbcConstants.PROPERTY_JDBC_GC_SCRUB) boolean scrub) {
+      this.jdbcService = jdbcService;
+      this.blobEntityToBlob = blobEntityToBlob;
+      this.fileStore = fileStore;
+      this.graceMillis = TimeUnit.SECONDS.toMillis(grace);
+      this.batchSize = batchSize;
+      this.pauseMillis = pauseMillis;
+      this.scrub = scrub;
+   }
+
+   /**
+    * Runs a full collection, and a scrub when enabled. Stops early if the thread is interrupted.
+    */
+   public void collect() {
+      try {
+         int chunks = sweepChunks();
+         int files = sweepFiles();
+         logger.debug("garbage collection deleted %s chunks and %s files", chunks, files);
+         if (scrub) {
+            List<String> corrupt = scrub();
+            logger.debug("scrub found %s corrupt blobs", corrupt.size());
+         }
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+      } catch (RuntimeException e) {
+         logger.warn(e, "garbage collection failed");
+      }
+   }
+
+   /**
+    * @return the number of chunks deleted
+    */
+   public int sweepChunks() throws InterruptedException {
+      Date storedBefore = new Date(System.currentTimeMillis() - graceMillis);
+      int deleted = 0;
+      Long after = Long.MIN_VALUE;
+      List<Long> ids;
+      while (!(ids = jdbcService.findChunkIdsAfter(after, batchSize)).isEmpty()) {
+         Long upTo = ids.get(ids.size() - 1);
+         deleted += jdbcService.deleteUnreferencedChunks(after, upTo, storedBefore);
+         after = upTo;
+         pause();
+      }
+      return deleted;
+   }
+
+   /**
+    * @return the number of payload files and abandoned temporary files deleted
+    */
+   public int sweepFiles() throws InterruptedException {
+      int deleted = fileStore.deleteTempFiles(graceMillis);
+      int checked = 0;
+      for (String file : fileStore.list()) {
+         if (jdbcService.countFileReferences(file) == 0 && fileStore.delete(file)) {
+            deleted++;
+         }
+         if (++checked % batchSize == 0) {
+            pause();
+         }
+      }
+      return deleted;
+   }
+
+   /**
+    * Reads every blob whose MD5 is known and compares its content to it. A blob modified while
+    * it is read is skipped.
+    *
+    * @return the names of the corrupt blobs, as {@code container/key}
+    */
+   public List<String> scrub() throws InterruptedException {
+      ImmutableList.Builder<String> corrupt = ImmutableList.builder();
+      for (ContainerEntity container : jdbcService.findAllContainers()) {
+         String after = null;
+         List<String> keys;
+         while (!(keys = jdbcService.findBlobKeys(container.getName(), null, after, null, batchSize)).isEmpty()) {
+            for (String key : keys) {
+               if (!verify(container.getName(), key)) {
+                  logger.error("blob %s in container %s does not match its MD5", key, container.getName());
+                  corrupt.add(container.getName() + "/" + key);
+               }
+            }
+            after = keys.get(keys.size() - 1);
+            pause();
+         }
+      }
+      return corrupt.build();
+   }
+
+   /**
+    * @return false if the blob was not modified while it was read and does not match its MD5
+    */
+   private boolean verify(String containerName, String key) {
+      BlobEntity blobEntity = jdbcService.findBlobById(containerName, key);
+      if (blobEntity == null || blobEntity.isDirectory() || blobEntity.getPayload().getContentMD5() == null) {
+         return true;
+      }
+      HashCode expected = HashCode.fromBytes(blobEntity.getPayload().getContentMD5());
+      try {
+         ByteSource content = (ByteSource) blobEntityToBlob.apply(blobEntity).getPayload().getRawContent();
+         if (content.hash(Hashing.md5()).equals(expected)) {
+            return true;
+         }
+      } catch (IOException e) {
+         logger.debug("could not read blob %s in container %s: %s", key, containerName, e.getMessage());
+      } catch (RuntimeException e) {
+         logger.debug("could not read blob %s in container %s: %s", key, containerName, e.getMessage());
+      }
+      BlobEntity current = jdbcService.findBlobById(containerName, key);
+      return current == null || !Objects.equal(blobEntity.getVersion(), current.getVersion());
+   }
+
+   private void pause() throws InterruptedException {
+      if (pauseMillis > 0) {
+         Thread.sleep(pauseMillis);
+      }
+   }
+
+}
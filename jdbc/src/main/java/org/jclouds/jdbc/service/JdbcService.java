@@ -16,66 +16,153 @@
  */
 package org.jclouds.jdbc.service;
 
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
 import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
 import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingInputStream;
 import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 import com.google.inject.persist.Transactional;
+import org.jclouds.Constants;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.reference.BlobStoreConstants;
+import org.jclouds.io.Payload;
 import org.jclouds.jdbc.conversion.BlobToBlobEntity;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.BlobEntityPK;
 import org.jclouds.jdbc.entity.ChunkEntity;
 import org.jclouds.jdbc.entity.ContainerEntity;
+import org.jclouds.jdbc.entity.MultipartPartEntity;
+import org.jclouds.jdbc.entity.MultipartUploadEntity;
 import org.jclouds.jdbc.entity.PayloadEntity;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
 import org.jclouds.jdbc.reference.JdbcConstants;
 import org.jclouds.jdbc.repository.BlobRepository;
 import org.jclouds.jdbc.repository.ChunkRepository;
 import org.jclouds.jdbc.repository.ContainerRepository;
+import org.jclouds.jdbc.repository.MultipartPartRepository;
+import org.jclouds.jdbc.repository.MultipartUploadRepository;
+import org.jclouds.jdbc.repository.PayloadRepository;
+import org.jclouds.jdbc.util.BufferPool;
+import org.jclouds.jdbc.util.ChunkCodec;
+import org.jclouds.jdbc.util.ContentDigest;
+import org.jclouds.jdbc.util.ContentHasher;
+import org.jclouds.jdbc.util.PayloadFileStore;
+import org.jclouds.logging.Logger;
 import org.jclouds.util.Closeables2;
 
+import javax.annotation.Resource;
+import javax.inject.Named;
+import javax.persistence.OptimisticLockException;
+import javax.persistence.PersistenceException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.io.BaseEncoding.base16;
 
 @Singleton
 public class JdbcService {
 
    private static final String DIRECTORY_MD5 = Hashing.md5().hashBytes(new byte[0]).toString();
+   private static final int MAX_COMMIT_ATTEMPTS = 10;
+
+   @Resource
+   @Named(BlobStoreConstants.BLOBSTORE_LOGGER)
+   protected Logger logger = Logger.NULL;
 
    private final ContainerRepository containerRepository;
    private final BlobRepository blobRepository;
    private final ChunkRepository chunkRepository;
+   private final PayloadRepository payloadRepository;
+   private final MultipartUploadRepository multipartUploadRepository;
+   private final MultipartPartRepository multipartPartRepository;
    private final BlobToBlobEntity blobToBlobEntity;
+   private final ListeningExecutorService userExecutor;
+   private final int writeBatchChunks;
+   private final int chunkSize;
+   private final ChunkCodec chunkCodec;
+   private final boolean chunkDedup;
+   private final ContentDigest etagDigest;
+   private final boolean trustContentMD5;
+   private final BufferPool bufferPool;
+   private final PayloadFileStore fileStore;
+   private final JdbcMetrics metrics;
 
    @Inject
    JdbcService(ContainerRepository containerRepository, BlobRepository blobRepository, ChunkRepository chunkRepository,
-         BlobToBlobEntity blobToBlobEntity) {
+         PayloadRepository payloadRepository, MultipartUploadRepository multipartUploadRepository,
+         MultipartPartRepository multipartPartRepository, BlobToBlobEntity blobToBlobEntity,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService userExecutor,
+         @Named(JdbcConstants.PROPERTY_JDBC_WRITE_BATCH_CHUNKS) int writeBatchChunks,
+         @Named(JdbcConstants.PROPERTY_JDBC_CHUNK_SIZE) int chunkSize,
+         @Named(JdbcConstants.PROPERTY_JDBC_CHUNK_CODEC) String chunkCodec,
+         @Named(JdbcConstants.PROPERTY_JDBC_CHUNK_DEDUP) boolean chunkDedup,
+         @Named(JdbcConstants.PROPERTY_JDBC_ETAG_DIGEST) String etagDigest,
+         @Named(JdbcConstants.PROPERTY_JDBC_TRUST_CONTENT_MD5) boolean trustContentMD5, PayloadFileStore fileStore,
+         JdbcMetrics metrics) {
+      checkArgument(chunkSize > 0 && chunkSize <= JdbcConstants.MAX_CHUNK_SIZE,
+            "%s must be between 1 and %s", JdbcConstants.PROPERTY_JDBC_CHUNK_SIZE, JdbcConstants.MAX_CHUNK_SIZE);
       this.containerRepository = containerRepository;
       this.blobRepository = blobRepository;
       this.chunkRepository = chunkRepository;
+      this.payloadRepository = payloadRepository;
+      this.multipartUploadRepository = multipartUploadRepository;
+      this.multipartPartRepository = multipartPartRepository;
       this.blobToBlobEntity = blobToBlobEntity;
+      this.userExecutor = userExecutor;
+      this.writeBatchChunks = writeBatchChunks;
+      this.chunkSize = chunkSize;
+      this.chunkCodec = ChunkCodec.valueOf(chunkCodec);
+      this.chunkDedup = chunkDedup;
+      this.etagDigest = ContentDigest.valueOf(etagDigest);
+      this.trustContentMD5 = trustContentMD5;
+      this.bufferPool = new BufferPool(chunkSize, writeBatchChunks);
+      this.fileStore = fileStore;
+      this.metrics = metrics;
    }
 
-   @Transactional
+   /**
+    * Creates a container. Like the other container changes, the cached id of the container is
+    * invalidated once the transaction has ended, not within it.
+    */
    public void createContainer(String containerName, ContainerAccess access) {
-      containerRepository.create(ContainerEntity.builder().name(containerName).containerAccess(access).build());
+      try {
+         insertContainer(containerName, access);
+      } finally {
+         containerRepository.invalidateContainerId(containerName);
+      }
    }
 
-   @Transactional
    public void createContainer(String containerName) {
       createContainer(containerName, null);
    }
 
+   @Transactional
+   void insertContainer(String containerName, ContainerAccess access) {
+      containerRepository.create(ContainerEntity.builder().name(containerName).containerAccess(access).build());
+   }
+
    @Transactional
    public List<ContainerEntity> findAllContainers() {
       return containerRepository.findAllContainers();
@@ -86,58 +173,147 @@ public class JdbcService {
       return containerRepository.findContainerByName(containerName);
    }
 
-   @Transactional
    public void deleteContainerByName(String containerName) {
-      containerRepository.deleteContainerByName(containerName);
+      try {
+         removeContainer(containerName);
+      } finally {
+         containerRepository.invalidateContainerId(containerName);
+      }
    }
 
    @Transactional
+   void removeContainer(String containerName) {
+      ContainerEntity containerEntity = containerRepository.findContainerReference(containerName);
+      if (containerEntity != null) {
+         for (MultipartUploadEntity upload : multipartUploadRepository.findUploadsByContainer(containerEntity)) {
+            abortMultipartUpload(upload);
+         }
+      }
+      containerRepository.deleteContainerByName(containerName);
+   }
+
    public void setContainerAccessByName(String containerName, ContainerAccess access) {
+      try {
+         updateContainerAccess(containerName, access);
+      } finally {
+         containerRepository.invalidateContainerId(containerName);
+      }
+   }
+
+   @Transactional
+   void updateContainerAccess(String containerName, ContainerAccess access) {
       ContainerEntity containerEntity = containerRepository.findContainerByName(containerName);
       containerEntity.setContainerAccess(access);
       containerRepository.save(containerEntity);
    }
 
+   @Transactional
+   public int initializeBlobVersions() {
+      return blobRepository.initializeVersions();
+   }
+
    @Transactional
    public boolean blobExists(String containerName, String key) {
-      return findBlobById(containerName, key) != null;
+      return blobRepository.blobExists(containerName, key);
    }
 
-   @Transactional(rollbackOn = IOException.class)
+   @Transactional
+   public BlobAccess findBlobAccess(String containerName, String key) {
+      return blobRepository.findBlobAccess(containerName, key);
+   }
+
+   /**
+    * Stores a blob in two phases. The chunks are written first, one batch per transaction, so
+    * that no transaction stays open while the payload is streamed. The blob is then pointed at
+    * its new payload in a short transaction, checked against the version of the blob read, and
+    * retried if a concurrent writer of the same key committed first. The chunks left without a
+    * blob, those of the replaced payload or of a failed write, are released in the background.
+    * Payloads large enough for the {@link PayloadFileStore} are written to a file instead of
+    * chunks, and the file of a replaced payload is deleted once no payload references it.
+    */
    public BlobEntity createOrModifyBlob(String containerName, Blob blob, BlobAccess blobAccess) throws IOException {
-      List<Long> chunks;
-      HashingInputStream his = new HashingInputStream(Hashing.md5(), blob.getPayload().openStream());
+      long start = System.nanoTime();
+      List<Long> chunks = new ArrayList<Long>();
+      boolean committed = false;
       try {
-         chunks = storeData(his);
+         Payload payload = blob.getPayload();
+         StoredData data = fileStore.accepts(payload.getContentMetadata().getContentLength())
+               ? storeFile(payload) : storeData(payload, chunks);
+         long commitStart = System.nanoTime();
+         AtomicBoolean creating = new AtomicBoolean();
+         for (int attempt = 1; ; attempt++) {
+            try {
+               Commit commit = replacePayload(containerName, blob, blobAccess, data, creating);
+               committed = true;
+               long end = System.nanoTime();
+               metrics.time(JdbcMetrics.Operation.COMMIT_BLOB, end - commitStart);
+               metrics.time(JdbcMetrics.Operation.PUT_BLOB, end - start);
+               metrics.bytesWritten(data.length);
+               metrics.blobWritten(data.chunks.size());
+               releaseChunksInBackground(commit.displacedChunks);
+               releaseFilesInBackground(commit.displacedFiles);
+               return commit.blobEntity;
+            } catch (PersistenceException e) {
+               // Two first writes of a key both insert it, the later one fails on the primary key
+               // and replaces the blob of the other on the next attempt
+               if (attempt >= MAX_COMMIT_ATTEMPTS || !(isConcurrentModification(e)
+                     || creating.get() && blobExists(containerName, blob.getMetadata().getName()))) {
+                  throw e;
+               }
+               logger.debug("blob %s in container %s modified concurrently, retrying: %s", blob.getMetadata().getName(),
+                     containerName, e.getMessage());
+            }
+         }
       } finally {
-         Closeables2.closeQuietly(his);
-      }
-      HashCode actualHashCode = his.hash();
-      HashCode expectedHashCode = blob.getPayload().getContentMetadata().getContentMD5AsHashCode();
-      if (expectedHashCode != null && !actualHashCode.equals(expectedHashCode)) {
-         throw new IOException("MD5 hash code mismatch, actual: " + actualHashCode +
-               " expected: " + expectedHashCode);
+         if (!committed) {
+            releaseChunksInBackground(chunks);
+         }
       }
+   }
 
+   /**
+    * Points the blob at a payload made of chunks already stored. The version of the blob is
+    * checked when the transaction commits, so that of two concurrent writers only one replaces,
+    * and releases, the previous payload.
+    *
+    * @param creating set to whether the blob did not exist, and is inserted rather than replaced
+    */
+   @Transactional
+   Commit replacePayload(String containerName, Blob blob, BlobAccess blobAccess, StoredData data,
+         AtomicBoolean creating) {
       String key = blob.getMetadata().getName();
       Date creationDate = null;
+      Long version = null;
+      List<Long> displacedChunks = ImmutableList.of();
+      List<String> displacedFiles = ImmutableList.of();
       BlobEntity oldBlobEntity = findBlobById(containerName, key);
+      creating.set(oldBlobEntity == null);
       if (oldBlobEntity != null) {
          creationDate = oldBlobEntity.getCreationDate();
+         version = oldBlobEntity.getVersion();
+         displacedChunks = ImmutableList.copyOf(oldBlobEntity.getPayload().getChunks());
+         String displacedFile = oldBlobEntity.getPayload().getFile();
+         if (displacedFile != null && !displacedFile.equals(data.file)) {
+            displacedFiles = ImmutableList.of(displacedFile);
+         }
       }
       BlobEntity blobEntity = blobToBlobEntity.apply(blob);
-      blobEntity.getPayload().setChunks(chunks);
-      blobEntity.setContainerEntity(containerRepository.findContainerByName(containerName));
+      blobEntity.getPayload().setChunks(data.chunks);
+      blobEntity.getPayload().setChunkSize(chunkSize);
+      blobEntity.getPayload().setFile(data.file);
+      blobEntity.setContainerEntity(containerRepository.findContainerReference(containerName));
       blobEntity.setKey(key);
       blobEntity.setBlobAccess(blobAccess);
       blobEntity.setTier(blob.getMetadata().getTier());
       blobEntity.setCreationDate(creationDate);
       blobEntity.setLastModified(new Date());
-      blobEntity.setEtag(base16().lowerCase().encode(actualHashCode.asBytes()));
-      blobEntity.getPayload().setContentMD5(actualHashCode.asBytes());
+      blobEntity.setVersion(version);
+      blobEntity.setEtag(base16().lowerCase().encode(data.etag.asBytes()));
+      blobEntity.getPayload().setContentMD5(data.md5 == null ? null : data.md5.asBytes());
+      blobEntity.getPayload().setContentLength(data.length);
+      blobEntity.setSize(data.length);
 
-      BlobEntity result = blobRepository.save(blobEntity);
-      return result;
+      return new Commit(blobRepository.save(blobEntity), displacedChunks, displacedFiles);
    }
 
    @Transactional
@@ -147,10 +323,17 @@ public class JdbcService {
             .directory(true)
             .payload(PayloadEntity.builder().contentType("application/directory").build())
             .build();
-      blobEntity.setContainerEntity(containerRepository.findContainerByName(containerName));
-      blobEntity.setKey(blob.getMetadata().getName());
+      String key = blob.getMetadata().getName();
+      blobEntity.setContainerEntity(containerRepository.findContainerReference(containerName));
+      blobEntity.setKey(key);
       blobEntity.setBlobAccess(blobAccess);
       blobEntity.setEtag(DIRECTORY_MD5);
+      // A null version would make the marker transient, and insert it again if it already exists
+      BlobEntity oldBlobEntity = findBlobById(containerName, key);
+      if (oldBlobEntity != null) {
+         blobEntity.setCreationDate(oldBlobEntity.getCreationDate());
+         blobEntity.setVersion(oldBlobEntity.getVersion());
+      }
       return blobRepository.save(blobEntity);
    }
 
@@ -159,32 +342,68 @@ public class JdbcService {
       return createDirectoryBlob(containerName, blob, null);
    }
 
-   @Transactional(rollbackOn = IOException.class)
    public BlobEntity createOrModifyBlob(String containerName, Blob blob) throws IOException {
       return createOrModifyBlob(containerName, blob, null);
    }
 
    @Transactional
    public BlobEntity findBlobById(String containerName, String key) {
-      ContainerEntity containerEntity = containerRepository.findContainerByName(containerName);
-      return containerEntity == null ? null : blobRepository.find(new BlobEntityPK(containerEntity.getId(), key));
+      Long containerId = containerRepository.findContainerId(containerName);
+      return containerId == null ? null : blobRepository.find(new BlobEntityPK(containerId, key));
    }
 
    @Transactional
    public ChunkEntity findChunkById(Long id) {
-      return chunkRepository.find(id);
+      long start = System.nanoTime();
+      ChunkEntity chunk = chunkRepository.find(id);
+      metrics.time(JdbcMetrics.Operation.READ_CHUNK, System.nanoTime() - start);
+      if (chunk != null) {
+         metrics.bytesRead(chunk.getSize());
+      }
+      return chunk;
+   }
+
+   @Transactional
+   public List<Long> findChunkIds(Long payloadId, int from, int count) {
+      return payloadRepository.findChunkIds(payloadId, from, count);
+   }
+
+   @Transactional
+   public int countChunks(Long payloadId) {
+      return payloadRepository.countChunks(payloadId);
    }
 
    @Transactional
    public List<BlobEntity> findBlobsByContainer(String containerName) {
-      return blobRepository.findBlobsByContainer(containerRepository.findContainerByName(containerName));
+      return blobRepository.findBlobsByContainer(containerRepository.findContainerReference(containerName));
+   }
+
+   @Transactional
+   public List<String> findBlobKeys(String containerName, String prefix, String after, String skipPrefix,
+         int maxResults) {
+      ContainerEntity containerEntity = containerRepository.findContainerReference(containerName);
+      return containerEntity == null ? ImmutableList.<String> of()
+            : blobRepository.findBlobKeys(containerEntity, prefix, after, skipPrefix, maxResults);
+   }
+
+   @Transactional
+   public List<BlobEntity> findBlobsByKeys(String containerName, Collection<String> keys) {
+      ContainerEntity containerEntity = containerRepository.findContainerReference(containerName);
+      return containerEntity == null || keys.isEmpty() ? ImmutableList.<BlobEntity> of()
+            : blobRepository.findBlobsByKeys(containerEntity, keys);
+   }
+
+   @Transactional
+   public long countBlobs(String containerName, String directoryName) {
+      ContainerEntity containerEntity = containerRepository.findContainerReference(containerName);
+      return containerEntity == null ? 0 : blobRepository.countBlobs(containerEntity, directoryName);
    }
 
    @Transactional
    public List<BlobEntity> findBlobsByDirectory(String containerName, String directoryName, boolean recursive) {
       ImmutableList.Builder<BlobEntity> result = ImmutableList.builder();
       List<BlobEntity> blobEntities = blobRepository
-            .findBlobsByDirectory(containerRepository.findContainerByName(containerName), directoryName);
+            .findBlobsByDirectory(containerRepository.findContainerReference(containerName), directoryName);
       result.addAll(blobEntities);
       if (recursive) {
          for (BlobEntity blobEntity : blobEntities) {
@@ -196,66 +415,513 @@ public class JdbcService {
       return result.build();
    }
 
-   @Transactional
    public void deleteBlobsByContainer(String containerName) {
-      List<BlobEntity> blobs = findBlobsByContainer(containerName);
-      for (BlobEntity blob : blobs) {
-         deleteBlob(containerName, blob.getKey());
-      }
+      releaseFilesInBackground(deleteBlobs(containerName, null, true));
    }
 
-   @Transactional
    public void deleteBlobsByDirectory(String containerName, String directoryName, boolean recursive) {
-      List<BlobEntity> blobs = findBlobsByDirectory(containerName, directoryName, false);
-      for (BlobEntity blob : blobs) {
-         if (!blob.isDirectory()) {
-            deleteBlob(containerName, blob.getKey());
-         }
-         else {
-            if (recursive) {
-               deleteBlobsByDirectory(containerName, blob.getKey(), true);
-               deleteBlob(containerName, blob.getKey());
-            }
-         }
+      releaseFilesInBackground(deleteBlobs(containerName, directoryName, recursive));
+   }
+
+   /**
+    * Deletes a blob, and then the file of its payload if it has one and no other payload
+    * references it.
+    */
+   public void deleteBlob(String containerName, String key) {
+      String file = deleteBlobEntity(containerName, key);
+      if (file != null) {
+         releaseFilesInBackground(ImmutableList.of(file));
       }
    }
 
+   /**
+    * @return the file of the payload of the blob deleted, if any
+    */
    @Transactional
-   public void deleteBlob(String containerName, String key) {
+   String deleteBlobEntity(String containerName, String key) {
       BlobEntity blobEntity = findBlobById(containerName, key);
-      if (blobEntity != null) {
-         deleteChunks(blobEntity.getPayload().getChunks());
-         blobRepository.delete(blobEntity);
+      if (blobEntity == null) {
+         return null;
       }
+      deleteChunks(blobEntity.getPayload().getChunks());
+      blobRepository.delete(blobEntity);
+      return blobEntity.getPayload().getFile();
    }
 
    @Transactional
    public void setBlobAccessById(String containerName, String key, BlobAccess access) {
-      BlobEntity blobEntity = findBlobById(containerName, key);
-      blobEntity.setBlobAccess(access);
-      blobRepository.save(blobEntity);
+      ContainerEntity containerEntity = containerRepository.findContainerReference(containerName);
+      if (containerEntity != null) {
+         blobRepository.updateBlobAccess(containerEntity, key, access);
+      }
+   }
+
+   @Transactional
+   public MultipartUploadEntity initiateMultipartUpload(String containerName, BlobMetadata metadata,
+         BlobAccess blobAccess) {
+      PayloadEntity payload = BlobToBlobEntity.toPayloadEntity(metadata.getContentMetadata());
+      payload.setChunks(new ArrayList<Long>());
+      Map<String, String> userMetadata = metadata.getUserMetadata() == null ? null
+            : Maps.newHashMap(metadata.getUserMetadata());
+      return multipartUploadRepository.create(new MultipartUploadEntity(UUID.randomUUID().toString(),
+            containerRepository.findContainerReference(containerName), metadata.getName(), payload, userMetadata,
+            blobAccess, metadata.getTier()));
+   }
+
+   @Transactional
+   public MultipartUploadEntity findMultipartUpload(String uploadId) {
+      return multipartUploadRepository.find(uploadId);
+   }
+
+   @Transactional
+   public List<MultipartUploadEntity> findMultipartUploads(String containerName) {
+      ContainerEntity containerEntity = containerRepository.findContainerReference(containerName);
+      return containerEntity == null ? ImmutableList.<MultipartUploadEntity> of()
+            : multipartUploadRepository.findUploadsByContainer(containerEntity);
+   }
+
+   @Transactional
+   public List<MultipartPartEntity> findMultipartParts(String uploadId) {
+      return multipartPartRepository.findParts(uploadId);
+   }
+
+   /**
+    * Stores a part of a multipart upload, replacing the part with the same number if any. Each
+    * part is stored in its own transaction, so parts may be uploaded in parallel.
+    */
+   @Transactional(rollbackOn = IOException.class)
+   public MultipartPartEntity createOrModifyPart(String uploadId, int partNumber, Payload payload) throws IOException {
+      checkArgument(multipartUploadRepository.find(uploadId) != null, "Multipart upload %s does not exist", uploadId);
+      // The chunks are written in this transaction, and rolled back with it
+      StoredData data = storeData(payload, new ArrayList<Long>());
+      String etag = base16().lowerCase().encode(data.etag.asBytes());
+
+      MultipartPartEntity part = multipartPartRepository.findPart(uploadId, partNumber);
+      if (part == null) {
+         part = new MultipartPartEntity(uploadId, partNumber, new PayloadEntity(), data.length, etag);
+      } else {
+         deleteChunks(ImmutableList.copyOf(part.getPayload().getChunks()));
+         part.setSize(data.length);
+         part.setEtag(etag);
+         part.setLastModified(new Date());
+      }
+      // A managed part is merged into itself, so its chunk list must be mutable
+      part.getPayload().setChunks(new ArrayList<Long>(data.chunks));
+      part.getPayload().setChunkSize(chunkSize);
+      part.getPayload().setContentLength(data.length);
+      part.getPayload().setContentMD5(data.md5 == null ? null : data.md5.asBytes());
+      return multipartPartRepository.save(part);
+   }
+
+   /**
+    * Completes a multipart upload by appending the chunk lists of the parts to the payload of
+    * the upload, which becomes the payload of the blob. Chunks are neither read nor copied, so
+    * the time taken depends on the number of parts and not on their size.
+    *
+    * @return the blob created, or null if there is no such upload
+    */
+   public BlobEntity completeMultipartUpload(String uploadId, List<Integer> partNumbers) {
+      Commit commit = spliceMultipartUpload(uploadId, partNumbers);
+      if (commit == null) {
+         return null;
+      }
+      releaseFilesInBackground(commit.displacedFiles);
+      return commit.blobEntity;
+   }
+
+   /**
+    * @return the blob created and the file of the payload it replaced, if any, or null if there
+    *         is no such upload
+    */
+   @Transactional
+   Commit spliceMultipartUpload(String uploadId, List<Integer> partNumbers) {
+      MultipartUploadEntity upload = multipartUploadRepository.find(uploadId);
+      if (upload == null) {
+         return null;
+      }
+      Map<Integer, MultipartPartEntity> uploaded = Maps.newHashMap();
+      for (MultipartPartEntity part : multipartPartRepository.findParts(uploadId)) {
+         uploaded.put(part.getPartNumber(), part);
+      }
+      List<MultipartPartEntity> parts = new ArrayList<MultipartPartEntity>(partNumbers.size());
+      for (Integer partNumber : partNumbers) {
+         MultipartPartEntity part = uploaded.remove(partNumber);
+         checkArgument(part != null, "Part %s of multipart upload %s was not uploaded", partNumber, uploadId);
+         parts.add(part);
+      }
+      // Parts uploaded but not listed are dropped
+      for (MultipartPartEntity part : uploaded.values()) {
+         deleteChunks(ImmutableList.copyOf(part.getPayload().getChunks()));
+         multipartPartRepository.delete(part);
+      }
+
+      long size = 0;
+      Hasher etag = Hashing.md5().newHasher();
+      for (MultipartPartEntity part : parts) {
+         size += part.getSize();
+         etag.putBytes(base16().lowerCase().decode(part.getEtag()));
+      }
+
+      BlobEntity oldBlobEntity = blobRepository.find(new BlobEntityPK(upload.getContainerEntity().getId(),
+            upload.getBlobName()));
+      Date creationDate = null;
+      Long version = null;
+      List<String> displacedFiles = ImmutableList.of();
+      if (oldBlobEntity != null) {
+         creationDate = oldBlobEntity.getCreationDate();
+         version = oldBlobEntity.getVersion();
+         deleteChunks(ImmutableList.copyOf(oldBlobEntity.getPayload().getChunks()));
+         String displacedFile = oldBlobEntity.getPayload().getFile();
+         if (displacedFile != null) {
+            displacedFiles = ImmutableList.of(displacedFile);
+         }
+      }
+      PayloadEntity payload = upload.getPayload();
+      payload.setChunkSize(alignedChunkSize(parts));
+      payload.setContentLength(size);
+      payload.setContentMD5(null);
+      BlobEntity blobEntity = BlobEntity.builder(upload.getContainerEntity(), upload.getBlobName())
+            .payload(payload)
+            .userMetadata(upload.getUserMetadata() == null ? null : Maps.newHashMap(upload.getUserMetadata()))
+            .blobAccess(upload.getBlobAccess())
+            .tier(upload.getTier())
+            .size(size)
+            .etag(etag.hash() + "-" + parts.size())
+            .build();
+      blobEntity.setCreationDate(creationDate);
+      blobEntity.setLastModified(new Date());
+      // Merged over the blob replaced, if any, whose version was loaded in this transaction
+      blobEntity.setVersion(version);
+      BlobEntity result = blobRepository.save(blobEntity);
+      upload.setPayload(null);
+
+      int offset = 0;
+      for (MultipartPartEntity part : parts) {
+         offset += payloadRepository.appendChunks(payload.getId(), part.getPayload().getId(), offset);
+         multipartPartRepository.delete(part);
+      }
+      multipartUploadRepository.delete(upload);
+      return new Commit(result, ImmutableList.<Long> of(), displacedFiles);
+   }
+
+   @Transactional
+   public void abortMultipartUpload(String uploadId) {
+      MultipartUploadEntity upload = multipartUploadRepository.find(uploadId);
+      if (upload != null) {
+         abortMultipartUpload(upload);
+      }
+   }
+
+   @Transactional
+   private void abortMultipartUpload(MultipartUploadEntity upload) {
+      for (MultipartPartEntity part : multipartPartRepository.findParts(upload.getId())) {
+         deleteChunks(ImmutableList.copyOf(part.getPayload().getChunks()));
+         multipartPartRepository.delete(part);
+      }
+      multipartUploadRepository.delete(upload);
+   }
+
+   /**
+    * @return the chunk size of the parts when every part but the last is made of whole chunks of
+    *         that size, so that ranges of the blob can be located, and 0 otherwise
+    */
+   private int alignedChunkSize(List<MultipartPartEntity> parts) {
+      if (parts.isEmpty()) {
+         return chunkSize;
+      }
+      Integer partChunkSize = parts.get(0).getPayload().getChunkSize();
+      if (partChunkSize == null) {
+         return 0;
+      }
+      for (int i = 0; i < parts.size(); i++) {
+         MultipartPartEntity part = parts.get(i);
+         if (!partChunkSize.equals(part.getPayload().getChunkSize())
+               || (i < parts.size() - 1 && part.getSize() % partChunkSize != 0)) {
+            return 0;
+         }
+      }
+      return partChunkSize;
+   }
+
+   /**
+    * @return the files of the payloads of the blobs deleted
+    */
+   @Transactional
+   List<String> deleteBlobs(String containerName, String directoryName, boolean recursive) {
+      ContainerEntity containerEntity = containerRepository.findContainerReference(containerName);
+      if (containerEntity == null) {
+         return ImmutableList.of();
+      }
+      List<String> files = blobRepository.findPayloadFiles(containerEntity, directoryName, recursive);
+      chunkRepository.releaseChunksOfBlobs(containerEntity, directoryName, recursive);
+      blobRepository.deleteBlobs(containerEntity, directoryName, recursive);
+      return files;
    }
 
    @Transactional
    private void deleteChunks(List<Long> chunkIds) {
-      for (Long chunkId : chunkIds) {
-         chunkRepository.delete(chunkRepository.find(chunkId));
+      chunkRepository.releaseChunks(chunkIds);
+   }
+
+   @Transactional
+   void releaseChunks(List<Long> chunkIds) {
+      chunkRepository.releaseChunks(chunkIds);
+   }
+
+   private void releaseChunksInBackground(final List<Long> chunkIds) {
+      if (chunkIds.isEmpty()) {
+         return;
       }
+      userExecutor.submit(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               releaseChunks(chunkIds);
+            } catch (RuntimeException e) {
+               logger.warn(e, "could not release %s unreferenced chunks", chunkIds.size());
+            }
+         }
+      });
    }
 
-   @Transactional(rollbackOn = IOException.class)
-   private List<Long> storeData(InputStream data) throws IOException {
-      ImmutableList.Builder<Long> chunks = ImmutableList.builder();
-      while (true) {
-         byte[] buffer = new byte[JdbcConstants.DEFAULT_CHUNK_SIZE];
-         int bytes = ByteStreams.read(data, buffer, 0, JdbcConstants.DEFAULT_CHUNK_SIZE);
-         if (bytes == 0) {
+   @Transactional
+   List<Long> findChunkIdsAfter(Long after, int max) {
+      return chunkRepository.findIdsAfter(after, max);
+   }
+
+   @Transactional
+   int deleteUnreferencedChunks(Long after, Long upTo, Date storedBefore) {
+      return chunkRepository.deleteUnreferenced(after, upTo, storedBefore);
+   }
+
+   @Transactional
+   long countFileReferences(String file) {
+      return payloadRepository.countFileReferences(file);
+   }
+
+   /**
+    * Deletes the files no payload references any more. Runs after the transaction that dropped
+    * the references has committed, so that a rollback never leaves a payload without its file.
+    */
+   private void releaseFilesInBackground(final List<String> files) {
+      if (files.isEmpty()) {
+         return;
+      }
+      userExecutor.submit(new Runnable() {
+         @Override
+         public void run() {
+            for (String file : files) {
+               try {
+                  if (countFileReferences(file) == 0) {
+                     fileStore.delete(file);
+                  }
+               } catch (RuntimeException e) {
+                  logger.warn(e, "could not release unreferenced file %s", file);
+               }
+            }
+         }
+      });
+   }
+
+   /**
+    * Stores a payload as a file, checking its MD5 when known and not trusted. No transaction is
+    * involved: the file is referenced once the payload is committed.
+    */
+   private StoredData storeFile(Payload payload) throws IOException {
+      ContentHasher hasher = newContentHasher(payload);
+      CountingInputStream cis = new CountingInputStream(payload.openStream());
+      String file;
+      long start = System.nanoTime();
+      try {
+         file = fileStore.store(cis, hasher);
+      } finally {
+         Closeables2.closeQuietly(cis);
+      }
+      metrics.time(JdbcMetrics.Operation.WRITE_CHUNKS, System.nanoTime() - start);
+      hasher.finish();
+      return new StoredData(ImmutableList.<Long> of(), file, hasher.getEtag(), hasher.getMD5(), cis.getCount());
+   }
+
+   private ContentHasher newContentHasher(Payload payload) {
+      return new ContentHasher(etagDigest, payload.getContentMetadata().getContentMD5AsHashCode(), trustContentMD5);
+   }
+
+   /**
+    * Stores a payload, checking its MD5 when known and not trusted.
+    *
+    * @param chunks the list the ids of the chunks are added to as they are stored, so that they
+    *        are known even if storing fails
+    */
+   private StoredData storeData(Payload payload, List<Long> chunks) throws IOException {
+      ContentHasher hasher = newContentHasher(payload);
+      CountingInputStream cis = new CountingInputStream(payload.openStream());
+      try {
+         storeData(cis, hasher, chunks);
+      } finally {
+         Closeables2.closeQuietly(cis);
+      }
+      hasher.finish();
+      return new StoredData(ImmutableList.copyOf(chunks), null, hasher.getEtag(), hasher.getMD5(), cis.getCount());
+   }
+
+   /**
+    * Stores the data in chunks, inserting {@code writeBatchChunks} chunks per transaction, or
+    * per flush when called within a transaction. Each batch is hashed on the user executor while
+    * it is being encoded and persisted, and its buffers are returned to the pool once both are done.
+    * Nothing is submitted when the hasher has nothing to compute.
+    */
+   private void storeData(InputStream data, final ContentHasher hasher, List<Long> chunks) throws IOException {
+      final List<byte[]> buffers = new ArrayList<byte[]>(writeBatchChunks);
+      final List<Integer> sizes = new ArrayList<Integer>(writeBatchChunks);
+      boolean finished = false;
+      while (!finished) {
+         buffers.clear();
+         sizes.clear();
+         while (!finished && buffers.size() < writeBatchChunks) {
+            byte[] buffer = bufferPool.acquire();
+            int bytes = ByteStreams.read(data, buffer, 0, buffer.length);
+            if (bytes != buffer.length) {
+               finished = true;
+               if (bytes == 0) {
+                  bufferPool.release(buffer);
+                  break;
+               }
+            }
+            buffers.add(buffer);
+            sizes.add(bytes);
+         }
+         if (buffers.isEmpty()) {
             break;
-         } else if (bytes != buffer.length) {
-            buffer = Arrays.copyOf(buffer, bytes);
          }
-         chunks.add(chunkRepository.create(new ChunkEntity(buffer, bytes)).getId());
+         ListenableFuture<?> hashing = !hasher.isHashing() ? null : userExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+               long start = System.nanoTime();
+               for (int i = 0; i < buffers.size(); i++) {
+                  hasher.putBytes(buffers.get(i), 0, sizes.get(i));
+               }
+               metrics.time(JdbcMetrics.Operation.HASH_CHUNKS, System.nanoTime() - start);
+            }
+         });
+         chunks.addAll(persistBatch(buffers, sizes));
+         if (hashing != null) {
+            await(hashing);
+         }
+         for (byte[] buffer : buffers) {
+            bufferPool.release(buffer);
+         }
+      }
+   }
+
+   @Transactional
+   List<Long> persistBatch(List<byte[]> buffers, List<Integer> sizes) {
+      long start = System.nanoTime();
+      List<Long> ids = chunkDedup ? persistSharedChunks(buffers, sizes) : persistChunks(buffers, sizes);
+      metrics.time(JdbcMetrics.Operation.WRITE_CHUNKS, System.nanoTime() - start);
+      return ids;
+   }
+
+   private List<Long> persistChunks(List<byte[]> buffers, List<Integer> sizes) {
+      List<ChunkEntity> batch = new ArrayList<ChunkEntity>(buffers.size());
+      for (int i = 0; i < buffers.size(); i++) {
+         batch.add(newChunk(buffers.get(i), sizes.get(i)));
+      }
+      return chunkRepository.createBatch(batch);
+   }
+
+   /**
+    * Persists only the chunks whose content is not stored yet, and adds references to the
+    * existing ones. Chunks are identified by the SHA-256 of their content.
+    */
+   private List<Long> persistSharedChunks(List<byte[]> buffers, List<Integer> sizes) {
+      List<String> hashes = new ArrayList<String>(buffers.size());
+      for (int i = 0; i < buffers.size(); i++) {
+         hashes.add(Hashing.sha256().hashBytes(buffers.get(i), 0, sizes.get(i)).toString());
+      }
+      Multiset<String> occurrences = HashMultiset.create(hashes);
+      Map<String, Long> reused = Maps.newHashMap();
+      for (Map.Entry<String, Long> existing : chunkRepository.findChunkIdsByHash(hashes).entrySet()) {
+         // A chunk released concurrently may be gone by now, in which case it is stored again
+         if (chunkRepository.addReferences(existing.getValue(), occurrences.count(existing.getKey())) > 0) {
+            reused.put(existing.getKey(), existing.getValue());
+         }
+      }
+      Map<String, ChunkEntity> created = Maps.newLinkedHashMap();
+      for (int i = 0; i < buffers.size(); i++) {
+         String hash = hashes.get(i);
+         if (!reused.containsKey(hash) && !created.containsKey(hash)) {
+            ChunkEntity chunk = newChunk(buffers.get(i), sizes.get(i));
+            chunk.setHash(hash);
+            chunk.setRefCount(occurrences.count(hash));
+            created.put(hash, chunk);
+         }
+      }
+      chunkRepository.createBatch(ImmutableList.copyOf(created.values()));
+      ImmutableList.Builder<Long> ids = ImmutableList.builder();
+      for (String hash : hashes) {
+         ids.add(reused.containsKey(hash) ? reused.get(hash) : created.get(hash).getId());
+      }
+      return ids.build();
+   }
+
+   private ChunkEntity newChunk(byte[] buffer, int size) {
+      byte[] encoded = chunkCodec.encode(buffer, size);
+      if (encoded != null) {
+         return new ChunkEntity(encoded, size, chunkCodec);
+      }
+      // Stored as is, the buffer is only released after the chunk has been flushed
+      return new ChunkEntity(size == buffer.length ? buffer : Arrays.copyOf(buffer, size), size, ChunkCodec.NONE);
+   }
+
+   /**
+    * @return whether the transaction failed because a concurrent writer modified the blob first,
+    *         rather than for a reason another attempt would run into again
+    */
+   private static boolean isConcurrentModification(PersistenceException e) {
+      for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+         if (cause instanceof OptimisticLockException) {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   static class Commit {
+      private final BlobEntity blobEntity;
+      private final List<Long> displacedChunks;
+      private final List<String> displacedFiles;
+
+      Commit(BlobEntity blobEntity, List<Long> displacedChunks, List<String> displacedFiles) {
+         this.blobEntity = blobEntity;
+         this.displacedChunks = displacedChunks;
+         this.displacedFiles = displacedFiles;
+      }
+   }
+
+   static class StoredData {
+      private final List<Long> chunks;
+      private final String file;
+      private final HashCode etag;
+      private final HashCode md5;
+      private final long length;
+
+      StoredData(List<Long> chunks, String file, HashCode etag, HashCode md5, long length) {
+         this.chunks = chunks;
+         this.file = file;
+         this.etag = etag;
+         this.md5 = md5;
+         this.length = length;
+      }
+   }
+
+   private static void await(ListenableFuture<?> future) throws IOException {
+      try {
+         future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new InterruptedIOException("Interrupted while hashing chunks");
+      } catch (ExecutionException e) {
+         throw new IOException("Could not hash chunks", e.getCause());
       }
-      return chunks.build();
    }
 }
@@ -20,34 +20,55 @@ import java.io.IOException;
 import java.sql.SQLException;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.persistence.PersistenceException;
 
+import org.jclouds.blobstore.ContainerNotFoundException;
+import org.jclouds.blobstore.KeyNotFoundException;
 import org.jclouds.blobstore.LocalStorageStrategy;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
 import org.jclouds.blobstore.domain.BlobBuilder;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.domain.MutableBlobMetadata;
 import org.jclouds.blobstore.domain.MutableStorageMetadata;
+import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.blobstore.domain.internal.MutableStorageMetadataImpl;
+import org.jclouds.blobstore.domain.internal.PageSetImpl;
 import org.jclouds.blobstore.options.CreateContainerOptions;
 import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.blobstore.util.BlobStoreUtils;
 import org.jclouds.domain.Location;
 import org.jclouds.domain.LocationBuilder;
 import org.jclouds.domain.LocationScope;
 import org.jclouds.io.ContentMetadata;
+import org.jclouds.io.Payload;
 import org.jclouds.jdbc.conversion.BlobEntityToBlob;
 import org.jclouds.jdbc.entity.BlobEntity;
 import org.jclouds.jdbc.entity.ContainerEntity;
+import org.jclouds.jdbc.entity.MultipartPartEntity;
+import org.jclouds.jdbc.entity.MultipartUploadEntity;
 import org.jclouds.jdbc.predicates.validators.JdbcBlobKeyValidator;
 import org.jclouds.jdbc.predicates.validators.JdbcContainerNameValidator;
 import org.jclouds.jdbc.service.JdbcService;
 
+import com.google.common.base.Predicates;
+import com.google.common.base.Strings;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 
 /**
  * JdbcStorageStrategy implements a blob store that stores objects
@@ -56,6 +77,8 @@ import com.google.common.collect.ImmutableList;
  */
 public class JdbcStorageStrategy implements LocalStorageStrategy {
 
+   private static final int DEFAULT_MAX_RESULTS = 1000;
+
    private final Provider<BlobBuilder> blobBuilders;
    private final JdbcService jdbcService;
    private final JdbcContainerNameValidator jdbcContainerNameValidator;
@@ -235,12 +258,135 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
     */
    @Override
    public Iterable<String> getBlobKeysInsideContainer(String container) throws IOException {
-      List<BlobEntity> blobEntities = jdbcService.findBlobsByContainer(container);
-      ImmutableList.Builder<String> result = ImmutableList.builder();
-      for (BlobEntity blobEntity : blobEntities) {
-         result.add(blobEntity.getKey());
+      return getBlobKeysInsideContainer(container, null);
+   }
+
+   /**
+    * Lists the blob keys in a container starting with a prefix
+    *
+    * @param container the name of the container
+    * @param prefix the prefix of the keys to list, or null for all of them
+    * @return the blob keys inside the container, in key order
+    */
+   public Iterable<String> getBlobKeysInsideContainer(String container, String prefix) throws IOException {
+      return jdbcService.findBlobKeys(container, prefix, null, null, 0);
+   }
+
+   /**
+    * Lists a page of the blobs in a container. The prefix, the marker and the page size are
+    * applied by the database, and the keys rolled up under a delimiter are skipped in the
+    * query rather than loaded.
+    *
+    * @param container the name of the container
+    * @param options options to filter what blobs are listed
+    * @return the blobs and the common prefixes of the page, in key order
+    */
+   public PageSet<? extends StorageMetadata> list(String container, ListContainerOptions options) {
+      if (options.getDir() != null && options.getPrefix() != null) {
+         throw new IllegalArgumentException("Cannot set both prefix and directory");
       }
-      return result.build();
+      if ((options.getDir() != null || options.isRecursive()) && options.getDelimiter() != null) {
+         throw new IllegalArgumentException("Cannot set the delimiter if directory or recursive is set");
+      }
+      if (!containerExists(container)) {
+         throw new ContainerNotFoundException(container,
+               String.format("container %s not in %s", container, getAllContainerNames()));
+      }
+
+      // An empty directory, prefix, delimiter or marker is the same as none
+      String dir = Strings.emptyToNull(options.getDir());
+      String prefix = Strings.emptyToNull(options.getPrefix());
+      if (dir != null) {
+         prefix = dir.endsWith(getSeparator()) ? dir : dir + getSeparator();
+      }
+      String delimiter = null;
+      if (!options.isRecursive()) {
+         delimiter = Strings.isNullOrEmpty(options.getDelimiter()) ? getSeparator() : options.getDelimiter();
+      }
+      int maxResults = options.getMaxResults() == null ? DEFAULT_MAX_RESULTS : options.getMaxResults();
+
+      String after = Strings.emptyToNull(options.getMarker());
+      String skipPrefix = null;
+      if (after != null && delimiter != null && after.endsWith(delimiter)
+            && (prefix == null || after.startsWith(prefix) && after.length() > prefix.length())
+            && commonPrefix(after.substring(0, after.length() - delimiter.length()), prefix, delimiter) == null) {
+         // The marker is a common prefix returned by the previous page
+         skipPrefix = after;
+      }
+
+      // Blob keys and common prefixes of the page, in key order
+      List<String> names = Lists.newArrayList();
+      Set<String> commonPrefixes = Sets.newHashSet();
+      boolean truncated = false;
+      // Once the page is full, one more key is read to know whether it is the last one
+      while (!truncated) {
+         int batchSize = maxResults - names.size() + 1;
+         List<String> keys = jdbcService.findBlobKeys(container, prefix, after, skipPrefix, batchSize);
+         for (String key : keys) {
+            after = key;
+            if (skipPrefix != null && key.startsWith(skipPrefix)) {
+               continue;
+            }
+            if (dir != null && key.equals(prefix)) {
+               continue;
+            }
+            if (names.size() == maxResults) {
+               truncated = true;
+               break;
+            }
+            String commonPrefix = commonPrefix(key, prefix, delimiter);
+            if (commonPrefix != null) {
+               names.add(commonPrefix);
+               commonPrefixes.add(commonPrefix);
+               skipPrefix = commonPrefix;
+            }
+            else {
+               names.add(key);
+            }
+         }
+         if (keys.size() < batchSize) {
+            break;
+         }
+      }
+
+      Map<String, StorageMetadata> blobs = Maps.newHashMap();
+      for (BlobEntity blobEntity : jdbcService.findBlobsByKeys(container,
+            ImmutableList.copyOf(Iterables.filter(names, Predicates.not(Predicates.in(commonPrefixes)))))) {
+         // Copied the way LocalBlobStore copies the metadata it returns, with lowercase user metadata keys
+         MutableBlobMetadata metadata = BlobStoreUtils.copy(blobEntityToBlob.apply(blobEntity).getMetadata());
+         if (!options.isDetailed()) {
+            metadata.getUserMetadata().clear();
+         }
+         blobs.put(metadata.getName(), metadata);
+      }
+      ImmutableList.Builder<StorageMetadata> contents = ImmutableList.builder();
+      for (String name : names) {
+         if (commonPrefixes.contains(name)) {
+            MutableStorageMetadata metadata = new MutableStorageMetadataImpl();
+            metadata.setType(StorageType.RELATIVE_PATH);
+            metadata.setName(name);
+            contents.add(metadata);
+         }
+         else if (blobs.containsKey(name)) {
+            // Blobs removed since their key was listed are left out
+            contents.add(blobs.get(name));
+         }
+      }
+      return new PageSetImpl<StorageMetadata>(contents.build(),
+            truncated && !names.isEmpty() ? names.get(names.size() - 1) : null);
+   }
+
+   /**
+    * @return the key up to and including the first delimiter after the prefix, or null if the
+    *         key is not rolled up
+    */
+   private static String commonPrefix(String key, String prefix, String delimiter) {
+      if (delimiter == null) {
+         return null;
+      }
+      int start = prefix == null ? 0 : prefix.length();
+      int index = key.indexOf(delimiter, start);
+      return index < 0 ? null : key.substring(0, index + delimiter.length());
    }
 
    /**
@@ -290,7 +436,7 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
     */
    @Override
    public BlobAccess getBlobAccess(String container, String key) {
-      return jdbcService.findBlobById(container, key).getBlobAccess();
+      return jdbcService.findBlobAccess(container, key);
    }
 
    /**
@@ -325,6 +471,85 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
       return "/";
    }
 
+   /**
+    * Starts a multipart upload. Its parts are stored as chunks like any blob, and are only
+    * put together when the upload is completed.
+    *
+    * @param container the name of the container
+    * @param blobMetadata the metadata of the blob to create
+    * @param options the options of the blob to create
+    * @return the upload started
+    */
+   public MultipartUpload initiateMultipartUpload(String container, BlobMetadata blobMetadata, PutOptions options) {
+      jdbcContainerNameValidator.validate(container);
+      jdbcBlobKeyValidator.validate(blobMetadata.getName());
+      if (!containerExists(container)) {
+         throw new ContainerNotFoundException(container,
+               String.format("container %s not in %s", container, getAllContainerNames()));
+      }
+      MultipartUploadEntity upload = jdbcService.initiateMultipartUpload(container, blobMetadata,
+            options.getBlobAccess());
+      return MultipartUpload.create(container, blobMetadata.getName(), upload.getId(), blobMetadata, options);
+   }
+
+   /**
+    * Stores a part of a multipart upload, in its own transaction.
+    *
+    * @return the part stored
+    */
+   public MultipartPart uploadMultipartPart(MultipartUpload mpu, int partNumber, Payload payload) throws IOException {
+      MultipartPartEntity part = jdbcService.createOrModifyPart(mpu.id(), partNumber, payload);
+      return toMultipartPart(part);
+   }
+
+   /**
+    * Completes a multipart upload. The chunks of the parts are appended to the blob without
+    * being copied.
+    *
+    * @return the etag of the blob created
+    */
+   public String completeMultipartUpload(MultipartUpload mpu, List<MultipartPart> parts) {
+      List<Integer> partNumbers = Lists.newArrayListWithCapacity(parts.size());
+      for (MultipartPart part : parts) {
+         partNumbers.add(part.partNumber());
+      }
+      BlobEntity blobEntity = jdbcService.completeMultipartUpload(mpu.id(), partNumbers);
+      if (blobEntity == null) {
+         throw new KeyNotFoundException(mpu.containerName(), mpu.blobName(), "no multipart upload " + mpu.id());
+      }
+      return blobEntity.getEtag();
+   }
+
+   public void abortMultipartUpload(MultipartUpload mpu) {
+      jdbcService.abortMultipartUpload(mpu.id());
+   }
+
+   /**
+    * @return the parts uploaded so far, ordered by part number
+    */
+   public List<MultipartPart> listMultipartUpload(MultipartUpload mpu) {
+      ImmutableList.Builder<MultipartPart> parts = ImmutableList.builder();
+      for (MultipartPartEntity part : jdbcService.findMultipartParts(mpu.id())) {
+         parts.add(toMultipartPart(part));
+      }
+      return parts.build();
+   }
+
+   /**
+    * @return the uploads in progress in a container, without their blob metadata
+    */
+   public List<MultipartUpload> listMultipartUploads(String container) {
+      ImmutableList.Builder<MultipartUpload> uploads = ImmutableList.builder();
+      for (MultipartUploadEntity upload : jdbcService.findMultipartUploads(container)) {
+         uploads.add(MultipartUpload.create(container, upload.getBlobName(), upload.getId(), null, null));
+      }
+      return uploads.build();
+   }
+
+   private static MultipartPart toMultipartPart(MultipartPartEntity part) {
+      return MultipartPart.create(part.getPartNumber(), part.getSize(), part.getEtag(), part.getLastModified());
+   }
+
    /**
     * Count the blobs in a container
     *
@@ -333,8 +558,7 @@ public class JdbcStorageStrategy implements LocalStorageStrategy {
     * @return the number of blobs in the container
     */
    public long countBlobs(String container, ListContainerOptions options) {
-      return options.getDir() == null ? jdbcService.findBlobsByContainer(container).size()
-             : jdbcService.findBlobsByDirectory(container, options.getDir(), options.isRecursive()).size();
+      return jdbcService.countBlobs(container, options.getDir());
    }
 
    /**
@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A small pool of fixed size byte arrays. Buffers are allocated on demand when the
+ * pool is empty, and released buffers beyond its capacity are left to the garbage
+ * collector.
+ */
+public class BufferPool {
+
+   private final int bufferSize;
+   private final BlockingQueue<byte[]> buffers;
+
+   public BufferPool(int bufferSize, int capacity) {
+      checkArgument(bufferSize > 0, "bufferSize must be positive");
+      checkArgument(capacity > 0, "capacity must be positive");
+      this.bufferSize = bufferSize;
+      this.buffers = new ArrayBlockingQueue<byte[]>(capacity);
+   }
+
+   public int getBufferSize() {
+      return bufferSize;
+   }
+
+   public byte[] acquire() {
+      byte[] buffer = buffers.poll();
+      return buffer == null ? new byte[bufferSize] : buffer;
+   }
+
+   public void release(byte[] buffer) {
+      if (buffer.length == bufferSize) {
+         buffers.offer(buffer);
+      }
+   }
+
+}
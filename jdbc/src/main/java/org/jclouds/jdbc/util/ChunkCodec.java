@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Transformations applied to the data of a chunk before it is stored. The codec is
+ * recorded in every chunk, so chunks written with different codecs can be read back
+ * side by side.
+ */
+public enum ChunkCodec {
+
+   NONE {
+      @Override
+      public byte[] encode(byte[] data, int length) {
+         return null;
+      }
+
+      @Override
+      public byte[] decode(byte[] data, int size) {
+         return data;
+      }
+   },
+
+   DEFLATE {
+      @Override
+      public byte[] encode(byte[] data, int length) {
+         Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+         try {
+            deflater.setInput(data, 0, length);
+            deflater.finish();
+            byte[] encoded = new byte[length];
+            int encodedLength = 0;
+            while (!deflater.finished() && encodedLength < encoded.length) {
+               encodedLength += deflater.deflate(encoded, encodedLength, encoded.length - encodedLength);
+            }
+            return deflater.finished() && encodedLength < length ? Arrays.copyOf(encoded, encodedLength) : null;
+         } finally {
+            deflater.end();
+         }
+      }
+
+      @Override
+      public byte[] decode(byte[] data, int size) throws IOException {
+         Inflater inflater = new Inflater();
+         try {
+            inflater.setInput(data);
+            byte[] decoded = new byte[size];
+            int decodedLength = 0;
+            while (!inflater.finished() && decodedLength < size) {
+               int inflated = inflater.inflate(decoded, decodedLength, size - decodedLength);
+               if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                  break;
+               }
+               decodedLength += inflated;
+            }
+            if (decodedLength != size) {
+               throw new IOException("Corrupted chunk, expected " + size + " bytes but got " + decodedLength);
+            }
+            return decoded;
+         } catch (DataFormatException e) {
+            throw new IOException("Corrupted chunk", e);
+         } finally {
+            inflater.end();
+         }
+      }
+   };
+
+   /**
+    * Encodes the first {@code length} bytes of the given data.
+    *
+    * @return the encoded bytes, or null if encoding would not make the chunk smaller
+    */
+   public abstract byte[] encode(byte[] data, int length);
+
+   /**
+    * Decodes data produced by {@link #encode(byte[], int)}.
+    *
+    * @param size the number of bytes of the original data
+    */
+   public abstract byte[] decode(byte[] data, int size) throws IOException;
+
+}
@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import org.jclouds.jdbc.service.JdbcService;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The chunk list of a stored payload, read from the database a window at a time as it is
+ * accessed. Opening a blob therefore never loads its chunk list, and streaming it holds at
+ * most {@code windowSize} chunk ids. The size is queried the first time it is needed.
+ */
+public class ChunkIdList extends AbstractList<Long> implements RandomAccess {
+
+   public static final int DEFAULT_WINDOW_SIZE = 1000;
+
+   private final JdbcService jdbcService;
+   private final Long payloadId;
+   private final int windowSize;
+   private Integer size;
+   private int windowStart;
+   private List<Long> window = ImmutableList.of();
+
+   public ChunkIdList(JdbcService jdbcService, Long payloadId) {
+      this(jdbcService, payloadId, DEFAULT_WINDOW_SIZE);
+   }
+
+   public ChunkIdList(JdbcService jdbcService, Long payloadId, int windowSize) {
+      checkArgument(windowSize > 0, "windowSize must be positive");
+      this.jdbcService = checkNotNull(jdbcService, "jdbcService");
+      this.payloadId = checkNotNull(payloadId, "payloadId");
+      this.windowSize = windowSize;
+   }
+
+   @Override
+   public synchronized Long get(int index) {
+      checkElementIndex(index, size());
+      if (index < windowStart || index >= windowStart + window.size()) {
+         window = jdbcService.findChunkIds(payloadId, index, windowSize);
+         windowStart = index;
+         if (window.isEmpty()) {
+            throw new IndexOutOfBoundsException("Chunk " + index + " of payload " + payloadId + " no longer exists");
+         }
+      }
+      return window.get(index - windowStart);
+   }
+
+   @Override
+   public synchronized int size() {
+      if (size == null) {
+         size = jdbcService.countChunks(payloadId);
+      }
+      return size;
+   }
+
+}
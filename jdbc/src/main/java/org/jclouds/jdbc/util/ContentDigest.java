@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Digests the etag of a blob can be computed with. Only {@link #MD5} gives etags compatible
+ * with S3 clients that compare the etag to the MD5 of what they uploaded; the others are
+ * cheaper to compute.
+ */
+public enum ContentDigest {
+
+   MD5(Hashing.md5()),
+   CRC32C(Hashing.crc32c()),
+   MURMUR3_128(Hashing.murmur3_128());
+
+   private final HashFunction function;
+
+   ContentDigest(HashFunction function) {
+      this.function = function;
+   }
+
+   public HashFunction function() {
+      return function;
+   }
+
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import java.io.IOException;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Hashes the content of a payload for its etag, and for its MD5 when the MD5 supplied with the
+ * payload has to be checked. A trusted MD5 is not recomputed: it is kept as is, and is the
+ * etag when the etag digest is MD5, in which case nothing is hashed at all.
+ */
+public class ContentHasher {
+
+   private final HashCode expectedMD5;
+   private final boolean etagIsMD5;
+   // null when the trusted MD5 is the etag
+   private final Hasher etagHasher;
+   // null when the MD5 is the etag, or is not checked
+   private final Hasher md5Hasher;
+   private HashCode etag;
+   private HashCode md5;
+
+   public ContentHasher(ContentDigest etagDigest, HashCode expectedMD5, boolean trustExpectedMD5) {
+      boolean trusted = expectedMD5 != null && trustExpectedMD5;
+      this.expectedMD5 = expectedMD5;
+      this.etagIsMD5 = etagDigest == ContentDigest.MD5;
+      this.etagHasher = etagIsMD5 && trusted ? null : etagDigest.function().newHasher();
+      this.md5Hasher = !etagIsMD5 && expectedMD5 != null && !trusted ? Hashing.md5().newHasher() : null;
+   }
+
+   /**
+    * @return whether the content has to be read by this hasher at all
+    */
+   public boolean isHashing() {
+      return etagHasher != null || md5Hasher != null;
+   }
+
+   public void putBytes(byte[] bytes, int offset, int length) {
+      if (etagHasher != null) {
+         etagHasher.putBytes(bytes, offset, length);
+      }
+      if (md5Hasher != null) {
+         md5Hasher.putBytes(bytes, offset, length);
+      }
+   }
+
+   /**
+    * Ends hashing, and checks the MD5 of the content against the one supplied unless trusted.
+    *
+    * @throws IOException if the MD5 does not match
+    */
+   public void finish() throws IOException {
+      checkState(etag == null, "already finished");
+      etag = etagHasher == null ? expectedMD5 : etagHasher.hash();
+      md5 = etagIsMD5 ? etag : md5Hasher != null ? md5Hasher.hash() : expectedMD5;
+      if (expectedMD5 != null && !expectedMD5.equals(md5)) {
+         throw new IOException("MD5 hash code mismatch, actual: " + md5 + " expected: " + expectedMD5);
+      }
+   }
+
+   public HashCode getEtag() {
+      return etag;
+   }
+
+   /**
+    * @return the MD5 of the content, or null if it was neither supplied nor computed
+    */
+   public HashCode getMD5() {
+      return md5;
+   }
+
+}
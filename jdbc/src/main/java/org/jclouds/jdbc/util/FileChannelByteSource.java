@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * A {@link ByteSource} over a range of a file. Slices are positioned on the file channel, so
+ * reading a range never reads the bytes before it.
+ */
+public class FileChannelByteSource extends ByteSource {
+
+   private final File file;
+   private final long offset;
+   private final long length;
+
+   public FileChannelByteSource(File file, long length) {
+      this(file, 0, length);
+   }
+
+   private FileChannelByteSource(File file, long offset, long length) {
+      this.file = file;
+      this.offset = offset;
+      this.length = length;
+   }
+
+   @Override
+   public InputStream openStream() throws IOException {
+      FileChannel channel = new FileInputStream(file).getChannel();
+      try {
+         channel.position(offset);
+      } catch (IOException e) {
+         channel.close();
+         throw e;
+      }
+      return ByteStreams.limit(Channels.newInputStream(channel), length);
+   }
+
+   @Override
+   public long size() {
+      return length;
+   }
+
+   @Override
+   public ByteSource slice(long offset, long length) {
+      checkArgument(offset >= 0, "offset (%s) may not be negative", offset);
+      checkArgument(length >= 0, "length (%s) may not be negative", length);
+      long sliceOffset = Math.min(offset, this.length);
+      long sliceLength = Math.min(length, this.length - sliceOffset);
+      return new FileChannelByteSource(file, this.offset + sliceOffset, sliceLength);
+   }
+
+}
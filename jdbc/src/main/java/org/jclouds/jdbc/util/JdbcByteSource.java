@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import org.jclouds.jdbc.service.JdbcService;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A {@link ByteSource} over the chunks of a stored blob. Every chunk but the last one
+ * holds exactly {@code chunkSize} bytes, so slices only load the chunks covering the
+ * requested range instead of reading and discarding the leading bytes. The chunk list is
+ * not copied, it may be a {@link ChunkIdList} that is only read as far as it is streamed.
+ * A {@code chunkSize} of 0 stands for chunks of varying sizes, which are streamed from the
+ * first one.
+ */
+public class JdbcByteSource extends ByteSource {
+
+   private final JdbcService jdbcService;
+   private final List<Long> chunks;
+   private final int chunkSize;
+   private final long offset;
+   private final long length;
+   private final ListeningExecutorService executor;
+   private final int readAhead;
+
+   public JdbcByteSource(JdbcService jdbcService, List<Long> chunks, int chunkSize, long size,
+         ListeningExecutorService executor, int readAhead) {
+      this(jdbcService, checkNotNull(chunks, "chunks"), chunkSize, 0, size, executor, readAhead);
+   }
+
+   private JdbcByteSource(JdbcService jdbcService, List<Long> chunks, int chunkSize, long offset, long length,
+         ListeningExecutorService executor, int readAhead) {
+      checkArgument(chunkSize >= 0, "chunkSize must not be negative");
+      this.jdbcService = checkNotNull(jdbcService, "jdbcService");
+      this.chunks = chunks;
+      this.chunkSize = chunkSize;
+      this.offset = offset;
+      this.length = length;
+      this.executor = checkNotNull(executor, "executor");
+      this.readAhead = readAhead;
+   }
+
+   @Override
+   public InputStream openStream() throws IOException {
+      if (chunkSize == 0) {
+         return length == 0 || chunks.isEmpty() ? new ByteArrayInputStream(new byte[0]) : openStream(chunks, offset);
+      }
+      int firstChunk = (int) (offset / chunkSize);
+      if (length == 0 || firstChunk >= chunks.size()) {
+         return new ByteArrayInputStream(new byte[0]);
+      }
+      int lastChunk = (int) Math.min((offset + length - 1) / chunkSize, chunks.size() - 1);
+      return openStream(chunks.subList(firstChunk, lastChunk + 1), offset % chunkSize);
+   }
+
+   private InputStream openStream(List<Long> chunks, long skip) throws IOException {
+      InputStream in;
+      try {
+         in = new JdbcInputStream(jdbcService, chunks, executor, readAhead);
+      } catch (IllegalArgumentException e) {
+         throw new IOException("Could not open blob", e);
+      }
+      ByteStreams.skipFully(in, skip);
+      return ByteStreams.limit(in, length);
+   }
+
+   @Override
+   public long size() {
+      return length;
+   }
+
+   @Override
+   public ByteSource slice(long offset, long length) {
+      checkArgument(offset >= 0, "offset (%s) may not be negative", offset);
+      checkArgument(length >= 0, "length (%s) may not be negative", length);
+      long sliceOffset = Math.min(offset, this.length);
+      long sliceLength = Math.min(length, this.length - sliceOffset);
+      return new JdbcByteSource(jdbcService, chunks, chunkSize, this.offset + sliceOffset, sliceLength, executor,
+            readAhead);
+   }
+
+}
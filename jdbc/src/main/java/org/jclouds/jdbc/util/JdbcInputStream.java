@@ -19,26 +19,52 @@ package org.jclouds.jdbc.util;
 import org.jclouds.jdbc.entity.ChunkEntity;
 import org.jclouds.jdbc.service.JdbcService;
 
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
-import java.util.LinkedHashSet;
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkPositionIndexes;
 
+/**
+ * Streams the content of a blob chunk by chunk, decoding every chunk with the codec it
+ * was stored with. While the current chunk is being consumed, up to {@code readAhead}
+ * of the following chunks are loaded in the background on the given executor.
+ */
 public class JdbcInputStream extends InputStream {
 
-   private JdbcService jdbcService;
+   private final JdbcService jdbcService;
+   private final ListeningExecutorService executor;
+   private final int readAhead;
 
-   private final List<Long> chunks;
-   private ChunkEntity currentChunk;
+   private final Iterator<Long> chunks;
+   private final Deque<ListenableFuture<ChunkEntity>> pendingChunks = new ArrayDeque<ListenableFuture<ChunkEntity>>();
+   private byte[] currentData;
+   private int currentSize;
    private int bytesRead;
 
    public JdbcInputStream(JdbcService jdbcService, List<Long> chunks) {
+      this(jdbcService, chunks, MoreExecutors.sameThreadExecutor(), 0);
+   }
+
+   public JdbcInputStream(JdbcService jdbcService, List<Long> chunks, ListeningExecutorService executor,
+         int readAhead) {
+      checkArgument(readAhead >= 0, "readAhead must be non-negative");
       this.jdbcService = checkNotNull(jdbcService, "jdbcService");
-      // Need to remove duplicates due to https://hibernate.atlassian.net/browse/HHH-6783
-      this.chunks = new ArrayList<Long>(new LinkedHashSet<Long>(checkNotNull(chunks, "chunks")));
+      this.executor = checkNotNull(executor, "executor");
+      this.readAhead = readAhead;
+      this.chunks = checkNotNull(chunks, "chunks").iterator();
       try {
          readNextChunk();
       } catch (IOException e) {
@@ -47,30 +73,108 @@ public class JdbcInputStream extends InputStream {
    }
 
    @Override
-   public synchronized int read() throws IOException {
-      if (hasFinished()) {
+   public int read() throws IOException {
+      if (!ensureData()) {
          return -1;
       }
-      int b = currentChunk.getData()[bytesRead] & 0xff;
-      bytesRead = bytesRead + 1;
-      if (bytesRead >= currentChunk.getSize()) {
-         readNextChunk();
+      return currentData[bytesRead++] & 0xff;
+   }
+
+   @Override
+   public int read(byte[] b, int off, int len) throws IOException {
+      checkPositionIndexes(off, off + len, b.length);
+      if (len == 0) {
+         return 0;
+      }
+      int total = 0;
+      while (total < len && ensureData()) {
+         int count = Math.min(currentSize - bytesRead, len - total);
+         System.arraycopy(currentData, bytesRead, b, off + total, count);
+         bytesRead += count;
+         total += count;
+      }
+      return total == 0 ? -1 : total;
+   }
+
+   @Override
+   public long skip(long n) throws IOException {
+      long skipped = 0;
+      while (skipped < n && ensureData()) {
+         int count = (int) Math.min(currentSize - bytesRead, n - skipped);
+         bytesRead += count;
+         skipped += count;
+      }
+      return skipped;
+   }
+
+   @Override
+   public int available() {
+      return currentData == null ? 0 : currentSize - bytesRead;
+   }
+
+   @Override
+   public void close() {
+      for (ListenableFuture<ChunkEntity> pending : pendingChunks) {
+         pending.cancel(true);
       }
-      return b;
+      pendingChunks.clear();
+      currentData = null;
    }
 
-   private boolean hasFinished() {
-      return currentChunk == null || (chunks.size() == 0 && bytesRead >= currentChunk.getSize());
+   /**
+    * Makes sure the current chunk has unread bytes, moving on to the next chunks if needed.
+    *
+    * @return false if the end of the stream has been reached
+    */
+   private boolean ensureData() throws IOException {
+      while (currentData != null && bytesRead >= currentSize) {
+         readNextChunk();
+      }
+      return currentData != null;
    }
 
    private void readNextChunk() throws IOException {
-      if (chunks.size() > 0) {
-         this.currentChunk = jdbcService.findChunkById(chunks.get(0));
-         if (currentChunk == null) {
-            throw new IOException("Could not find chunk.");
-         }
-         chunks.remove(0);
-         this.bytesRead = 0;
+      currentData = null;
+      bytesRead = 0;
+      ChunkEntity chunk;
+      if (!pendingChunks.isEmpty()) {
+         chunk = getChunk(pendingChunks.poll());
+      } else if (chunks.hasNext()) {
+         chunk = jdbcService.findChunkById(chunks.next());
+      } else {
+         return;
+      }
+      if (chunk == null) {
+         close();
+         throw new IOException("Could not find chunk.");
+      }
+      scheduleReadAhead();
+      currentData = chunk.getCodec().decode(chunk.getData(), chunk.getSize());
+      currentSize = chunk.getSize();
+   }
+
+   private void scheduleReadAhead() {
+      while (pendingChunks.size() < readAhead && chunks.hasNext()) {
+         final Long id = chunks.next();
+         pendingChunks.add(executor.submit(new Callable<ChunkEntity>() {
+            @Override
+            public ChunkEntity call() {
+               return jdbcService.findChunkById(id);
+            }
+         }));
+      }
+   }
+
+   private ChunkEntity getChunk(ListenableFuture<ChunkEntity> future) throws IOException {
+      try {
+         return future.get();
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         close();
+         throw new InterruptedIOException("Interrupted while loading chunk");
+      } catch (ExecutionException e) {
+         close();
+         throw new IOException("Could not load chunk", e.getCause());
       }
    }
 
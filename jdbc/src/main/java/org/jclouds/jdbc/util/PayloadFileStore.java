@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.util;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import org.jclouds.jdbc.reference.JdbcConstants;
+
+import javax.inject.Named;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stores large payloads as files outside of the database, named after the SHA-256 of their
+ * content so that identical payloads are stored once. The database only keeps the name. Files
+ * are written to a temporary file first and renamed once complete, so a file under its final
+ * name is always whole.
+ */
+@Singleton
+public class PayloadFileStore {
+
+   // A file is only deleted once it has not been written or reused for this long, so that a
+   // writer reusing it has committed its reference in the meantime
+   private static final long GRACE_MILLIS = TimeUnit.MINUTES.toMillis(1);
+   private static final int BUFFER_SIZE = 64 * 1024;
+
+   private final File directory;
+   private final long threshold;
+
+   @Inject
+   PayloadFileStore(@Named(JdbcConstants.PROPERTY_JDBC_FILE_STORE_DIRECTORY) String directory,
+         @Named(JdbcConstants.PROPERTY_JDBC_FILE_STORE_THRESHOLD) long threshold) {
+      this.directory = Strings.isNullOrEmpty(directory) ? null : new File(directory);
+      this.threshold = threshold;
+   }
+
+   /**
+    * @return whether a payload of this length is stored as a file
+    */
+   public boolean accepts(Long contentLength) {
+      return directory != null && contentLength != null && contentLength >= threshold;
+   }
+
+   /**
+    * Stores the data, unless a file with the same content is stored already.
+    *
+    * @param hasher a hasher the data is added to as it is read
+    * @return the name of the file
+    */
+   public String store(InputStream data, ContentHasher hasher) throws IOException {
+      if (!directory.isDirectory() && !directory.mkdirs()) {
+         throw new IOException("Could not create " + directory);
+      }
+      File temp = File.createTempFile("payload", ".tmp", directory);
+      try {
+         Hasher sha256 = Hashing.sha256().newHasher();
+         FileOutputStream out = new FileOutputStream(temp);
+         try {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = data.read(buffer)) != -1) {
+               hasher.putBytes(buffer, 0, read);
+               sha256.putBytes(buffer, 0, read);
+               out.write(buffer, 0, read);
+            }
+            out.getFD().sync();
+         } finally {
+            out.close();
+         }
+         String name = sha256.hash().toString();
+         File file = file(name);
+         File parent = file.getParentFile();
+         if (!parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+         }
+         if (file.exists()) {
+            // Same content already stored, keep it from being deleted until the reference is committed
+            file.setLastModified(System.currentTimeMillis());
+         } else if (!temp.renameTo(file) && !file.exists()) {
+            throw new IOException("Could not rename " + temp + " to " + file);
+         }
+         return name;
+      } finally {
+         if (temp.exists() && !temp.delete()) {
+            temp.deleteOnExit();
+         }
+      }
+   }
+
+   public ByteSource open(String name, long length) {
+      return new FileChannelByteSource(file(name), length);
+   }
+
+   /**
+    * Deletes a file that no payload references any more, unless it has been written or reused
+    * recently.
+    *
+    * @return whether the file was deleted
+    */
+   public boolean delete(String name) {
+      File file = file(name);
+      return file.exists() && System.currentTimeMillis() - file.lastModified() > GRACE_MILLIS && file.delete();
+   }
+
+   /**
+    * @return the names of the files stored, empty when payloads are not stored as files
+    */
+   public List<String> list() {
+      ImmutableList.Builder<String> names = ImmutableList.builder();
+      if (directory != null) {
+         for (File first : listDirectories(directory)) {
+            for (File second : listDirectories(first)) {
+               File[] files = second.listFiles();
+               if (files != null) {
+                  for (File file : files) {
+                     names.add(file.getName());
+                  }
+               }
+            }
+         }
+      }
+      return names.build();
+   }
+
+   /**
+    * Deletes the temporary files left by writes that did not complete, as after a crash.
+    *
+    * @param olderThanMillis how long a temporary file has not been written to before it is deleted
+    * @return the number of files deleted
+    */
+   public int deleteTempFiles(long olderThanMillis) {
+      File[] temps = directory == null ? null : directory.listFiles(new FileFilter() {
+         @Override
+         public boolean accept(File file) {
+            return file.isFile() && file.getName().endsWith(".tmp");
+         }
+      });
+      int deleted = 0;
+      if (temps != null) {
+         for (File temp : temps) {
+            if (System.currentTimeMillis() - temp.lastModified() > olderThanMillis && temp.delete()) {
+               deleted++;
+            }
+         }
+      }
+      return deleted;
+   }
+
+   private static File[] listDirectories(File parent) {
+      File[] directories = parent.listFiles(new FileFilter() {
+         @Override
+         public boolean accept(File file) {
+            return file.isDirectory();
+         }
+      });
+      return directories == null ? new File[0] : directories;
+   }
+
+   private File file(String name) {
+      return new File(new File(new File(directory, name.substring(0, 2)), name.substring(2, 4)), name);
+   }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc;
+
+import org.jclouds.jdbc.util.ChunkCodec;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jclouds.utils.TestUtils.randomByteSource;
+
+@Test(groups = "unit", testName = "ChunkCodecTest")
+public class ChunkCodecTest {
+
+   @Test
+   public void testDeflateRoundTrip() throws IOException {
+      byte[] data = new byte[64 * 1024];
+      Arrays.fill(data, (byte) 'a');
+      byte[] encoded = ChunkCodec.DEFLATE.encode(data, 32 * 1024);
+      assertThat(encoded.length).isLessThan(32 * 1024);
+      assertThat(ChunkCodec.DEFLATE.decode(encoded, 32 * 1024)).isEqualTo(Arrays.copyOf(data, 32 * 1024));
+   }
+
+   @Test
+   public void testDeflateSkipsIncompressibleData() throws IOException {
+      byte[] data = randomByteSource().slice(0, 64 * 1024).read();
+      assertThat(ChunkCodec.DEFLATE.encode(data, data.length)).isNull();
+   }
+
+   @Test
+   public void testNoneIsIdentity() throws IOException {
+      byte[] data = new byte[] { 1, 2, 3 };
+      assertThat(ChunkCodec.NONE.encode(data, data.length)).isNull();
+      assertThat(ChunkCodec.NONE.decode(data, data.length)).isSameAs(data);
+   }
+
+   @Test(expectedExceptions = IOException.class)
+   public void testDeflateCorruptedChunk() throws IOException {
+      ChunkCodec.DEFLATE.decode(new byte[] { 1, 2, 3, 4 }, 16);
+   }
+
+}
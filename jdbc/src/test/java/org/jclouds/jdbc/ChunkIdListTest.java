@@ -0,0 +1,87 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc;
+
+import com.google.common.collect.ImmutableList;
+import org.jclouds.jdbc.service.JdbcService;
+import org.jclouds.jdbc.util.ChunkIdList;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+@Test(groups = "unit", testName = "ChunkIdListTest")
+public class ChunkIdListTest {
+
+   private static final Long PAYLOAD_ID = 42L;
+
+   // Strict mock: loading a window that was not expected fails the test
+   private JdbcService mockJdbcService;
+
+   @BeforeMethod
+   public void setUp() {
+      mockJdbcService = createMock(JdbcService.class);
+   }
+
+   @Test
+   public void testIterationLoadsWindows() {
+      expect(mockJdbcService.countChunks(PAYLOAD_ID)).andReturn(5);
+      expect(mockJdbcService.findChunkIds(PAYLOAD_ID, 0, 2)).andReturn(ImmutableList.of(10L, 11L));
+      expect(mockJdbcService.findChunkIds(PAYLOAD_ID, 2, 2)).andReturn(ImmutableList.of(12L, 13L));
+      expect(mockJdbcService.findChunkIds(PAYLOAD_ID, 4, 2)).andReturn(ImmutableList.of(14L));
+      replay(mockJdbcService);
+
+      // Copied first, the assertion iterates more than once
+      assertThat(ImmutableList.copyOf(new ChunkIdList(mockJdbcService, PAYLOAD_ID, 2)))
+            .containsExactly(10L, 11L, 12L, 13L, 14L);
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testSubListLoadsOnlyItsWindows() {
+      expect(mockJdbcService.countChunks(PAYLOAD_ID)).andReturn(1000);
+      expect(mockJdbcService.findChunkIds(PAYLOAD_ID, 500, 2)).andReturn(ImmutableList.of(510L, 511L));
+      replay(mockJdbcService);
+
+      List<Long> chunks = new ChunkIdList(mockJdbcService, PAYLOAD_ID, 2);
+      assertThat(chunks.subList(500, 502)).containsExactly(510L, 511L);
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testNothingLoadedUntilAccessed() {
+      replay(mockJdbcService);
+      new ChunkIdList(mockJdbcService, PAYLOAD_ID);
+      verify(mockJdbcService);
+   }
+
+   @Test(expectedExceptions = IndexOutOfBoundsException.class)
+   public void testRemovedChunks() {
+      expect(mockJdbcService.countChunks(PAYLOAD_ID)).andReturn(3);
+      expect(mockJdbcService.findChunkIds(PAYLOAD_ID, 0, 2)).andReturn(ImmutableList.<Long> of());
+      replay(mockJdbcService);
+
+      new ChunkIdList(mockJdbcService, PAYLOAD_ID, 2).get(0);
+   }
+
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteSource;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.service.JdbcService;
+import org.jclouds.jdbc.util.JdbcByteSource;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+
+@Test(groups = "unit", testName = "JdbcByteSourceTest")
+public class JdbcByteSourceTest {
+
+   private static final int CHUNK_SIZE = 4;
+
+   // Strict mock: loading a chunk that was not expected fails the test
+   private JdbcService mockJdbcService;
+
+   @BeforeMethod
+   public void setUp() {
+      mockJdbcService = createMock(JdbcService.class);
+   }
+
+   @Test
+   public void testFullRead() throws IOException {
+      expectChunks(1L, 2L, 3L);
+      assertThat(newByteSource().read()).isEqualTo(new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testSliceLoadsOnlyCoveringChunks() throws IOException {
+      expectChunks(2L);
+      assertThat(newByteSource().slice(5, 2).read()).isEqualTo(new byte[] { 5, 6 });
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testSliceAcrossChunkBoundary() throws IOException {
+      expectChunks(2L, 3L);
+      assertThat(newByteSource().slice(6, 3).read()).isEqualTo(new byte[] { 6, 7, 8 });
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testTail() throws IOException {
+      expectChunks(3L);
+      ByteSource tail = newByteSource().slice(8, Long.MAX_VALUE);
+      assertThat(tail.size()).isEqualTo(2);
+      assertThat(tail.read()).isEqualTo(new byte[] { 8, 9 });
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testNestedSlice() throws IOException {
+      expectChunks(2L);
+      assertThat(newByteSource().slice(2, 6).slice(3, 2).read()).isEqualTo(new byte[] { 5, 6 });
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testSliceBeyondEnd() throws IOException {
+      replay(mockJdbcService);
+      ByteSource slice = newByteSource().slice(20, 5);
+      assertThat(slice.size()).isEqualTo(0);
+      assertThat(slice.read()).isEmpty();
+      verify(mockJdbcService);
+   }
+
+   @Test
+   public void testSliceOfIrregularChunks() throws IOException {
+      // Chunks of 3, 5 and 2 bytes, as after a multipart upload whose parts were not aligned
+      expect(mockJdbcService.findChunkById(1L)).andReturn(new ChunkEntity(new byte[] { 0, 1, 2 }, 3));
+      expect(mockJdbcService.findChunkById(2L)).andReturn(new ChunkEntity(new byte[] { 3, 4, 5, 6, 7 }, 5));
+      replay(mockJdbcService);
+      JdbcByteSource byteSource = new JdbcByteSource(mockJdbcService, ImmutableList.of(1L, 2L, 3L), 0, 10,
+            MoreExecutors.sameThreadExecutor(), 0);
+      assertThat(byteSource.slice(5, 2).read()).isEqualTo(new byte[] { 5, 6 });
+      verify(mockJdbcService);
+   }
+
+   private void expectChunks(Long... ids) {
+      for (Long id : ids) {
+         int start = (int) (id - 1) * CHUNK_SIZE;
+         int size = Math.min(CHUNK_SIZE, 10 - start);
+         byte[] data = new byte[size];
+         for (int i = 0; i < size; i++) {
+            data[i] = (byte) (start + i);
+         }
+         expect(mockJdbcService.findChunkById(id)).andReturn(new ChunkEntity(data, size));
+      }
+      replay(mockJdbcService);
+   }
+
+   private JdbcByteSource newByteSource() {
+      return new JdbcByteSource(mockJdbcService, ImmutableList.of(1L, 2L, 3L), CHUNK_SIZE, 10,
+            MoreExecutors.sameThreadExecutor(), 0);
+   }
+
+}
@@ -17,6 +17,9 @@
 package org.jclouds.jdbc;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.jclouds.jdbc.entity.ChunkEntity;
 import org.jclouds.jdbc.service.JdbcService;
 import org.jclouds.jdbc.util.JdbcInputStream;
 import org.testng.annotations.BeforeMethod;
@@ -27,6 +30,7 @@ import java.io.IOException;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.easymock.EasyMock.createNiceMock;
 import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
 
 @Test(groups = "unit", testName = "JdbcInputStreamTest")
 public class JdbcInputStreamTest {
@@ -56,4 +60,58 @@ public class JdbcInputStreamTest {
       assertThat(jdbcInputStream.read()).isEqualTo(-1);
    }
 
+   @Test
+   public void testBulkReadAcrossChunks() throws IOException {
+      JdbcInputStream jdbcInputStream = newReadAheadStream();
+      assertThat(ByteStreams.toByteArray(jdbcInputStream)).isEqualTo(new byte[] { 0, 1, 2, 3, 4, 5, 6, 7, 8, 9 });
+      assertThat(jdbcInputStream.read()).isEqualTo(-1);
+   }
+
+   @Test
+   public void testPartialBulkRead() throws IOException {
+      JdbcInputStream jdbcInputStream = newReadAheadStream();
+      byte[] buffer = new byte[8];
+      assertThat(jdbcInputStream.read(buffer, 2, 6)).isEqualTo(6);
+      assertThat(buffer).isEqualTo(new byte[] { 0, 0, 0, 1, 2, 3, 4, 5 });
+      assertThat(jdbcInputStream.read()).isEqualTo(6);
+   }
+
+   @Test
+   public void testSkip() throws IOException {
+      JdbcInputStream jdbcInputStream = newReadAheadStream();
+      assertThat(jdbcInputStream.skip(5)).isEqualTo(5);
+      assertThat(jdbcInputStream.read()).isEqualTo(5);
+      assertThat(jdbcInputStream.skip(100)).isEqualTo(4);
+      assertThat(jdbcInputStream.read()).isEqualTo(-1);
+   }
+
+   @Test
+   public void testAvailable() throws IOException {
+      JdbcInputStream jdbcInputStream = newReadAheadStream();
+      assertThat(jdbcInputStream.available()).isEqualTo(4);
+      assertThat(jdbcInputStream.skip(3)).isEqualTo(3);
+      assertThat(jdbcInputStream.available()).isEqualTo(1);
+      jdbcInputStream.close();
+      assertThat(jdbcInputStream.available()).isEqualTo(0);
+      assertThat(jdbcInputStream.read()).isEqualTo(-1);
+   }
+
+   @Test(expectedExceptions = IOException.class)
+   public void testMissingReadAheadChunk() throws IOException {
+      expect(mockJdbcService.findChunkById(1L)).andReturn(new ChunkEntity(new byte[] { 0 }, 1)).anyTimes();
+      expect(mockJdbcService.findChunkById(2L)).andReturn(null).anyTimes();
+      replay(mockJdbcService);
+      JdbcInputStream jdbcInputStream = new JdbcInputStream(mockJdbcService, ImmutableList.of(1L, 2L),
+            MoreExecutors.sameThreadExecutor(), 1);
+      ByteStreams.toByteArray(jdbcInputStream);
+   }
+
+   private JdbcInputStream newReadAheadStream() {
+      expect(mockJdbcService.findChunkById(1L)).andReturn(new ChunkEntity(new byte[] { 0, 1, 2, 3 }, 4)).anyTimes();
+      expect(mockJdbcService.findChunkById(2L)).andReturn(new ChunkEntity(new byte[] { 4, 5, 6, 7 }, 4)).anyTimes();
+      expect(mockJdbcService.findChunkById(3L)).andReturn(new ChunkEntity(new byte[] { 8, 9 }, 2)).anyTimes();
+      replay(mockJdbcService);
+      return new JdbcInputStream(mockJdbcService, ImmutableList.of(1L, 2L, 3L), MoreExecutors.sameThreadExecutor(), 2);
+   }
+
 }
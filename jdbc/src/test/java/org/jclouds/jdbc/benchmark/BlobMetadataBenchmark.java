@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmark;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.persist.PersistService;
+import com.google.inject.persist.jpa.JpaPersistModule;
+import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
+import org.jclouds.jdbc.entity.BlobEntity;
+import org.jclouds.jdbc.module.TestContextModule;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.service.JdbcService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.utils.TestUtils.randomByteSource;
+
+/**
+ * Measures the latency of the blob operations that do not read the content, with the
+ * container id cache disabled and enabled.
+ *
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *    -Dexec.args="-cp %classpath org.jclouds.jdbc.benchmark.BlobMetadataBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class BlobMetadataBenchmark {
+
+   private static final String CONTAINER_NAME = "jclouds-benchmark-container";
+   private static final String BLOB_NAME = "jclouds-benchmark-blob";
+
+   @Param({ "jclouds-test-h2", "jclouds-test-hsqldb" })
+   public String persistenceUnit;
+
+   @Param({ "0", "1000" })
+   public long containerCacheSize;
+
+   private Injector injector;
+   private JdbcService jdbcService;
+
+   @Setup(Level.Trial)
+   public void setUp() throws IOException {
+      Properties overrides = new Properties();
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_CONTAINER_CACHE_SIZE, String.valueOf(containerCacheSize));
+      injector = Guice.createInjector(new TestContextModule(overrides), new JpaPersistModule(persistenceUnit));
+      jdbcService = injector.getInstance(JdbcService.class);
+      jdbcService.createContainer(CONTAINER_NAME);
+      jdbcService.createOrModifyBlob(CONTAINER_NAME,
+            new BlobBuilderImpl().name(BLOB_NAME).payload(randomByteSource().slice(0, 16 * 1024 * 1024)).build());
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      injector.getInstance(PersistService.class).stop();
+   }
+
+   @Benchmark
+   public boolean blobExists() {
+      return jdbcService.blobExists(CONTAINER_NAME, BLOB_NAME);
+   }
+
+   @Benchmark
+   public BlobEntity findBlob() {
+      return jdbcService.findBlobById(CONTAINER_NAME, BLOB_NAME);
+   }
+
+   @Benchmark
+   public void setBlobAccess() {
+      jdbcService.setBlobAccessById(CONTAINER_NAME, BLOB_NAME, BlobAccess.PRIVATE);
+   }
+
+   public static void main(String[] args) throws RunnerException {
+      new Runner(new OptionsBuilder().include(BlobMetadataBenchmark.class.getSimpleName()).build()).run();
+   }
+
+}
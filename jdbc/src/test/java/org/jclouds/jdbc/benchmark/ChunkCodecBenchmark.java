@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmark;
+
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.util.ChunkCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the encoding and decoding cost of every {@link ChunkCodec} on one chunk of
+ * JSON log lines and one chunk of random bytes. The compression ratio of each
+ * combination is printed during the setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class ChunkCodecBenchmark {
+
+   private static final String[] LEVELS = { "INFO", "WARN", "DEBUG", "ERROR" };
+   private static final String[] SERVICES = { "auth", "billing", "storage", "frontend" };
+
+   @Param({ "NONE", "DEFLATE" })
+   public ChunkCodec codec;
+
+   @Param({ "json", "random" })
+   public String content;
+
+   private byte[] data;
+   private byte[] stored;
+   private ChunkCodec storedCodec;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      Random random = new Random(0);
+      data = new byte[JdbcConstants.DEFAULT_CHUNK_SIZE];
+      if ("json".equals(content)) {
+         StringBuilder lines = new StringBuilder();
+         long timestamp = 1500000000000L;
+         while (lines.length() < data.length) {
+            timestamp += random.nextInt(1000);
+            lines.append("{\"timestamp\":").append(timestamp)
+                  .append(",\"level\":\"").append(LEVELS[random.nextInt(LEVELS.length)])
+                  .append("\",\"service\":\"").append(SERVICES[random.nextInt(SERVICES.length)])
+                  .append("\",\"requestId\":\"").append(Long.toHexString(random.nextLong()))
+                  .append("\",\"latencyMs\":").append(random.nextInt(500))
+                  .append(",\"message\":\"request completed for user ").append(random.nextInt(10000))
+                  .append("\"}\n");
+         }
+         byte[] json = lines.toString().getBytes(Charset.forName("UTF-8"));
+         System.arraycopy(json, 0, data, 0, data.length);
+      } else {
+         random.nextBytes(data);
+      }
+      byte[] encoded = codec.encode(data, data.length);
+      stored = encoded == null ? data : encoded;
+      storedCodec = encoded == null ? ChunkCodec.NONE : codec;
+      System.out.printf("%n%s on %s: ratio %.2f%n", codec, content, (double) data.length / stored.length);
+   }
+
+   @Benchmark
+   public byte[] encode() {
+      return codec.encode(data, data.length);
+   }
+
+   @Benchmark
+   public byte[] decode() throws IOException {
+      return storedCodec.decode(stored, data.length);
+   }
+
+   public static void main(String[] args) throws RunnerException {
+      new Runner(new OptionsBuilder().include(ChunkCodecBenchmark.class.getSimpleName()).build()).run();
+   }
+
+}
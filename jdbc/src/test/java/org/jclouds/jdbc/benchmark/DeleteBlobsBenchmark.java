@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSource;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.persist.PersistService;
+import com.google.inject.persist.jpa.JpaPersistModule;
+import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
+import org.jclouds.jdbc.module.TestContextModule;
+import org.jclouds.jdbc.service.JdbcService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.utils.TestUtils.randomByteSource;
+
+/**
+ * Compares clearing a container blob by blob, as it used to be done, with the bulk
+ * deletes, for an increasing number of blobs. Every measurement clears a freshly
+ * populated container.
+ *
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *    -Dexec.args="-cp %classpath org.jclouds.jdbc.benchmark.DeleteBlobsBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class DeleteBlobsBenchmark {
+
+   private static final String CONTAINER_NAME = "jclouds-benchmark-container";
+   private static final String BLOB_NAME = "jclouds-benchmark-blob";
+
+   @Param({ "jclouds-test-h2", "jclouds-test-hsqldb" })
+   public String persistenceUnit;
+
+   @Param({ "100", "1000", "5000" })
+   public int blobCount;
+
+   private Injector injector;
+   private JdbcService jdbcService;
+
+   @Setup(Level.Trial)
+   public void setUp() {
+      injector = Guice.createInjector(new TestContextModule(), new JpaPersistModule(persistenceUnit));
+      jdbcService = injector.getInstance(JdbcService.class);
+      jdbcService.createContainer(CONTAINER_NAME);
+   }
+
+   @Setup(Level.Invocation)
+   public void populate() throws IOException {
+      ByteSource content = randomByteSource().slice(0, 1024);
+      for (int i = 0; i < blobCount; i++) {
+         jdbcService.createOrModifyBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME + i).payload(content)
+               .userMetadata(ImmutableMap.of("index", String.valueOf(i))).build());
+      }
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      injector.getInstance(PersistService.class).stop();
+   }
+
+   @Benchmark
+   public void deleteBlobByBlob() {
+      for (int i = 0; i < blobCount; i++) {
+         jdbcService.deleteBlob(CONTAINER_NAME, BLOB_NAME + i);
+      }
+   }
+
+   @Benchmark
+   public void deleteBlobsByContainer() {
+      jdbcService.deleteBlobsByContainer(CONTAINER_NAME);
+   }
+
+   public static void main(String[] args) throws RunnerException {
+      new Runner(new OptionsBuilder().include(DeleteBlobsBenchmark.class.getSimpleName()).build()).run();
+   }
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmark;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.name.Names;
+import com.google.inject.persist.PersistService;
+import com.google.inject.persist.jpa.JpaPersistModule;
+import org.jclouds.Constants;
+import org.jclouds.blobstore.domain.Blob;
+import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
+import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.module.TestContextModule;
+import org.jclouds.jdbc.service.JdbcService;
+import org.jclouds.jdbc.util.ChunkIdList;
+import org.jclouds.jdbc.util.JdbcInputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.utils.TestUtils.randomByteSource;
+
+/**
+ * Compares reading a stored blob byte by byte through the original single chunk
+ * stream with bulk reads through {@link JdbcInputStream} and its read-ahead.
+ *
+ * Run with:
+ * <pre>
+ * mvn test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *    -Dexec.args="-cp %classpath org.jclouds.jdbc.benchmark.JdbcInputStreamBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class JdbcInputStreamBenchmark {
+
+   private static final String CONTAINER_NAME = "jclouds-benchmark-container";
+   private static final String BLOB_NAME = "jclouds-benchmark-blob";
+
+   @Param({ "jclouds-test-h2", "jclouds-test-hsqldb" })
+   public String persistenceUnit;
+
+   @Param({ "16777216" })
+   public int blobSize;
+
+   @Param({ "0", "2", "4" })
+   public int readAhead;
+
+   private Injector injector;
+   private JdbcService jdbcService;
+   private ListeningExecutorService executor;
+   private List<Long> chunks;
+   private final byte[] buffer = new byte[8192];
+
+   @Setup(Level.Trial)
+   public void setUp() throws IOException {
+      injector = Guice.createInjector(new TestContextModule(), new JpaPersistModule(persistenceUnit));
+      jdbcService = injector.getInstance(JdbcService.class);
+      executor = injector.getInstance(Key.get(ListeningExecutorService.class,
+            Names.named(Constants.PROPERTY_USER_THREADS)));
+      jdbcService.createContainer(CONTAINER_NAME);
+      Blob blob = new BlobBuilderImpl().name(BLOB_NAME).payload(randomByteSource().slice(0, blobSize)).build();
+      Long payloadId = jdbcService.createOrModifyBlob(CONTAINER_NAME, blob).getPayload().getId();
+      chunks = ImmutableList.copyOf(new ChunkIdList(jdbcService, payloadId));
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      executor.shutdownNow();
+      injector.getInstance(PersistService.class).stop();
+   }
+
+   @Benchmark
+   public long singleByteReads() throws IOException {
+      InputStream in = new SingleChunkInputStream(jdbcService, chunks);
+      long total = 0;
+      while (in.read() != -1) {
+         total++;
+      }
+      return total;
+   }
+
+   @Benchmark
+   public long bulkReadsWithReadAhead() throws IOException {
+      InputStream in = new JdbcInputStream(jdbcService, chunks, executor, readAhead);
+      try {
+         long total = 0;
+         int read;
+         while ((read = in.read(buffer)) != -1) {
+            total += read;
+         }
+         return total;
+      } finally {
+         in.close();
+      }
+   }
+
+   public static void main(String[] args) throws RunnerException {
+      new Runner(new OptionsBuilder().include(JdbcInputStreamBenchmark.class.getSimpleName()).build()).run();
+   }
+
+   /**
+    * The original stream implementation: synchronized single byte reads and one
+    * blocking chunk lookup whenever the current chunk is exhausted.
+    */
+   private static class SingleChunkInputStream extends InputStream {
+
+      private final JdbcService jdbcService;
+      private final List<Long> chunks;
+      private ChunkEntity currentChunk;
+      private int bytesRead;
+
+      SingleChunkInputStream(JdbcService jdbcService, List<Long> chunks) throws IOException {
+         this.jdbcService = jdbcService;
+         this.chunks = new ArrayList<Long>(new LinkedHashSet<Long>(chunks));
+         readNextChunk();
+      }
+
+      @Override
+      public synchronized int read() throws IOException {
+         if (currentChunk == null || (chunks.size() == 0 && bytesRead >= currentChunk.getSize())) {
+            return -1;
+         }
+         int b = currentChunk.getData()[bytesRead] & 0xff;
+         bytesRead = bytesRead + 1;
+         if (bytesRead >= currentChunk.getSize()) {
+            readNextChunk();
+         }
+         return b;
+      }
+
+      private void readNextChunk() throws IOException {
+         if (chunks.size() > 0) {
+            this.currentChunk = jdbcService.findChunkById(chunks.get(0));
+            if (currentChunk == null) {
+               throw new IOException("Could not find chunk.");
+            }
+            chunks.remove(0);
+            this.bytesRead = 0;
+         }
+      }
+   }
+
+}
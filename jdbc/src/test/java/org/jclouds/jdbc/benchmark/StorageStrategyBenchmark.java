@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.jdbc.benchmark;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.persist.PersistService;
+import com.google.inject.persist.jpa.JpaPersistModule;
+import org.jclouds.blobstore.domain.BlobMetadata;
+import org.jclouds.blobstore.domain.PageSet;
+import org.jclouds.blobstore.domain.StorageMetadata;
+import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.jdbc.module.TestContextModule;
+import org.jclouds.jdbc.strategy.JdbcStorageStrategy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.jclouds.utils.TestUtils.randomByteSource;
+
+/**
+ * Measures the blob operations of {@link JdbcStorageStrategy} on an in-memory and on a
+ * file-backed H2 database, for several blob sizes and container sizes. Both the throughput and
+ * the latency distribution, including p99, are reported, and {@code main} adds the GC profiler
+ * for the allocation rate. Clearing a container is measured by {@link DeleteBlobsBenchmark}.
+ *
+ * The default parameters keep a run under an hour. Larger blobs and containers are selected on
+ * the command line, e.g. {@code -p blobSize=1073741824 -p containerSize=1000000}, with a heap
+ * large enough for the in-memory database.
+ *
+ * Run with:
+ * <pre>
+ * mvn -o test-compile exec:exec -Dexec.classpathScope=test -Dexec.executable=java \
+ *    -Dexec.args="-cp %classpath org.jclouds.jdbc.benchmark.StorageStrategyBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StorageStrategyBenchmark {
+
+   private static final String CONTAINER_NAME = "jclouds-benchmark-container";
+   private static final String BLOB_NAME = "jclouds-benchmark-blob";
+   private static final String PUT_BLOB_NAME = "jclouds-benchmark-put";
+   private static final String REMOVED_BLOB_NAME = "jclouds-benchmark-removed";
+   private static final int DIRECTORIES = 100;
+   private static final int RANGE_SIZE = 64 * 1024;
+
+   private static final Map<String, String> DATABASE_URLS = ImmutableMap.of(
+         "h2-memory", "jdbc:h2:mem:jclouds-benchmark;DB_CLOSE_DELAY=-1",
+         "h2-file", "jdbc:h2:./target/h2-benchmark");
+
+   @Param({ "h2-memory", "h2-file" })
+   public String database;
+
+   @Param({ "1024", "1048576", "67108864" })
+   public int blobSize;
+
+   @Param({ "1000", "100000" })
+   public int containerSize;
+
+   private Injector injector;
+   private JdbcStorageStrategy storageStrategy;
+   private ByteSource content;
+
+   @Setup(Level.Trial)
+   public void setUp() throws IOException {
+      injector = Guice.createInjector(new TestContextModule(), new JpaPersistModule("jclouds-test-h2")
+            .properties(ImmutableMap.of("javax.persistence.jdbc.url", DATABASE_URLS.get(database))));
+      storageStrategy = injector.getInstance(JdbcStorageStrategy.class);
+      storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null);
+      // Small blobs spread over directories, so that listing a prefix selects a slice of the container
+      ByteSource small = randomByteSource().slice(0, 1024);
+      for (int i = 0; i < containerSize; i++) {
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl()
+               .name(String.format("dir-%03d/blob-%07d", i % DIRECTORIES, i)).payload(small).build());
+      }
+      content = randomByteSource().slice(0, blobSize);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+   }
+
+   @TearDown(Level.Trial)
+   public void tearDown() {
+      storageStrategy.deleteContainer(CONTAINER_NAME);
+      injector.getInstance(PersistService.class).stop();
+   }
+
+   @Benchmark
+   public String putBlob() throws IOException {
+      return storageStrategy.putBlob(CONTAINER_NAME,
+            new BlobBuilderImpl().name(PUT_BLOB_NAME).payload(content).build());
+   }
+
+   @Benchmark
+   public long getBlob() throws IOException {
+      InputStream in = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().openStream();
+      try {
+         return ByteStreams.copy(in, ByteStreams.nullOutputStream());
+      } finally {
+         in.close();
+      }
+   }
+
+   @Benchmark
+   public byte[] getBlobRange() throws IOException {
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload()
+            .getRawContent();
+      long offset = Math.max(0, blobSize / 2 - RANGE_SIZE / 2);
+      return stored.slice(offset, RANGE_SIZE).read();
+   }
+
+   @Benchmark
+   public BlobMetadata headBlob() {
+      return storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getMetadata();
+   }
+
+   @Benchmark
+   public PageSet<? extends StorageMetadata> listPrefix() {
+      return storageStrategy.list(CONTAINER_NAME, ListContainerOptions.Builder.prefix("dir-042/").maxResults(100));
+   }
+
+   @Benchmark
+   public void removeBlob(BlobToRemove blob) {
+      storageStrategy.removeBlob(CONTAINER_NAME, REMOVED_BLOB_NAME);
+   }
+
+   /**
+    * Stores the blob removed by each invocation of {@link #removeBlob}, outside of the
+    * measurement.
+    */
+   @State(Scope.Thread)
+   public static class BlobToRemove {
+
+      @Setup(Level.Invocation)
+      public void put(StorageStrategyBenchmark benchmark) throws IOException {
+         benchmark.storageStrategy.putBlob(CONTAINER_NAME,
+               new BlobBuilderImpl().name(REMOVED_BLOB_NAME).payload(benchmark.content).build());
+      }
+
+   }
+
+   public static void main(String[] args) throws RunnerException {
+      new Runner(new OptionsBuilder()
+            .include(StorageStrategyBenchmark.class.getSimpleName())
+            .addProfiler(GCProfiler.class)
+            .build()).run();
+   }
+
+}
@@ -16,14 +16,39 @@
  */
 package org.jclouds.jdbc.module;
 
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.inject.AbstractModule;
+import com.google.inject.name.Names;
+import org.jclouds.Constants;
+import org.jclouds.jdbc.JdbcApiMetadata;
 import org.jclouds.jdbc.config.JPAInitializer;
+import org.jclouds.jdbc.config.JdbcMetricsModule;
+
+import java.util.Properties;
+import java.util.concurrent.Executors;
 
 public class TestContextModule extends AbstractModule {
 
+   private final Properties overrides;
+
+   public TestContextModule() {
+      this(new Properties());
+   }
+
+   public TestContextModule(Properties overrides) {
+      this.overrides = overrides;
+   }
+
    @Override
    protected void configure() {
       bind(JPAInitializer.class).asEagerSingleton();
+      install(new JdbcMetricsModule());
+      Properties properties = JdbcApiMetadata.defaultProperties();
+      properties.putAll(overrides);
+      Names.bindProperties(binder(), properties);
+      bind(ListeningExecutorService.class).annotatedWith(Names.named(Constants.PROPERTY_USER_THREADS))
+            .toInstance(MoreExecutors.listeningDecorator(Executors.newCachedThreadPool()));
    }
 
 }
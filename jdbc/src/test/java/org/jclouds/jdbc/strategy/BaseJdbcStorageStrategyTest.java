@@ -16,30 +16,65 @@
  */
 package org.jclouds.jdbc.strategy;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteSource;
+import com.google.common.io.Files;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.google.inject.persist.PersistService;
+import com.google.inject.persist.UnitOfWork;
 import com.google.inject.persist.jpa.JpaPersistModule;
 import org.jclouds.blobstore.domain.Blob;
 import org.jclouds.blobstore.domain.BlobAccess;
+import org.jclouds.blobstore.domain.BlobMetadata;
 import org.jclouds.blobstore.domain.ContainerAccess;
+import org.jclouds.blobstore.domain.MultipartPart;
+import org.jclouds.blobstore.domain.MultipartUpload;
+import org.jclouds.blobstore.domain.PageSet;
 import org.jclouds.blobstore.domain.StorageMetadata;
 import org.jclouds.blobstore.domain.StorageType;
 import org.jclouds.blobstore.domain.internal.BlobBuilderImpl;
 import org.jclouds.blobstore.options.CreateContainerOptions;
+import org.jclouds.blobstore.options.ListContainerOptions;
+import org.jclouds.blobstore.options.PutOptions;
+import org.jclouds.io.Payloads;
+import org.jclouds.jdbc.entity.ChunkEntity;
+import org.jclouds.jdbc.metrics.JdbcMetrics;
+import org.jclouds.jdbc.metrics.JmxJdbcMetrics;
 import org.jclouds.jdbc.module.TestContextModule;
+import org.jclouds.jdbc.reference.JdbcConstants;
+import org.jclouds.jdbc.service.JdbcGarbageCollector;
+import org.jclouds.jdbc.service.JdbcService;
+import org.jclouds.jdbc.util.PayloadFileStore;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.management.MBeanServer;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.jclouds.utils.TestUtils.randomByteSource;
 
 public abstract class BaseJdbcStorageStrategyTest {
@@ -137,6 +172,289 @@ public abstract class BaseJdbcStorageStrategyTest {
       assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isTrue();
    }
 
+   @Test
+   public void testPutBlobSpanningSeveralBatches() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 9 * 1024 * 1024 + 100);
+      String etag = storageStrategy.putBlob(CONTAINER_NAME,
+            new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      assertThat(etag).isEqualTo(content.hash(Hashing.md5()).toString());
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.contentEquals(content)).isTrue();
+   }
+
+   @Test
+   public void testPutBlobWithDeflateCodec() throws IOException {
+      Properties overrides = new Properties();
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_CHUNK_SIZE, String.valueOf(64 * 1024));
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_CHUNK_CODEC, "DEFLATE");
+      restartWith(overrides);
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      // Compressible and incompressible chunks in the same blob
+      ByteSource content = ByteSource.concat(ByteSource.wrap(getByteArray('a', 200 * 1024)),
+            randomByteSource().slice(0, 100 * 1024));
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.contentEquals(content)).isTrue();
+      assertThat(stored.slice(190 * 1024, 20 * 1024).read()).isEqualTo(content.slice(190 * 1024, 20 * 1024).read());
+   }
+
+   @Test
+   public void testPutBlobWithChunkDedup() throws IOException {
+      Properties overrides = new Properties();
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_CHUNK_SIZE, String.valueOf(64 * 1024));
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_CHUNK_DEDUP, "true");
+      restartWith(overrides);
+      JdbcService jdbcService = injector.getInstance(JdbcService.class);
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = ByteSource.wrap(getByteArray('a', 4 * 64 * 1024));
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME + "1").payload(content).build());
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME + "2").payload(content).build());
+      List<Long> chunks = jdbcService.findChunkIds(
+            jdbcService.findBlobById(CONTAINER_NAME, BLOB_NAME + "1").getPayload().getId(), 0, 16);
+      assertThat(chunks).hasSize(4);
+      assertThat(ImmutableSet.copyOf(chunks)).hasSize(1);
+      assertThat(jdbcService.findChunkIds(
+            jdbcService.findBlobById(CONTAINER_NAME, BLOB_NAME + "2").getPayload().getId(), 0, 16))
+            .isEqualTo(chunks);
+
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME + "1");
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME + "2").getPayload()
+            .getRawContent();
+      assertThat(stored.contentEquals(content)).isTrue();
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME + "2");
+      assertThat(jdbcService.findChunkById(chunks.get(0))).isNull();
+   }
+
+   @Test
+   public void testConcurrentPutBlob() throws Exception {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      List<ByteSource> contents = Lists.newArrayList();
+      List<Future<String>> etags = Lists.newArrayList();
+      ExecutorService executor = Executors.newFixedThreadPool(8);
+      try {
+         for (int i = 0; i < 8; i++) {
+            final ByteSource content = randomByteSource().slice(i, 256 * 1024 + i);
+            // Half of the writers write the same blob
+            final String key = i % 2 == 0 ? BLOB_NAME : BLOB_NAME + i;
+            contents.add(content);
+            etags.add(executor.submit(new Callable<String>() {
+               @Override
+               public String call() throws IOException {
+                  return storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(key).payload(content).build());
+               }
+            }));
+         }
+         for (Future<String> etag : etags) {
+            etag.get();
+         }
+      } finally {
+         executor.shutdown();
+      }
+
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      boolean written = false;
+      for (int i = 0; i < 8; i += 2) {
+         written |= stored.contentEquals(contents.get(i));
+      }
+      assertThat(written).isTrue();
+      for (int i = 1; i < 8; i += 2) {
+         stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME + i).getPayload().getRawContent();
+         assertThat(stored.contentEquals(contents.get(i))).isTrue();
+      }
+   }
+
+   @Test
+   public void testFailedCommitIsNotRetried() throws Exception {
+      Properties overrides = new Properties();
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_METRICS, "jmx");
+      restartWith(overrides);
+      JmxJdbcMetrics metrics = (JmxJdbcMetrics) injector.getInstance(JdbcMetrics.class);
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 1024);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      // A constraint that another attempt would violate as well
+      EntityManager em = injector.getInstance(EntityManager.class);
+      em.getTransaction().begin();
+      em.createNativeQuery("ALTER TABLE PayloadEntity ADD CONSTRAINT rejected_type "
+            + "CHECK (contentType <> 'application/x-rejected')").executeUpdate();
+      em.getTransaction().commit();
+      injector.getInstance(UnitOfWork.class).end();
+      metrics.reset();
+
+      try {
+         storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content)
+               .contentType("application/x-rejected").build());
+         fail("Expected PersistenceException");
+      } catch (PersistenceException expected) {
+      }
+      // The chunk batch and a single commit attempt, plus the release of the chunks if it already ran
+      assertThat(metrics.getCounts().get(JdbcMetrics.Operation.TRANSACTION.name())).isLessThanOrEqualTo(3L);
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.contentEquals(content)).isTrue();
+   }
+
+   @Test
+   public void testJmxMetrics() throws Exception {
+      Properties overrides = new Properties();
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_METRICS, "jmx");
+      restartWith(overrides);
+      JmxJdbcMetrics metrics = (JmxJdbcMetrics) injector.getInstance(JdbcMetrics.class);
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 3 * 1024 * 1024 + 1);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.contentEquals(content)).isTrue();
+
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      assertThat(server.getAttribute(metrics.getName(), "BytesWritten")).isEqualTo(content.size());
+      assertThat(server.getAttribute(metrics.getName(), "BytesRead")).isEqualTo(content.size());
+      assertThat(server.getAttribute(metrics.getName(), "BlobsWritten")).isEqualTo(1L);
+      assertThat(server.getAttribute(metrics.getName(), "MaxChunksPerBlob")).isEqualTo(4L);
+      assertThat(metrics.getCounts().get(JdbcMetrics.Operation.READ_CHUNK.name())).isEqualTo(4L);
+      assertThat(metrics.getCounts().get(JdbcMetrics.Operation.PUT_BLOB.name())).isEqualTo(1L);
+      assertThat(metrics.getCounts().get(JdbcMetrics.Operation.TRANSACTION.name())).isGreaterThan(1L);
+   }
+
+   @Test
+   public void testFileStore() throws Exception {
+      File directory = Files.createTempDir();
+      Properties overrides = new Properties();
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_FILE_STORE_DIRECTORY, directory.getPath());
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_FILE_STORE_THRESHOLD, String.valueOf(1024 * 1024));
+      restartWith(overrides);
+      JdbcService jdbcService = injector.getInstance(JdbcService.class);
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 3 * 1024 * 1024 + 512);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content)
+            .contentLength(content.size()).build());
+      String file = jdbcService.findBlobById(CONTAINER_NAME, BLOB_NAME).getPayload().getFile();
+      assertThat(file).isEqualTo(content.hash(Hashing.sha256()).toString());
+      assertThat(jdbcService.countChunks(jdbcService.findBlobById(CONTAINER_NAME, BLOB_NAME).getPayload().getId()))
+            .isEqualTo(0);
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.contentEquals(content)).isTrue();
+      assertThat(stored.slice(3 * 1024 * 1024, 1024).read()).isEqualTo(content.slice(3 * 1024 * 1024, 512).read());
+
+      // Below the threshold the payload goes back to chunks
+      PayloadFileStore fileStore = injector.getInstance(PayloadFileStore.class);
+      ageFile(directory, file);
+      ByteSource small = randomByteSource().slice(0, 1024);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(small)
+            .contentLength(small.size()).build());
+      assertThat(jdbcService.findBlobById(CONTAINER_NAME, BLOB_NAME).getPayload().getFile()).isNull();
+      stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.contentEquals(small)).isTrue();
+
+      awaitNoFiles(fileStore);
+
+      // The file of a blob replaced by a multipart upload is released too
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content)
+            .contentLength(content.size()).build());
+      assertThat(fileStore.list()).containsOnly(file);
+      ageFile(directory, file);
+      MultipartUpload mpu = initiateMultipartUpload();
+      MultipartPart part = storageStrategy.uploadMultipartPart(mpu, 1, Payloads.newByteSourcePayload(small));
+      storageStrategy.completeMultipartUpload(mpu, ImmutableList.of(part));
+      awaitNoFiles(fileStore);
+   }
+
+   private static void ageFile(File directory, String name) {
+      // Files younger than the grace period of the store are never deleted
+      File file = new File(new File(new File(directory, name.substring(0, 2)), name.substring(2, 4)), name);
+      assertThat(file.setLastModified(System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(5))).isTrue();
+   }
+
+   private static void awaitNoFiles(PayloadFileStore fileStore) throws InterruptedException {
+      // Files are released in the background
+      for (int i = 0; i < 100 && !fileStore.list().isEmpty(); i++) {
+         Thread.sleep(100);
+      }
+      assertThat(fileStore.list()).isEmpty();
+   }
+
+   @Test
+   public void testEtagDigest() throws IOException {
+      Properties overrides = new Properties();
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_ETAG_DIGEST, "CRC32C");
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_TRUST_CONTENT_MD5, "true");
+      restartWith(overrides);
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 3 * 1024 * 1024 + 512);
+      HashCode md5 = content.hash(Hashing.md5());
+      String etag = storageStrategy.putBlob(CONTAINER_NAME,
+            new BlobBuilderImpl().name(BLOB_NAME).payload(content).contentMD5(md5).build());
+      assertThat(etag).isEqualTo(content.hash(Hashing.crc32c()).toString());
+      Blob blob = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME);
+      assertThat(blob.getMetadata().getETag()).isEqualTo(etag);
+      assertThat(blob.getMetadata().getContentMetadata().getContentMD5AsHashCode()).isEqualTo(md5);
+      assertThat(((ByteSource) blob.getPayload().getRawContent()).contentEquals(content)).isTrue();
+   }
+
+   @Test
+   public void testGarbageCollector() throws Exception {
+      Properties overrides = new Properties();
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_GC_PAUSE, "0");
+      restartWith(overrides);
+      JdbcService jdbcService = injector.getInstance(JdbcService.class);
+      JdbcGarbageCollector collector = injector.getInstance(JdbcGarbageCollector.class);
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 1024);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+
+      // An unreferenced chunk from before garbage collection, and one of a write in progress
+      ChunkEntity old = new ChunkEntity(new byte[16], 16);
+      old.setStored(null);
+      ChunkEntity recent = new ChunkEntity(new byte[16], 16);
+      EntityManager em = injector.getInstance(EntityManager.class);
+      em.getTransaction().begin();
+      em.persist(old);
+      em.persist(recent);
+      em.getTransaction().commit();
+      injector.getInstance(UnitOfWork.class).end();
+
+      assertThat(collector.sweepChunks()).isEqualTo(1);
+      assertThat(jdbcService.findChunkById(old.getId())).isNull();
+      assertThat(jdbcService.findChunkById(recent.getId())).isNotNull();
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.contentEquals(content)).isTrue();
+      assertThat(collector.scrub()).isEmpty();
+
+      Long payloadId = jdbcService.findBlobById(CONTAINER_NAME, BLOB_NAME).getPayload().getId();
+      em = injector.getInstance(EntityManager.class);
+      em.getTransaction().begin();
+      em.createQuery("UPDATE " + ChunkEntity.class.getName() + " c SET c.data = :data WHERE c.id = :id")
+            .setParameter("data", new byte[1024])
+            .setParameter("id", jdbcService.findChunkIds(payloadId, 0, 1).get(0))
+            .executeUpdate();
+      em.getTransaction().commit();
+      injector.getInstance(UnitOfWork.class).end();
+      assertThat(collector.scrub()).containsExactly(CONTAINER_NAME + "/" + BLOB_NAME);
+   }
+
+   @Test
+   public void testRecreateContainer() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.putBlob(CONTAINER_NAME,
+            new BlobBuilderImpl().name(BLOB_NAME).payload(randomByteSource().slice(0, 1024)).build());
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isTrue();
+      storageStrategy.deleteContainer(CONTAINER_NAME);
+      // The container id cached by the previous operations must not be reused
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isFalse();
+      ByteSource content = randomByteSource().slice(0, 1024);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.contentEquals(content)).isTrue();
+   }
+
    @Test
    public void testGetBlobKeysInContainer() throws IOException {
       assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
@@ -167,6 +485,17 @@ public abstract class BaseJdbcStorageStrategyTest {
         }
     }
 
+   @Test
+   public void testGetBlobSlice() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      ByteSource content = randomByteSource().slice(0, 3 * 1024 * 1024 + 512);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.size()).isEqualTo(content.size());
+      assertThat(stored.slice(1024 * 1024 - 10, 20).read()).isEqualTo(content.slice(1024 * 1024 - 10, 20).read());
+      assertThat(stored.slice(3 * 1024 * 1024, 1024).read()).isEqualTo(content.slice(3 * 1024 * 1024, 512).read());
+   }
+
    @Test
    public void testRemoveBlob() throws IOException {
       assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
@@ -177,6 +506,21 @@ public abstract class BaseJdbcStorageStrategyTest {
       assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isFalse();
    }
 
+   @Test
+   public void testBlobMetadataAccess() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isFalse();
+      assertThat(storageStrategy.getBlobAccess(CONTAINER_NAME, BLOB_NAME)).isNull();
+      ByteSource content = randomByteSource().slice(0, 3 * 1024 * 1024 + 512);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isTrue();
+      storageStrategy.setBlobAccess(CONTAINER_NAME, BLOB_NAME, BlobAccess.PUBLIC_READ);
+      assertThat(storageStrategy.getBlobAccess(CONTAINER_NAME, BLOB_NAME)).isEqualTo(BlobAccess.PUBLIC_READ);
+      // The chunk list is read lazily, after the blob has been loaded
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.contentEquals(content)).isTrue();
+   }
+
    @Test
    public void testGetBlobAccess() throws IOException {
       assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
@@ -203,6 +547,174 @@ public abstract class BaseJdbcStorageStrategyTest {
       assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
    }
 
+   @Test
+   public void testClearContainerDirectory() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir");
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir/sub");
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name("dir/blob")
+            .payload(randomByteSource().slice(0, 1024)).userMetadata(ImmutableMap.of("key", "value")).build());
+      storageStrategy.putBlob(CONTAINER_NAME,
+            new BlobBuilderImpl().name("dir/sub/blob").payload(randomByteSource().slice(0, 1024)).build());
+      ByteSource content = randomByteSource().slice(0, 1024);
+      storageStrategy.putBlob(CONTAINER_NAME, new BlobBuilderImpl().name(BLOB_NAME).payload(content).build());
+      storageStrategy.clearContainer(CONTAINER_NAME, ListContainerOptions.Builder.inDirectory("dir"));
+      assertThat(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME)).containsOnly("dir", BLOB_NAME);
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.contentEquals(content)).isTrue();
+   }
+
+   @Test
+   public void testCreateExistingDirectory() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir");
+      storageStrategy.createDirectory(CONTAINER_NAME, "dir");
+      assertThat(storageStrategy.getBlobKeysInsideContainer(CONTAINER_NAME)).containsOnly("dir");
+      assertThat(storageStrategy.directoryExists(CONTAINER_NAME, "dir")).isTrue();
+   }
+
+   @Test
+   public void testListPages() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      for (String key : ImmutableList.of("a/1", "a/2", "b", "c/1", "c/2", "d")) {
+         storageStrategy.putBlob(CONTAINER_NAME,
+               new BlobBuilderImpl().name(key).payload(randomByteSource().slice(0, 16)).build());
+      }
+
+      PageSet<? extends StorageMetadata> page = storageStrategy.list(CONTAINER_NAME,
+            ListContainerOptions.Builder.maxResults(2));
+      assertThat(names(page)).containsExactly("a/", "b");
+      assertThat(page.iterator().next().getType()).isEqualTo(StorageType.RELATIVE_PATH);
+      assertThat(page.getNextMarker()).isEqualTo("b");
+      page = storageStrategy.list(CONTAINER_NAME, ListContainerOptions.Builder.afterMarker("b").maxResults(2));
+      assertThat(names(page)).containsExactly("c/", "d");
+      assertThat(page.getNextMarker()).isNull();
+      page = storageStrategy.list(CONTAINER_NAME, ListContainerOptions.Builder.afterMarker("a/"));
+      assertThat(names(page)).containsExactly("b", "c/", "d");
+
+      page = storageStrategy.list(CONTAINER_NAME, ListContainerOptions.Builder.prefix("c/").recursive());
+      assertThat(names(page)).containsExactly("c/1", "c/2");
+      assertThat(page.iterator().next().getType()).isEqualTo(StorageType.BLOB);
+      page = storageStrategy.list(CONTAINER_NAME, ListContainerOptions.Builder.inDirectory("a"));
+      assertThat(names(page)).containsExactly("a/1", "a/2");
+
+      assertThat(storageStrategy.countBlobs(CONTAINER_NAME, ListContainerOptions.NONE)).isEqualTo(6);
+      assertThat(storageStrategy.countBlobs(CONTAINER_NAME, ListContainerOptions.Builder.inDirectory("c")))
+            .isEqualTo(2);
+   }
+
+   @Test
+   public void testCompleteMultipartUpload() throws IOException {
+      Properties overrides = new Properties();
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_CHUNK_SIZE, String.valueOf(64 * 1024));
+      restartWith(overrides);
+      JdbcService jdbcService = injector.getInstance(JdbcService.class);
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      MultipartUpload mpu = initiateMultipartUpload();
+      ByteSource part1 = randomByteSource().slice(0, 128 * 1024);
+      ByteSource part2 = randomByteSource().slice(1, 128 * 1024);
+      ByteSource part3 = randomByteSource().slice(2, 100 * 1024);
+      List<MultipartPart> parts = ImmutableList.of(
+            storageStrategy.uploadMultipartPart(mpu, 1, Payloads.newByteSourcePayload(part1)),
+            storageStrategy.uploadMultipartPart(mpu, 2, Payloads.newByteSourcePayload(part2)),
+            storageStrategy.uploadMultipartPart(mpu, 3, Payloads.newByteSourcePayload(part3)));
+      // Not listed on completion, so dropped
+      storageStrategy.uploadMultipartPart(mpu, 4, Payloads.newByteSourcePayload(part3));
+      assertThat(storageStrategy.listMultipartUpload(mpu)).hasSize(4);
+      assertThat(storageStrategy.listMultipartUploads(CONTAINER_NAME)).hasSize(1);
+
+      String etag = storageStrategy.completeMultipartUpload(mpu, parts);
+      assertThat(etag).endsWith("-3");
+      assertThat(storageStrategy.listMultipartUploads(CONTAINER_NAME)).isEmpty();
+
+      Blob blob = storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME);
+      assertThat(blob.getMetadata().getUserMetadata()).isEqualTo(ImmutableMap.of("key", "value"));
+      assertThat(blob.getMetadata().getETag()).isEqualTo(etag);
+      ByteSource content = ByteSource.concat(part1, part2, part3);
+      ByteSource stored = (ByteSource) blob.getPayload().getRawContent();
+      assertThat(stored.size()).isEqualTo(content.size());
+      assertThat(stored.contentEquals(content)).isTrue();
+      assertThat(stored.slice(200 * 1024, 100 * 1024).read()).isEqualTo(content.slice(200 * 1024, 100 * 1024).read());
+      // Every part is made of whole chunks, so ranges can still be located
+      assertThat(jdbcService.findBlobById(CONTAINER_NAME, BLOB_NAME).getPayload().getChunkSize()).isEqualTo(64 * 1024);
+
+      storageStrategy.removeBlob(CONTAINER_NAME, BLOB_NAME);
+      storageStrategy.deleteContainer(CONTAINER_NAME);
+      assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
+   }
+
+   @Test
+   public void testCompleteUnalignedMultipartUpload() throws IOException {
+      Properties overrides = new Properties();
+      overrides.setProperty(JdbcConstants.PROPERTY_JDBC_CHUNK_SIZE, String.valueOf(64 * 1024));
+      restartWith(overrides);
+      JdbcService jdbcService = injector.getInstance(JdbcService.class);
+
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      storageStrategy.putBlob(CONTAINER_NAME,
+            new BlobBuilderImpl().name(BLOB_NAME).payload(randomByteSource().slice(0, 1024)).build());
+      MultipartUpload mpu = initiateMultipartUpload();
+      ByteSource part1 = randomByteSource().slice(0, 100 * 1024);
+      ByteSource part2 = randomByteSource().slice(1, 50 * 1024);
+      ByteSource part3 = randomByteSource().slice(2, 30 * 1024);
+      // Uploaded out of order, and the first part uploaded twice
+      List<MultipartPart> parts = ImmutableList.of(
+            storageStrategy.uploadMultipartPart(mpu, 3, Payloads.newByteSourcePayload(part3)),
+            storageStrategy.uploadMultipartPart(mpu, 1, Payloads.newByteSourcePayload(part2)),
+            storageStrategy.uploadMultipartPart(mpu, 1, Payloads.newByteSourcePayload(part1)),
+            storageStrategy.uploadMultipartPart(mpu, 2, Payloads.newByteSourcePayload(part2)));
+      assertThat(storageStrategy.listMultipartUpload(mpu)).hasSize(3);
+
+      storageStrategy.completeMultipartUpload(mpu, ImmutableList.of(parts.get(2), parts.get(3), parts.get(0)));
+
+      ByteSource content = ByteSource.concat(part1, part2, part3);
+      ByteSource stored = (ByteSource) storageStrategy.getBlob(CONTAINER_NAME, BLOB_NAME).getPayload().getRawContent();
+      assertThat(stored.size()).isEqualTo(content.size());
+      assertThat(stored.contentEquals(content)).isTrue();
+      assertThat(stored.slice(90 * 1024, 70 * 1024).read()).isEqualTo(content.slice(90 * 1024, 70 * 1024).read());
+      assertThat(jdbcService.findBlobById(CONTAINER_NAME, BLOB_NAME).getPayload().getChunkSize()).isEqualTo(0);
+   }
+
+   @Test
+   public void testAbortMultipartUpload() throws IOException {
+      assertThat(storageStrategy.createContainerInLocation(CONTAINER_NAME, null, null)).isTrue();
+      MultipartUpload mpu = initiateMultipartUpload();
+      storageStrategy.uploadMultipartPart(mpu, 1, Payloads.newByteSourcePayload(randomByteSource().slice(0, 1024)));
+      storageStrategy.abortMultipartUpload(mpu);
+      assertThat(storageStrategy.listMultipartUploads(CONTAINER_NAME)).isEmpty();
+      assertThat(storageStrategy.blobExists(CONTAINER_NAME, BLOB_NAME)).isFalse();
+
+      // Uploads in progress are aborted with their container
+      mpu = initiateMultipartUpload();
+      storageStrategy.uploadMultipartPart(mpu, 1, Payloads.newByteSourcePayload(randomByteSource().slice(0, 1024)));
+      storageStrategy.clearContainer(CONTAINER_NAME);
+      assertThat(storageStrategy.listMultipartUploads(CONTAINER_NAME)).hasSize(1);
+      storageStrategy.deleteContainer(CONTAINER_NAME);
+      assertThat(storageStrategy.containerExists(CONTAINER_NAME)).isFalse();
+   }
+
+   private MultipartUpload initiateMultipartUpload() {
+      BlobMetadata metadata = new BlobBuilderImpl().name(BLOB_NAME)
+            .userMetadata(ImmutableMap.of("key", "value")).build().getMetadata();
+      return storageStrategy.initiateMultipartUpload(CONTAINER_NAME, metadata, PutOptions.NONE);
+   }
+
+   private static List<String> names(PageSet<? extends StorageMetadata> page) {
+      ImmutableList.Builder<String> names = ImmutableList.builder();
+      for (StorageMetadata metadata : page) {
+         names.add(metadata.getName());
+      }
+      return names.build();
+   }
+
+   private void restartWith(Properties overrides) {
+      injector.getInstance(PersistService.class).stop();
+      injector = Guice.createInjector(ImmutableSet.<Module> of(new TestContextModule(overrides),
+            new JpaPersistModule(jpaModuleName)));
+      storageStrategy = injector.getInstance(JdbcStorageStrategy.class);
+   }
+
     private byte[] getByteArray(char c, int len) {
         byte[] array = new byte[len];
         Arrays.fill(array, (byte) c);
@@ -63,6 +63,14 @@ public class VagrantApiMetadata extends BaseApiMetadata {
       private Properties defaultProperties() {
          Properties defaultProperties = BaseApiMetadata.defaultProperties();
          defaultProperties.setProperty(VagrantConstants.JCLOUDS_VAGRANT_HOME, VagrantConstants.JCLOUDS_VAGRANT_HOME_DEFAULT);
+         defaultProperties.setProperty(VagrantConstants.JCLOUDS_VAGRANT_MAX_CONCURRENT_UP,
+               VagrantConstants.JCLOUDS_VAGRANT_MAX_CONCURRENT_UP_DEFAULT);
+         defaultProperties.setProperty(VagrantConstants.JCLOUDS_VAGRANT_STATUS_TTL,
+               VagrantConstants.JCLOUDS_VAGRANT_STATUS_TTL_DEFAULT);
+         defaultProperties.setProperty(VagrantConstants.JCLOUDS_VAGRANT_POOL_SIZE,
+               VagrantConstants.JCLOUDS_VAGRANT_POOL_SIZE_DEFAULT);
+         defaultProperties.setProperty(VagrantConstants.JCLOUDS_VAGRANT_POOL_MAX_CONCURRENT_REFILLS,
+               VagrantConstants.JCLOUDS_VAGRANT_POOL_MAX_CONCURRENT_REFILLS_DEFAULT);
          defaultProperties.put(ComputeServiceProperties.TEMPLATE, "osFamily=UBUNTU");
          return defaultProperties;
       }
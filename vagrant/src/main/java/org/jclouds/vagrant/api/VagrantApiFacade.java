@@ -17,8 +17,10 @@
 package org.jclouds.vagrant.api;
 
 import java.io.File;
+import java.util.Map;
 
 import org.jclouds.domain.LoginCredentials;
+import org.jclouds.vagrant.domain.ProvisioningOutput;
 
 public interface VagrantApiFacade {
    interface Factory {
@@ -28,12 +30,21 @@ public interface VagrantApiFacade {
    /**
     * Start the named machine
     * 
-    * @return the raw output of the configured provisioners
+    * @return the networks and hostname reported by the provisioners, parsed as the output streams by
     */
-   String up(String machineName, String provider);
+   ProvisioningOutput up(String machineName, String provider);
    void halt(String machineName);
    void destroy(String machineName);
    LoginCredentials sshConfig(String machineName);
    void haltForced(String name);
    boolean exists();
+
+   /**
+    * Reads the state of all the machines of the folder with a single vagrant command. Run outside
+    * of the vagrant bindings, so callers serialise it with the other commands, see
+    * {@link org.jclouds.vagrant.internal.MachineLocks#acquireExclusive()}.
+    *
+    * @return the vagrant state (running, poweroff, not_created...) by machine name
+    */
+   Map<String, String> machineStates();
 }
@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.locks.Lock;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -46,16 +47,21 @@ import org.jclouds.domain.LoginCredentials;
 import org.jclouds.location.suppliers.all.JustProvider;
 import org.jclouds.logging.Logger;
 import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.domain.ProvisioningOutput;
 import org.jclouds.vagrant.domain.VagrantNode;
 import org.jclouds.vagrant.internal.MachineConfig;
+import org.jclouds.vagrant.internal.MachineIndex;
+import org.jclouds.vagrant.internal.MachineLocks;
+import org.jclouds.vagrant.internal.MachinePool;
 import org.jclouds.vagrant.internal.VagrantNodeRegistry;
+import org.jclouds.vagrant.internal.VagrantStatusRefresher;
 import org.jclouds.vagrant.reference.VagrantConstants;
 import org.jclouds.vagrant.util.VagrantUtils;
 
 import com.google.common.base.Function;
+import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.base.Supplier;
-import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
@@ -71,6 +77,10 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
    private final JustProvider locationSupplier;
    private final VagrantNodeRegistry nodeRegistry;
    private final MachineConfig.Factory machineConfigFactory;
+   private final MachineIndex machineIndex;
+   private final MachineLocks machineLocks;
+   private final VagrantStatusRefresher statusRefresher;
+   private final MachinePool machinePool;
    private final VagrantApiFacade.Factory cliFactory;
    private final Supplier<? extends Map<String, Hardware>> hardwareSupplier;
    private final Supplier<Collection<Image>> imageListSupplier;
@@ -81,6 +91,10 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
          JustProvider locationSupplier,
          VagrantNodeRegistry nodeRegistry,
          MachineConfig.Factory machineConfigFactory,
+         MachineIndex machineIndex,
+         MachineLocks machineLocks,
+         VagrantStatusRefresher statusRefresher,
+         MachinePool machinePool,
          VagrantApiFacade.Factory cliFactory,
          Supplier<? extends Map<String, Hardware>> hardwareSupplier,
          Supplier<Collection<Image>> imageListSupplier,
@@ -89,6 +103,10 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       this.locationSupplier = locationSupplier;
       this.nodeRegistry = nodeRegistry;
       this.machineConfigFactory = machineConfigFactory;
+      this.machineIndex = machineIndex;
+      this.machineLocks = machineLocks;
+      this.statusRefresher = statusRefresher;
+      this.machinePool = machinePool;
       this.cliFactory = cliFactory;
       this.hardwareSupplier = hardwareSupplier;
       this.imageListSupplier = imageListSupplier;
@@ -99,22 +117,45 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
    @Override
    public NodeAndInitialCredentials<VagrantNode> createNodeWithGroupEncodedIntoName(String group, String name, Template template) {
       String machineName = removeFromStart(name, group);
+      Map<String, Object> config = machineConfig(template);
+
+      if (machinePool.isEnabled()) {
+         Optional<String> member = machinePool.claim(config, group + "/" + machineName);
+         if (member.isPresent()) {
+            NodeAndInitialCredentials<VagrantNode> node = startMachine(machinePool.getPath(), group, machineName,
+                  member.get(), template.getImage(), template.getHardware());
+            nodeRegistry.add(node.getNode());
+            return node;
+         }
+      }
+
       File nodePath = new File(home, group);
 
-      init(nodePath, machineName, template);
+      // Machines of the same group share the folder and its Vagrantfile
+      Lock groupLock = machineLocks.groupLock(group);
+      groupLock.lock();
+      try {
+         init(nodePath, machineName, config);
+      } finally {
+         groupLock.unlock();
+      }
 
-      NodeAndInitialCredentials<VagrantNode> node = startMachine(nodePath, group, machineName,
+      NodeAndInitialCredentials<VagrantNode> node = startMachine(nodePath, group, machineName, machineName,
             template.getImage(), template.getHardware());
       nodeRegistry.add(node.getNode());
       return node;
    }
 
-   private NodeAndInitialCredentials<VagrantNode> startMachine(File path, String group, String name, Image image, Hardware hardware) {
+   /**
+    * Brings up the machine vagrantName of the folder path as the node group/name. The two names
+    * differ for machines claimed from the {@link MachinePool}.
+    */
+   private NodeAndInitialCredentials<VagrantNode> startMachine(File path, String group, String name, String vagrantName,
+         Image image, Hardware hardware) {
       String provider = image.getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
 
       VagrantApiFacade vagrant = cliFactory.create(path);
-      String rawOutput = vagrant.up(name, provider);
-      String output = normalizeOutput(name, rawOutput);
+      ProvisioningOutput output = up(vagrant, vagrantName, provider);
 
       OsFamily osFamily = image.getOperatingSystem().getFamily();
       String id = group + "/" + name;
@@ -122,17 +163,17 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
             .setPath(path)
             .setId(id)
             .setGroup(group)
-            .setName(name)
+            .setName(vagrantName)
             .setImage(image)
             .setHardware(hardware)
-            .setNetworks(getNetworks(output, getOsInterfacePattern(osFamily)))
-            .setHostname(getHostname(output))
+            .setNetworks(getNetworks(vagrantName, output, getOsInterfacePattern(osFamily)))
+            .setHostname(getHostname(vagrantName, output))
             .build();
       node.setMachineState(Status.RUNNING);
 
       LoginCredentials loginCredentials = null;
       if (osFamily != OsFamily.WINDOWS) {
-         loginCredentials = vagrant.sshConfig(name);
+         loginCredentials = vagrant.sshConfig(vagrantName);
       }
 
       // PrioritizeCredentialsFromTemplate will overwrite loginCredentials with image credentials
@@ -140,14 +181,6 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       return new NodeAndInitialCredentials<VagrantNode>(node, node.id(), loginCredentials);
    }
 
-   private String normalizeOutput(String name, String output) {
-      return output
-            .replaceAll("(?m)^([^,]*,){4}", "")
-            .replace("==> " + name + ": ", "")
-            // Vagrant shows some of the \n verbatim in provisioning command results.
-            .replace("\\n", "\n");
-   }
-
    private Pattern getOsInterfacePattern(OsFamily osFamily) {
       if (osFamily == OsFamily.WINDOWS) {
          return PATTERN_IPCONFIG;
@@ -156,11 +189,8 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       }
    }
 
-   private Collection<String> getNetworks(String output, Pattern ifPattern) {
-      String networks = getDelimitedString(
-            output,
-            VagrantConstants.DELIMITER_NETWORKS_START,
-            VagrantConstants.DELIMITER_NETWORKS_END);
+   private Collection<String> getNetworks(String name, ProvisioningOutput output, Pattern ifPattern) {
+      String networks = checkDelimited(name, output.networks(), VagrantConstants.DELIMITER_NETWORKS_START);
       Matcher m = ifPattern.matcher(networks);
       Collection<String> ips = new ArrayList<String>();
       while (m.find()) {
@@ -170,44 +200,48 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       return ips;
    }
 
-   private String getHostname(String output) {
-      return getDelimitedString(
-            output,
-            VagrantConstants.DELIMITER_HOSTNAME_START,
-            VagrantConstants.DELIMITER_HOSTNAME_END);
+   private String getHostname(String name, ProvisioningOutput output) {
+      return checkDelimited(name, output.hostname(), VagrantConstants.DELIMITER_HOSTNAME_START);
    }
 
-   private String getDelimitedString(String value, String delimStart, String delimEnd) {
-      int startPos = value.indexOf(delimStart);
-      int endPos = value.indexOf(delimEnd);
-      if (startPos == -1) {
-         throw new IllegalStateException("Delimiter " + delimStart + " not found in output \n" + value);
-      }
-      if (endPos == -1) {
-         throw new IllegalStateException("Delimiter " + delimEnd + " not found in output \n" + value);
+   private String checkDelimited(String name, String value, String delimStart) {
+      if (value == null) {
+         throw new IllegalStateException("Block " + delimStart + " not found in the output of machine " + name +
+               ", see the jclouds.wire log for the full output");
       }
-      return value.substring(startPos + delimStart.length(), endPos).trim();
+      return value;
    }
 
-   private void init(File path, String name, Template template) {
+   private void init(File path, String name, Map<String, Object> config) {
       try {
-         writeVagrantfile(path);
-         initMachineConfig(path, name, template);
+         VagrantUtils.writeVagrantfile(path);
+         initMachineConfig(path, name, config);
       } catch (IOException e) {
          throw new IllegalStateException("Unable to initialize Vagrant configuration at " +
                path + " for machine " + name, e);
       }
    }
 
-   private void writeVagrantfile(File path) throws IOException {
-      path.mkdirs();
-      VagrantUtils.write(
-            new File(path, VagrantConstants.VAGRANTFILE),
-            getClass().getClassLoader().getResourceAsStream(VagrantConstants.VAGRANTFILE));
+   /**
+    * Brings a machine up, waiting for a free slot if too many machines are being brought up already.
+    */
+   private ProvisioningOutput up(VagrantApiFacade vagrant, String name, String provider) {
+      machineLocks.acquireUp();
+      try {
+         return vagrant.up(name, provider);
+      } finally {
+         machineLocks.releaseUp();
+      }
+   }
+
+   private void initMachineConfig(File path, String name, Map<String, Object> config) {
+      MachineConfig machineConfig = machineConfigFactory.newInstance(path, name);
+      machineConfig.save(config);
+      // Saves the next startup from parsing the config
+      machineIndex.put(path.getName() + "/" + name, machineConfig.getConfigPath().lastModified(), machineConfig.load());
    }
 
-   private void initMachineConfig(File path, String name, Template template) {
-      MachineConfig config = machineConfigFactory.newInstance(path, name);
+   private Map<String, Object> machineConfig(Template template) {
       List<? extends Volume> volumes = template.getHardware().getVolumes();
       if (volumes != null) {
          if (volumes.size() == 1) {
@@ -219,12 +253,14 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
             throw new IllegalStateException("Custom volume settings not supported. Volumes required: " + volumes);
          }
       }
-      config.save(ImmutableMap.<String, Object>of(
-            VagrantConstants.CONFIG_BOX, template.getImage().getName(),
-            VagrantConstants.CONFIG_OS_FAMILY, template.getImage().getOperatingSystem().getFamily(),
-            VagrantConstants.CONFIG_HARDWARE_ID, getHardwareId(template),
-            VagrantConstants.CONFIG_MEMORY, Integer.toString(template.getHardware().getRam()),
-            VagrantConstants.CONFIG_CPUS, Integer.toString(countProcessors(template))));
+      return ImmutableMap.<String, Object>builder()
+            .put(VagrantConstants.CONFIG_BOX, template.getImage().getName())
+            .put(VagrantConstants.CONFIG_OS_FAMILY, template.getImage().getOperatingSystem().getFamily())
+            .put(VagrantConstants.CONFIG_HARDWARE_ID, getHardwareId(template))
+            .put(VagrantConstants.CONFIG_MEMORY, Integer.toString(template.getHardware().getRam()))
+            .put(VagrantConstants.CONFIG_CPUS, Integer.toString(countProcessors(template)))
+            .put(VagrantConstants.CONFIG_PROVIDER, template.getImage().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER))
+            .build();
    }
 
    private String getHardwareId(Template template) {
@@ -268,16 +304,11 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
 
    @Override
    public VagrantNode getNode(String id) {
-      // needed for BaseComputeServiceLiveTest.testAScriptExecutionAfterBootWithBasicTemplate()
-      // waits for the thread updating the credentialStore to execute
-      try {
-         Thread.sleep(200);
-      } catch (InterruptedException e) {
-         Thread.currentThread().interrupt();
-         throw Throwables.propagate(e);
+      VagrantNode node = nodeRegistry.get(id);
+      if (node != null) {
+         statusRefresher.refresh(ImmutableList.of(node));
       }
-
-      return nodeRegistry.get(id);
+      return node;
    }
 
    @Override
@@ -286,19 +317,34 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       node.setMachineState(Status.TERMINATED);
       getMachine(node).destroy(node.name());
       nodeRegistry.onTerminated(node);
-      deleteMachine(node);
+      // Machines claimed from the pool are in the pool's folder
+      Lock groupLock = machineLocks.groupLock(node.path().getName());
+      groupLock.lock();
+      try {
+         deleteMachine(node);
+      } finally {
+         groupLock.unlock();
+      }
    }
 
    private void deleteMachine(VagrantNode node) {
       File nodeFolder = node.path();
+      // The pool folder holds the Vagrantfile and the members still available, it's never deleted
+      if (nodeFolder.getName().equals(VagrantConstants.POOL_FOLDER)) {
+         logger.debug("Deleting machine %s claimed from the pool", node.id());
+         machinePool.release(node.name());
+         return;
+      }
       File machinesFolder = new File(nodeFolder, VagrantConstants.MACHINES_CONFIG_SUBFOLDER);
       String filePattern = node.name() + ".";
       logger.debug("Deleting machine %s", node.id());
       VagrantUtils.deleteFiles(machinesFolder, filePattern);
+      machineIndex.remove(nodeFolder.getName() + "/" + node.name());
       // No more machines in this group, remove everything
       if (machinesFolder.list().length == 0) {
          logger.debug("Machine %s is last in group, deleting Vagrant folder %s", node.id(), nodeFolder.getAbsolutePath());
          VagrantUtils.deleteFolder(nodeFolder);
+         statusRefresher.invalidate(nodeFolder);
       }
    }
 
@@ -310,7 +356,7 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
       String name = node.name();
       VagrantApiFacade vagrant = getMachine(node);
-      vagrant.up(name, provider);
+      up(vagrant, name, provider);
       node.setMachineState(Status.RUNNING);
    }
 
@@ -334,7 +380,7 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
       String provider = node.image().getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
       String name = node.name();
       VagrantApiFacade vagrant = getMachine(node);
-      vagrant.up(name, provider);
+      up(vagrant, name, provider);
       node.setMachineState(Status.RUNNING);
    }
 
@@ -347,7 +393,9 @@ public class VagrantComputeServiceAdapter implements ComputeServiceAdapter<Vagra
 
    @Override
    public Iterable<VagrantNode> listNodes() {
-      return nodeRegistry.list();
+      Collection<VagrantNode> nodes = nodeRegistry.list();
+      statusRefresher.refresh(nodes);
+      return nodes;
    }
 
    @Override
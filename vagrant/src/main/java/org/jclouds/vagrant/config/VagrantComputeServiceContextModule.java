@@ -37,6 +37,7 @@ import org.jclouds.vagrant.domain.VagrantNode;
 import org.jclouds.vagrant.functions.BoxToImage;
 import org.jclouds.vagrant.functions.MachineToNodeMetadata;
 import org.jclouds.vagrant.functions.OutdatedBoxesFilter;
+import org.jclouds.vagrant.internal.BoxCatalogue;
 import org.jclouds.vagrant.internal.ImageSupplier;
 import org.jclouds.vagrant.internal.VagrantCliFacade;
 import org.jclouds.vagrant.internal.VagrantExistingMachines;
@@ -87,9 +88,12 @@ public class VagrantComputeServiceContextModule extends ComputeServiceAdapterCon
       install(new FactoryModuleBuilder()
             .implement(new TypeLiteral<VagrantBoxApiFacade<Box>>() {}, VagrantCliFacade.class)
             .build(new TypeLiteral<VagrantBoxApiFacade.Factory<Box>>() {}));
+      bind(new TypeLiteral<VagrantBoxApiFacade<Box>>() {
+      }).to(BoxCatalogue.class);
       bind(PopulateDefaultLoginCredentialsForImageStrategy.class).to(VagrantDefaultImageCredentials.class);
       bind(TemplateBuilderImpl.class).to(ArbitraryCpuRamTemplateBuilderImpl.class);
-      bind(CommandIOListener.class).to(VagrantWireLogger.class).in(Singleton.class);
+      // Not a singleton: each facade gets its own logger, so the output of concurrent commands doesn't mix
+      bind(CommandIOListener.class).to(VagrantWireLogger.class);
    }
 
    @Override
@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.domain;
+
+import org.jclouds.javax.annotation.Nullable;
+
+import com.google.auto.value.AutoValue;
+
+/**
+ * What the provisioning scripts of the Vagrantfile report while a machine is brought up. The
+ * values are null when the provisioners didn't run or their output wasn't complete.
+ */
+@AutoValue
+public abstract class ProvisioningOutput {
+
+   /**
+    * The output of the network interfaces command, ip address on Linux and ipconfig on Windows.
+    */
+   @Nullable
+   public abstract String networks();
+
+   @Nullable
+   public abstract String hostname();
+
+   public static ProvisioningOutput create(@Nullable String networks, @Nullable String hostname) {
+      return new AutoValue_ProvisioningOutput(networks, hostname);
+   }
+
+}
@@ -29,6 +29,9 @@ import com.google.auto.value.AutoValue;
 public abstract class VagrantNode {
 
    private volatile Status machineState = Status.PENDING;
+   // Incremented on every change of state, so that a status read in the background doesn't
+   // overwrite a state set by a command in the meantime
+   private long machineStateVersion;
 
    public abstract File path();
 
@@ -67,8 +70,26 @@ public abstract class VagrantNode {
       return machineState;
    }
 
-   public void setMachineState(Status machineState) {
+   public synchronized void setMachineState(Status machineState) {
       this.machineState = machineState;
+      this.machineStateVersion++;
+   }
+
+   public synchronized long machineStateVersion() {
+      return machineStateVersion;
+   }
+
+   /**
+    * Sets the state read from vagrant, unless the state has changed since the given version.
+    *
+    * @return whether the state was set
+    */
+   public synchronized boolean refreshMachineState(Status machineState, long version) {
+      if (version != machineStateVersion) {
+         return false;
+      }
+      this.machineState = machineState;
+      return true;
    }
 
 }
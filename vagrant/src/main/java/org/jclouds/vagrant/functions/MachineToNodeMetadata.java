@@ -48,15 +48,17 @@ public class MachineToNodeMetadata implements Function<VagrantNode, NodeMetadata
 
    @Override
    public NodeMetadata apply(VagrantNode node) {
+      // Differs from the vagrant name for machines claimed from the pool
+      String name = node.id().substring(node.group().length() + 1);
       NodeMetadataBuilder nodeMetadataBuilder = new NodeMetadataBuilder()
             .ids(node.id())
-            .name(node.name())
+            .name(name)
             .group(node.group())
             .imageId(node.image().getId())
             .location(location)
             .hardware(node.hardware())
             .operatingSystem(node.image().getOperatingSystem())
-            .hostname(node.name())
+            .hostname(name)
             .status(node.machineState())
             .loginPort(getLoginPort(node.image()))
             .privateAddresses(node.networks())
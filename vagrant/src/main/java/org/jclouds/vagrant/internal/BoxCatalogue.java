@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.List;
+
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+
+import org.jclouds.logging.Logger;
+import org.jclouds.vagrant.api.VagrantBoxApiFacade;
+import org.jclouds.vagrant.functions.OutdatedBoxesFilter;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+
+import com.google.common.base.Predicate;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+import vagrant.api.domain.Box;
+
+/**
+ * Lists the installed boxes from the folders under $VAGRANT_HOME/boxes instead of running
+ * "vagrant box list". The list is kept until a box, or a version of a box, is added or removed,
+ * as reported by a {@link WatchService} on the folders.
+ */
+@Singleton
+public class BoxCatalogue implements VagrantBoxApiFacade<Box> {
+   private static final FileFilter DIRECTORIES = new FileFilter() {
+      @Override
+      public boolean accept(File pathname) {
+         return pathname.isDirectory();
+      }
+   };
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final File boxesPath;
+   private WatchService watcher;
+   private boolean watchable = true;
+   private final List<WatchKey> watchKeys = Lists.newArrayList();
+   private List<Box> boxes;
+
+   @Inject
+   BoxCatalogue() {
+      this(VagrantUtils.getVagrantHome());
+   }
+
+   BoxCatalogue(File vagrantHome) {
+      this.boxesPath = new File(vagrantHome, VagrantConstants.VAGRANT_BOXES_SUBFOLDER);
+   }
+
+   @Override
+   public Collection<Box> listBoxes() {
+      return boxes();
+   }
+
+   @Override
+   public Box getBox(final String boxName) {
+      Iterable<Box> versions = Iterables.filter(boxes(), new Predicate<Box>() {
+         @Override
+         public boolean apply(Box input) {
+            return boxName.equals(input.getName());
+         }
+      });
+      return Iterables.getOnlyElement(new OutdatedBoxesFilter().apply(ImmutableList.copyOf(versions)), null);
+   }
+
+   private synchronized List<Box> boxes() {
+      if (watcher == null) {
+         // Not watching yet, or the boxes folder doesn't exist
+         boxes = null;
+      } else {
+         WatchKey key;
+         while ((key = watcher.poll()) != null) {
+            key.pollEvents();
+            key.reset();
+            boxes = null;
+         }
+      }
+      if (boxes == null) {
+         boxes = scan();
+      }
+      return boxes;
+   }
+
+   private List<Box> scan() {
+      for (WatchKey key : watchKeys) {
+         key.cancel();
+      }
+      watchKeys.clear();
+      if (!boxesPath.isDirectory()) {
+         return ImmutableList.of();
+      }
+      watch(boxesPath);
+
+      ImmutableList.Builder<Box> result = ImmutableList.builder();
+      for (File boxPath : listDirectories(boxesPath)) {
+         watch(boxPath);
+         String name = boxPath.getName().replace(VagrantConstants.ESCAPE_SLASH, "/");
+         for (File versionPath : listDirectories(boxPath)) {
+            watch(versionPath);
+            for (File providerPath : listDirectories(versionPath)) {
+               result.add(new Box(name, versionPath.getName(), providerPath.getName()));
+            }
+         }
+      }
+      return result.build();
+   }
+
+   private void watch(File path) {
+      if (!watchable) {
+         return;
+      }
+      try {
+         if (watcher == null) {
+            watcher = FileSystems.getDefault().newWatchService();
+         }
+         watchKeys.add(path.toPath().register(watcher, ENTRY_CREATE, ENTRY_DELETE));
+      } catch (IOException e) {
+         // Fall back to listing the boxes on every call, still much cheaper than running vagrant
+         logger.warn(e, "Can't watch %s for changes", path);
+         watchable = false;
+         close();
+      }
+   }
+
+   private static File[] listDirectories(File path) {
+      File[] directories = path.listFiles(DIRECTORIES);
+      return directories != null ? directories : new File[0];
+   }
+
+   @PreDestroy
+   synchronized void close() {
+      if (watcher != null) {
+         try {
+            watcher.close();
+         } catch (IOException e) {
+            logger.warn(e, "Failed closing the watcher of %s", boxesPath);
+         }
+         watcher = null;
+         watchKeys.clear();
+      }
+   }
+
+}
@@ -18,48 +18,64 @@ package org.jclouds.vagrant.internal;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.jclouds.compute.domain.Image;
 import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
 
 import com.google.common.base.Charsets;
 import com.google.common.base.Optional;
 import com.google.common.io.Files;
+import com.google.inject.Singleton;
 
 import vagrant.api.domain.Box;
 
 public class BoxConfig {
+   /**
+    * Reads the Vagrantfile of each box once. The configs are kept until the Vagrantfile changes,
+    * which only happens when the box is removed and added again.
+    */
+   @Singleton
    public static class Factory {
+      private final Map<File, BoxConfig> configs = new ConcurrentHashMap<File, BoxConfig>();
+
       public BoxConfig newInstance(Image image) {
          String provider = image.getUserMetadata().get(VagrantConstants.USER_META_PROVIDER);
-         return new BoxConfig(getVagrantHome(), image.getName(), image.getVersion(), provider);
+         return newInstance(VagrantUtils.getVagrantHome(), image.getName(), image.getVersion(), provider);
       }
 
       public BoxConfig newInstance(Box box) {
-         return this.newInstance(getVagrantHome(), box);
+         return this.newInstance(VagrantUtils.getVagrantHome(), box);
       }
 
       public BoxConfig newInstance(File vagrantHome, Box box) {
-         return new BoxConfig(vagrantHome, box.getName(), box.getVersion(), box.getProvider());
+         return newInstance(vagrantHome, box.getName(), box.getVersion(), box.getProvider());
       }
 
-      private File getVagrantHome() {
-         Optional<String> home = Optional.fromNullable(System.getenv(VagrantConstants.ENV_VAGRANT_HOME));
-         return new File(home.or(VagrantConstants.ENV_VAGRANT_HOME_DEFAULT));
+      private BoxConfig newInstance(File vagrantHome, String name, String version, String provider) {
+         File vagrantfilePath = new File(getProviderPath(vagrantHome, name, version, provider), VagrantConstants.VAGRANTFILE);
+         BoxConfig config = configs.get(vagrantfilePath);
+         if (config == null || config.modified != vagrantfilePath.lastModified()) {
+            config = new BoxConfig(vagrantHome, name, version, provider);
+            configs.put(vagrantfilePath, config);
+         }
+         return config;
       }
 
    }
 
-   private String config;
-   private File providerPath;
+   private final String config;
+   private final File providerPath;
+   private final long modified;
+   private final Map<String, Optional<String>> keys = new ConcurrentHashMap<String, Optional<String>>();
+   private final Map<String, Optional<String>> stringKeys = new ConcurrentHashMap<String, Optional<String>>();
 
    protected BoxConfig(File vagrantHome, String name, String version, String provider) {
-      File boxes = new File(vagrantHome, VagrantConstants.VAGRANT_BOXES_SUBFOLDER);
-      File boxPath = new File(boxes, name.replace("/", VagrantConstants.ESCAPE_SLASH));
-      File versionPath = new File(boxPath, version);
-      File providerPath = new File(versionPath, provider);
+      File providerPath = getProviderPath(vagrantHome, name, version, provider);
       File vagrantfilePath = new File(providerPath, VagrantConstants.VAGRANTFILE);
 
       if (!vagrantfilePath.exists()) {
@@ -68,6 +84,7 @@ public class BoxConfig {
       }
 
       try {
+         modified = vagrantfilePath.lastModified();
          config = Files.toString(vagrantfilePath, Charsets.UTF_8);
       } catch (IOException e) {
          throw new IllegalStateException("Failure reading box '" + name + "'" +
@@ -77,24 +94,39 @@ public class BoxConfig {
       this.providerPath = providerPath;
    }
 
+   static File getProviderPath(File vagrantHome, String name, String version, String provider) {
+      File boxes = new File(vagrantHome, VagrantConstants.VAGRANT_BOXES_SUBFOLDER);
+      File boxPath = new File(boxes, name.replace("/", VagrantConstants.ESCAPE_SLASH));
+      File versionPath = new File(boxPath, version);
+      return new File(versionPath, provider);
+   }
+
    public File getFolder() {
       return providerPath;
    }
 
    public Optional<String> getKey(String key) {
-      String keyQuoted = Pattern.quote(key);
-      String search = keyQuoted + "\\s*=\\s*(.*)";
-      Matcher matcher = Pattern.compile(search).matcher(config);
-      if (matcher.find()) {
-         return Optional.of(matcher.group(1).trim());
-      } else {
-         return Optional.absent();
+      Optional<String> value = keys.get(key);
+      if (value == null) {
+         value = find(Pattern.quote(key) + "\\s*=\\s*(.*)");
+         if (value.isPresent()) {
+            value = Optional.of(value.get().trim());
+         }
+         keys.put(key, value);
       }
+      return value;
    }
 
    public Optional<String> getStringKey(String key) {
-      String keyQuoted = Pattern.quote(key);
-      String search = keyQuoted + "\\s*=\\s*\"(.*)\"";
+      Optional<String> value = stringKeys.get(key);
+      if (value == null) {
+         value = find(Pattern.quote(key) + "\\s*=\\s*\"(.*)\"");
+         stringKeys.put(key, value);
+      }
+      return value;
+   }
+
+   private Optional<String> find(String search) {
       Matcher matcher = Pattern.compile(search).matcher(config);
       if (matcher.find()) {
          return Optional.of(matcher.group(1));
@@ -57,6 +57,10 @@ public class MachineConfig {
             machineName + VagrantConstants.MACHINES_CONFIG_EXTENSION);
    }
 
+   public File getConfigPath() {
+      return configPath;
+   }
+
    public Map<String, Object> load() {
       Map<String, Object> config = new LinkedHashMap<String, Object>();
       Properties yaml = new Properties();
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Map;
+import java.util.Properties;
+
+import javax.annotation.Resource;
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.jclouds.logging.Logger;
+import org.jclouds.util.Closeables2;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Maps;
+import com.google.inject.Singleton;
+
+/**
+ * Keeps the configs of the known machines in a single file in the home folder, so that
+ * listing them on startup doesn't need to parse every machine config. Each entry records the
+ * modification time of the config it was read from; an entry whose config has changed since
+ * is ignored and the config parsed again. The adapter updates the index when it creates or
+ * destroys a machine.
+ */
+@Singleton
+public class MachineIndex {
+   private static final String MODIFIED = "modified";
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final File indexPath;
+
+   @Inject
+   MachineIndex(@Named(VagrantConstants.JCLOUDS_VAGRANT_HOME) String home) {
+      this.indexPath = new File(home, VagrantConstants.MACHINES_INDEX);
+   }
+
+   public static class Entry {
+      private final long modified;
+      private final Map<String, Object> config;
+
+      public Entry(long modified, Map<String, Object> config) {
+         this.modified = modified;
+         this.config = config;
+      }
+
+      public long modified() {
+         return modified;
+      }
+
+      public Map<String, Object> config() {
+         return config;
+      }
+   }
+
+   /**
+    * @return the entries by machine id, empty if there is no index or it can't be read
+    */
+   public synchronized Map<String, Entry> load() {
+      Properties index = new Properties();
+      Reader in;
+      try {
+         in = new InputStreamReader(new FileInputStream(indexPath), Charsets.UTF_8);
+      } catch (FileNotFoundException e) {
+         return Maps.newHashMap();
+      }
+      try {
+         index.load(in);
+      } catch (IOException e) {
+         logger.warn(e, "Failed loading machine index " + indexPath.getAbsolutePath() + ". Ignoring.");
+         return Maps.newHashMap();
+      } finally {
+         Closeables2.closeQuietly(in);
+      }
+
+      // Keys are <group>/<machine>.<config key>, config keys don't contain dots
+      Map<String, Map<String, Object>> configs = Maps.newHashMap();
+      Map<String, Long> modified = Maps.newHashMap();
+      for (String key : index.stringPropertyNames()) {
+         int dot = key.lastIndexOf('.');
+         if (dot == -1) continue;
+         String id = key.substring(0, dot);
+         String configKey = key.substring(dot + 1);
+         if (configKey.equals(MODIFIED)) {
+            try {
+               modified.put(id, Long.parseLong(index.getProperty(key)));
+            } catch (NumberFormatException e) {
+               continue;
+            }
+         } else {
+            Map<String, Object> config = configs.get(id);
+            if (config == null) {
+               config = Maps.newLinkedHashMap();
+               configs.put(id, config);
+            }
+            config.put(configKey, index.getProperty(key));
+         }
+      }
+
+      Map<String, Entry> entries = Maps.newHashMap();
+      for (Map.Entry<String, Long> machine : modified.entrySet()) {
+         Map<String, Object> config = configs.get(machine.getKey());
+         if (config != null) {
+            entries.put(machine.getKey(), new Entry(machine.getValue(), config));
+         }
+      }
+      return entries;
+   }
+
+   /**
+    * Replaces the index. Written to a temporary file first so that a concurrent reader never sees
+    * a partial index.
+    */
+   public synchronized void save(Map<String, Entry> entries) {
+      Properties index = new Properties();
+      for (Map.Entry<String, Entry> machine : entries.entrySet()) {
+         index.setProperty(machine.getKey() + "." + MODIFIED, Long.toString(machine.getValue().modified()));
+         for (Map.Entry<String, Object> config : machine.getValue().config().entrySet()) {
+            index.setProperty(machine.getKey() + "." + config.getKey(), String.valueOf(config.getValue()));
+         }
+      }
+
+      File parent = indexPath.getParentFile();
+      File tmp = new File(parent, indexPath.getName() + ".tmp");
+      Writer out = null;
+      try {
+         parent.mkdirs();
+         out = new OutputStreamWriter(new FileOutputStream(tmp), Charsets.UTF_8);
+         index.store(out, null);
+         out.close();
+         out = null;
+         if (!tmp.renameTo(indexPath) && !(indexPath.delete() && tmp.renameTo(indexPath))) {
+            throw new IOException("Can't rename " + tmp.getAbsolutePath());
+         }
+      } catch (IOException e) {
+         // The index is only an optimization, machines are read from their configs without it
+         logger.warn(e, "Failed writing machine index " + indexPath.getAbsolutePath());
+      } finally {
+         if (out != null) {
+            Closeables2.closeQuietly(out);
+         }
+      }
+   }
+
+   public synchronized void put(String id, long modified, Map<String, Object> config) {
+      Map<String, Entry> entries = load();
+      entries.put(id, new Entry(modified, config));
+      save(entries);
+   }
+
+   public synchronized void remove(String id) {
+      Map<String, Entry> entries = load();
+      if (entries.remove(id) != null) {
+         save(entries);
+      }
+   }
+
+}
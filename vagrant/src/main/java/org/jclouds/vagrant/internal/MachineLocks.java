@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.Lock;
+
+import javax.inject.Named;
+
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.util.concurrent.Striped;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Coordinates the commands run against the machines. Changes to a group folder - its Vagrantfile,
+ * machine configs and the folder itself - are serialized per group. Bringing machines up, resuming
+ * and rebooting them included, takes one of {@link VagrantConstants#JCLOUDS_VAGRANT_MAX_CONCURRENT_UP}
+ * permits, handed out in order.
+ * <p>
+ * The permits only bound the commands jclouds starts at once. The vagrant bindings serialise the
+ * vagrant commands they run, so machines are still brought up one at a time whatever the limit.
+ */
+@Singleton
+public class MachineLocks {
+   private final Striped<Lock> groupLocks = Striped.lazyWeakLock(64);
+   private final int maxConcurrentUp;
+   private final Semaphore upPermits;
+
+   @Inject
+   MachineLocks(@Named(VagrantConstants.JCLOUDS_VAGRANT_MAX_CONCURRENT_UP) int maxConcurrentUp) {
+      this.maxConcurrentUp = maxConcurrentUp;
+      this.upPermits = new Semaphore(maxConcurrentUp, true);
+   }
+
+   public Lock groupLock(String group) {
+      return groupLocks.get(group);
+   }
+
+   public void acquireUp() {
+      upPermits.acquireUninterruptibly();
+   }
+
+   public void releaseUp() {
+      upPermits.release();
+   }
+
+   /**
+    * Waits until no machine is being brought up and keeps machines from being brought up until
+    * {@link #releaseExclusive()}. For the commands run outside of the vagrant bindings, which don't
+    * serialise them with the others.
+    */
+   public void acquireExclusive() {
+      upPermits.acquireUninterruptibly(maxConcurrentUp);
+   }
+
+   public void releaseExclusive() {
+      upPermits.release(maxConcurrentUp);
+   }
+
+}
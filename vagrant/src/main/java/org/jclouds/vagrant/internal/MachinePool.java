@@ -0,0 +1,298 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+
+import org.jclouds.Constants;
+import org.jclouds.logging.Logger;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Optional;
+import com.google.common.collect.ArrayListMultimap;
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ListMultimap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multiset;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Keeps {@link VagrantConstants#JCLOUDS_VAGRANT_POOL_SIZE} halted machines ready for each
+ * profile - box, hardware and provider - that nodes were created with. The members live in their
+ * own folder and have already been brought up once, so the box is imported and the machine
+ * cloned. Creating a node claims a member, which then only needs a "vagrant up" from halted.
+ * <p>
+ * A claimed member keeps its vagrant name and folder. The id of the node it was claimed for is
+ * saved in its machine config, under which {@link VagrantExistingMachines} lists it. Unclaimed
+ * members are taken over by the pool of the next run.
+ */
+@Singleton
+public class MachinePool {
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final File path;
+   private final int size;
+   private final int maxConcurrentRefills;
+   private final MachineConfig.Factory machineConfigFactory;
+   private final MachineIndex machineIndex;
+   private final MachineLocks machineLocks;
+   private final VagrantApiFacade.Factory cliFactory;
+   private final ListeningExecutorService executor;
+
+   // Guarded by this
+   private final ListMultimap<String, String> available = ArrayListMultimap.create();
+   private final Multiset<String> pending = HashMultiset.create();
+   private final Queue<Map<String, Object>> refills = Lists.newLinkedList();
+   private int refillWorkers;
+
+   private final Runnable refillWorker = new Runnable() {
+      @Override
+      public void run() {
+         while (true) {
+            Map<String, Object> config;
+            synchronized (MachinePool.this) {
+               config = refills.poll();
+               if (config == null) {
+                  refillWorkers--;
+                  return;
+               }
+            }
+            String profile = profile(config);
+            String member = null;
+            try {
+               member = createMember(config);
+            } catch (RuntimeException e) {
+               // Not retried until the next claim of the profile
+               logger.warn(e, "Failed adding a machine for %s to the pool", profile);
+            }
+            synchronized (MachinePool.this) {
+               pending.remove(profile);
+               if (member != null) {
+                  available.put(profile, member);
+               }
+            }
+         }
+      }
+   };
+
+   @Inject
+   MachinePool(@Named(VagrantConstants.JCLOUDS_VAGRANT_HOME) String home,
+         @Named(VagrantConstants.JCLOUDS_VAGRANT_POOL_SIZE) int size,
+         @Named(VagrantConstants.JCLOUDS_VAGRANT_POOL_MAX_CONCURRENT_REFILLS) int maxConcurrentRefills,
+         MachineConfig.Factory machineConfigFactory,
+         MachineIndex machineIndex,
+         MachineLocks machineLocks,
+         VagrantApiFacade.Factory cliFactory,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService executor) {
+      this.path = new File(home, VagrantConstants.POOL_FOLDER);
+      this.size = size;
+      this.maxConcurrentRefills = maxConcurrentRefills;
+      this.machineConfigFactory = machineConfigFactory;
+      this.machineIndex = machineIndex;
+      this.machineLocks = machineLocks;
+      this.cliFactory = cliFactory;
+      this.executor = executor;
+      if (isEnabled()) {
+         executor.submit(new Runnable() {
+            @Override
+            public void run() {
+               adoptMembers();
+            }
+         });
+      }
+   }
+
+   public boolean isEnabled() {
+      return size > 0;
+   }
+
+   public File getPath() {
+      return path;
+   }
+
+   /**
+    * Claims a halted member matching the machine config for the given node and starts replacing it
+    * in the background.
+    *
+    * @return the vagrant name of the member, absent if none is ready
+    */
+   public Optional<String> claim(Map<String, Object> config, String nodeId) {
+      String profile = profile(config);
+      String member = null;
+      synchronized (this) {
+         List<String> members = available.get(profile);
+         if (!members.isEmpty()) {
+            member = members.remove(0);
+         }
+      }
+      refill(config);
+      if (member == null) {
+         return Optional.absent();
+      }
+
+      Lock groupLock = machineLocks.groupLock(path.getName());
+      groupLock.lock();
+      try {
+         MachineConfig machineConfig = machineConfigFactory.newInstance(path, member);
+         Map<String, Object> memberConfig = machineConfig.load();
+         memberConfig.put(VagrantConstants.CONFIG_NODE_ID, nodeId);
+         machineConfig.save(memberConfig);
+         machineIndex.put(path.getName() + "/" + member, machineConfig.getConfigPath().lastModified(), memberConfig);
+         return Optional.of(member);
+      } catch (RuntimeException e) {
+         logger.warn(e, "Failed claiming machine %s from the pool, creating %s from the box", member, nodeId);
+         return Optional.absent();
+      } finally {
+         groupLock.unlock();
+      }
+   }
+
+   /**
+    * Deletes the files of a claimed member once its node has been destroyed. The pool folder is
+    * kept, even when the member was the last one in it.
+    */
+   public void release(String member) {
+      Lock groupLock = machineLocks.groupLock(path.getName());
+      groupLock.lock();
+      try {
+         VagrantUtils.deleteFiles(new File(path, VagrantConstants.MACHINES_CONFIG_SUBFOLDER), member + ".");
+         machineIndex.remove(path.getName() + "/" + member);
+      } finally {
+         groupLock.unlock();
+      }
+   }
+
+   private synchronized void refill(Map<String, Object> config) {
+      String profile = profile(config);
+      for (int i = available.get(profile).size() + pending.count(profile); i < size; i++) {
+         pending.add(profile);
+         refills.add(ImmutableMap.copyOf(config));
+      }
+      while (refillWorkers < maxConcurrentRefills && !refills.isEmpty()) {
+         refillWorkers++;
+         try {
+            executor.submit(refillWorker);
+         } catch (RuntimeException e) {
+            refillWorkers--;
+            throw e;
+         }
+      }
+   }
+
+   private String createMember(Map<String, Object> config) {
+      String member;
+      Lock groupLock = machineLocks.groupLock(path.getName());
+      groupLock.lock();
+      try {
+         VagrantUtils.writeVagrantfile(path);
+         do {
+            member = VagrantConstants.POOL_MEMBER_PREFIX + UUID.randomUUID().toString().substring(0, 8);
+         } while (machineConfigFactory.newInstance(path, member).getConfigPath().exists());
+         machineConfigFactory.newInstance(path, member).save(config);
+      } catch (IOException e) {
+         throw new IllegalStateException("Unable to initialize Vagrant configuration at " + path, e);
+      } finally {
+         groupLock.unlock();
+      }
+
+      logger.debug("Adding machine %s for %s to the pool", member, profile(config));
+      VagrantApiFacade vagrant = cliFactory.create(path);
+      try {
+         machineLocks.acquireUp();
+         try {
+            vagrant.up(member, (String) config.get(VagrantConstants.CONFIG_PROVIDER));
+         } finally {
+            machineLocks.releaseUp();
+         }
+         vagrant.halt(member);
+      } catch (RuntimeException e) {
+         discardMember(vagrant, member);
+         throw e;
+      }
+      return member;
+   }
+
+   private void discardMember(VagrantApiFacade vagrant, String member) {
+      try {
+         vagrant.destroy(member);
+      } catch (RuntimeException e) {
+         logger.warn(e, "Failed destroying pool machine %s", member);
+      }
+      Lock groupLock = machineLocks.groupLock(path.getName());
+      groupLock.lock();
+      try {
+         machineConfigFactory.newInstance(path, member).getConfigPath().delete();
+      } finally {
+         groupLock.unlock();
+      }
+   }
+
+   // Members left by a previous run are assumed to be halted, "vagrant up" copes if they aren't
+   private void adoptMembers() {
+      File[] configs = new File(path, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).listFiles();
+      if (configs == null) return;
+      Map<String, String> members = Maps.newLinkedHashMap();
+      for (File config : configs) {
+         String name = config.getName();
+         if (!name.startsWith(VagrantConstants.POOL_MEMBER_PREFIX) || !name.endsWith(VagrantConstants.MACHINES_CONFIG_EXTENSION)) {
+            continue;
+         }
+         String member = name.substring(0, name.length() - VagrantConstants.MACHINES_CONFIG_EXTENSION.length());
+         try {
+            Map<String, Object> memberConfig = machineConfigFactory.newInstance(path, member).load();
+            if (!memberConfig.containsKey(VagrantConstants.CONFIG_NODE_ID)) {
+               members.put(member, profile(memberConfig));
+            }
+         } catch (RuntimeException e) {
+            logger.debug("Failed loading pool machine " + config.getAbsolutePath() + ". Skipping.", e);
+         }
+      }
+      synchronized (this) {
+         for (Map.Entry<String, String> member : members.entrySet()) {
+            available.put(member.getValue(), member.getKey());
+         }
+      }
+      logger.debug("Adopted %d machines into the pool", members.size());
+   }
+
+   private static String profile(Map<String, Object> config) {
+      return Joiner.on('/').useForNull("").join(
+            config.get(VagrantConstants.CONFIG_BOX),
+            config.get(VagrantConstants.CONFIG_HARDWARE_ID),
+            config.get(VagrantConstants.CONFIG_MEMORY),
+            config.get(VagrantConstants.CONFIG_CPUS),
+            config.get(VagrantConstants.CONFIG_PROVIDER));
+   }
+
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.util.regex.Pattern;
+
+import org.jclouds.vagrant.domain.ProvisioningOutput;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.base.Splitter;
+
+import vagrant.api.CommandIOListener;
+
+/**
+ * Extracts the networks and hostname blocks from the machine readable output of "vagrant up" as
+ * it streams by. Only the incomplete last line and the content of the block being read are kept,
+ * the rest of the output is discarded.
+ */
+public class ProvisioningOutputParser implements CommandIOListener {
+   private static final Pattern MACHINE_READABLE_PREFIX = Pattern.compile("^([^,]*,){4}");
+   // Vagrant shows some of the \n verbatim in provisioning command results.
+   private static final Splitter ESCAPED_NEWLINE = Splitter.on("\\n");
+
+   private enum Block {
+      NONE, NETWORKS, HOSTNAME
+   }
+
+   private final String namePrefix;
+   private final StringBuilder partialLine = new StringBuilder();
+   private final StringBuilder blockContent = new StringBuilder();
+   private Block block = Block.NONE;
+   private String networks;
+   private String hostname;
+
+   public ProvisioningOutputParser(String machineName) {
+      this.namePrefix = "==> " + machineName + ": ";
+   }
+
+   @Override
+   public void onInput(String input) {
+   }
+
+   @Override
+   public void onOutput(String output) {
+      if (output == null) {
+         flush();
+         return;
+      }
+      int start = 0;
+      int end;
+      while ((end = output.indexOf('\n', start)) != -1) {
+         if (partialLine.length() > 0) {
+            partialLine.append(output, start, end);
+            onLine(partialLine.toString());
+            partialLine.setLength(0);
+         } else {
+            onLine(output.substring(start, end));
+         }
+         start = end + 1;
+      }
+      partialLine.append(output, start, output.length());
+   }
+
+   /**
+    * Whether both blocks have been read, the rest of the output can be ignored.
+    */
+   public boolean isComplete() {
+      return networks != null && hostname != null;
+   }
+
+   public ProvisioningOutput getOutput() {
+      flush();
+      return ProvisioningOutput.create(networks, hostname);
+   }
+
+   private void flush() {
+      if (partialLine.length() > 0) {
+         onLine(partialLine.toString());
+         partialLine.setLength(0);
+      }
+   }
+
+   private void onLine(String line) {
+      if (isComplete()) {
+         return;
+      }
+      String text = MACHINE_READABLE_PREFIX.matcher(line).replaceFirst("").replace(namePrefix, "");
+      for (String logicalLine : ESCAPED_NEWLINE.split(text)) {
+         onLogicalLine(logicalLine);
+      }
+   }
+
+   private void onLogicalLine(String line) {
+      switch (block) {
+         case NONE:
+            if (networks == null && line.contains(VagrantConstants.DELIMITER_NETWORKS_START)) {
+               block = Block.NETWORKS;
+            } else if (hostname == null && line.contains(VagrantConstants.DELIMITER_HOSTNAME_START)) {
+               block = Block.HOSTNAME;
+            }
+            break;
+         case NETWORKS:
+            if (line.contains(VagrantConstants.DELIMITER_NETWORKS_END)) {
+               networks = endBlock();
+            } else {
+               blockContent.append(line).append('\n');
+            }
+            break;
+         case HOSTNAME:
+            if (line.contains(VagrantConstants.DELIMITER_HOSTNAME_END)) {
+               hostname = endBlock();
+            } else {
+               blockContent.append(line).append('\n');
+            }
+            break;
+         default:
+            throw new IllegalStateException("Unexpected block " + block);
+      }
+   }
+
+   private String endBlock() {
+      String content = blockContent.toString().trim();
+      blockContent.setLength(0);
+      block = Block.NONE;
+      return content;
+   }
+
+}
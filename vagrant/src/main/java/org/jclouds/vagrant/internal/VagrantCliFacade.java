@@ -18,15 +18,23 @@ package org.jclouds.vagrant.internal;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.Charset;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 
 import org.jclouds.domain.LoginCredentials;
 import org.jclouds.vagrant.api.VagrantApiFacade;
 import org.jclouds.vagrant.api.VagrantBoxApiFacade;
+import org.jclouds.vagrant.domain.ProvisioningOutput;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Predicate;
+import com.google.common.base.Splitter;
 import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
 import com.google.common.io.Files;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
@@ -38,25 +46,35 @@ import vagrant.api.domain.Box;
 import vagrant.api.domain.SshConfig;
 
 public class VagrantCliFacade implements VagrantApiFacade, VagrantBoxApiFacade<Box> {
+   private static final String STATUS_COMMAND = "vagrant status --machine-readable";
+
+   private final File path;
+   private final CommandIOListener wireLogger;
    private final VagrantApi vagrant;
    private final VagrantOutputRecorder outputRecorder;
 
    @AssistedInject
    VagrantCliFacade(CommandIOListener wireLogger, @Assisted File path) {
+      this.path = path;
+      this.wireLogger = wireLogger;
       this.outputRecorder = new VagrantOutputRecorder(wireLogger);
       this.vagrant = Vagrant.forPath(path, outputRecorder);
    }
 
    @AssistedInject
    VagrantCliFacade(CommandIOListener wireLogger) {
-      this.outputRecorder = new VagrantOutputRecorder(wireLogger);
-      this.vagrant = Vagrant.forPath(new File("."), outputRecorder);
+      this(wireLogger, new File("."));
    }
 
    @Override
-   public String up(String machineName, String provider) {
-      outputRecorder.record();
-      vagrant.up(machineName, provider);
+   public ProvisioningOutput up(String machineName, String provider) {
+      outputRecorder.record(machineName);
+      try {
+         vagrant.up(machineName, provider);
+      } catch (RuntimeException e) {
+         outputRecorder.stopRecording();
+         throw e;
+      }
       return outputRecorder.stopRecording();
    }
 
@@ -110,4 +128,48 @@ public class VagrantCliFacade implements VagrantApiFacade, VagrantBoxApiFacade<B
       return vagrant.exists();
    }
 
+   @Override
+   public Map<String, String> machineStates() {
+      wireLogger.onInput(STATUS_COMMAND);
+      String output;
+      int exitCode;
+      try {
+         Process process = new ProcessBuilder(Splitter.on(' ').splitToList(STATUS_COMMAND))
+               .directory(path)
+               .redirectErrorStream(true)
+               .start();
+         process.getOutputStream().close();
+         InputStream in = process.getInputStream();
+         try {
+            output = new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+         } finally {
+            in.close();
+         }
+         exitCode = process.waitFor();
+      } catch (IOException e) {
+         throw new IllegalStateException("Failed executing " + STATUS_COMMAND + " in " + path, e);
+      } catch (InterruptedException e) {
+         Thread.currentThread().interrupt();
+         throw new IllegalStateException("Interrupted executing " + STATUS_COMMAND + " in " + path, e);
+      }
+      wireLogger.onOutput(output);
+      wireLogger.onOutput(null);
+      if (exitCode != 0) {
+         throw new IllegalStateException(STATUS_COMMAND + " failed in " + path + " with exit code " + exitCode);
+      }
+      return parseMachineStates(output);
+   }
+
+   // Machine readable lines are "timestamp,target,type,data..."
+   static Map<String, String> parseMachineStates(String output) {
+      Map<String, String> states = Maps.newLinkedHashMap();
+      for (String line : Splitter.on('\n').omitEmptyStrings().trimResults().split(output)) {
+         List<String> fields = Splitter.on(',').limit(4).splitToList(line);
+         if (fields.size() == 4 && fields.get(2).equals("state") && !fields.get(1).isEmpty()) {
+            states.put(fields.get(1), fields.get(3));
+         }
+      }
+      return states;
+   }
+
 }
@@ -16,9 +16,14 @@
  */
 package org.jclouds.vagrant.internal;
 
+import static com.google.common.util.concurrent.MoreExecutors.listeningDecorator;
+import static com.google.common.util.concurrent.MoreExecutors.sameThreadExecutor;
+
 import java.io.File;
 import java.util.Collection;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -39,7 +44,20 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+/**
+ * Lists the machines created by jclouds in the home folder. The machine configs are taken from
+ * the {@link MachineIndex} when it's up to date, and parsed in parallel otherwise, while the boxes
+ * are listed by vagrant.
+ * <p>
+ * The configs are parsed by threads of their own, started for the load, rather than on the user
+ * executor: the load itself runs there, in the background, and would wait for tasks queued behind it
+ * when the user threads are bounded.
+ */
 public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>> {
    @Resource
    protected Logger logger = Logger.NULL;
@@ -48,45 +66,122 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
    private final MachineConfig.Factory machineConfigFactory;
    private final Supplier<Collection<Image>> imageLister;
    private final Supplier<? extends Map<String, Hardware>> hardwareSupplier;
+   private final MachineIndex machineIndex;
+   private final int parseThreads;
 
    @Inject
    VagrantExistingMachines(@Named(VagrantConstants.JCLOUDS_VAGRANT_HOME) String home,
          MachineConfig.Factory machineConfigFactory,
          Supplier<Collection<Image>> imageLister,
-         Supplier<? extends Map<String, Hardware>> hardwareSupplier) {
+         Supplier<? extends Map<String, Hardware>> hardwareSupplier,
+         MachineIndex machineIndex) {
+      this(home, machineConfigFactory, imageLister, hardwareSupplier, machineIndex,
+            Runtime.getRuntime().availableProcessors());
+   }
+
+   VagrantExistingMachines(String home,
+         MachineConfig.Factory machineConfigFactory,
+         Supplier<Collection<Image>> imageLister,
+         Supplier<? extends Map<String, Hardware>> hardwareSupplier,
+         MachineIndex machineIndex,
+         int parseThreads) {
       this.home = new File(home);
       this.machineConfigFactory = machineConfigFactory;
       this.imageLister = imageLister;
       this.hardwareSupplier = hardwareSupplier;
+      this.machineIndex = machineIndex;
+      this.parseThreads = parseThreads;
+   }
+
+   VagrantExistingMachines(String home,
+         MachineConfig.Factory machineConfigFactory,
+         Supplier<Collection<Image>> imageLister,
+         Supplier<? extends Map<String, Hardware>> hardwareSupplier) {
+      this(home, machineConfigFactory, imageLister, hardwareSupplier, new MachineIndex(home), 1);
    }
 
    @Override
    public Collection<VagrantNode> get() {
       File[] groups = home.listFiles();
       if (groups == null) return ImmutableList.of();
-      Map<String, Image> images = getImages();
-      Collection<VagrantNode> nodes = Lists.newArrayList();
+
+      Map<String, MachineIndex.Entry> index = machineIndex.load();
+      Map<String, MachineIndex.Entry> updatedIndex = Maps.newHashMap();
+      Map<File, File> machineGroups = Maps.newLinkedHashMap();
+      Map<File, File> changed = Maps.newLinkedHashMap();
       for (File group : groups) {
          File[] machines = new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER).listFiles();
          if (machines == null) continue;
          for (File machine : machines) {
             if (machine.getName().endsWith(VagrantConstants.MACHINES_CONFIG_EXTENSION)) {
-               try {
-                  VagrantNode node = createMachine(group, machine, images);
-                  if (node != null) {
-                     nodes.add(node);
-                  }
-               } catch (RuntimeException e) {
-                  // Skip image, something is broken about it.
-                  // Most probable cause is that another process just deleted it.
-                  logger.debug("Failed loading machine " + machine.getAbsolutePath() + ". Skipping.", e);
+               machineGroups.put(machine, group);
+               MachineIndex.Entry entry = index.get(id(group, machine));
+               if (entry == null || entry.modified() != machine.lastModified()) {
+                  changed.put(machine, group);
                }
             }
          }
       }
+
+      ListeningExecutorService parser = parser(changed.size());
+      Map<String, Image> imageMap;
+      Map<File, ListenableFuture<MachineIndex.Entry>> configs = Maps.newHashMap();
+      try {
+         for (Map.Entry<File, File> machineGroup : changed.entrySet()) {
+            configs.put(machineGroup.getKey(), loadConfig(parser, machineGroup.getValue(), machineGroup.getKey()));
+         }
+         // Lists the boxes while the configs are parsed
+         imageMap = getImages();
+      } finally {
+         // Lets the parsing in progress complete
+         parser.shutdown();
+      }
+
+      Collection<VagrantNode> nodes = Lists.newArrayList();
+      for (Map.Entry<File, File> machineGroup : machineGroups.entrySet()) {
+         File machine = machineGroup.getKey();
+         File group = machineGroup.getValue();
+         try {
+            ListenableFuture<MachineIndex.Entry> config = configs.get(machine);
+            MachineIndex.Entry entry = config != null ? Futures.getUnchecked(config) : index.get(id(group, machine));
+            updatedIndex.put(id(group, machine), entry);
+            VagrantNode node = createMachine(group, machine, entry.config(), imageMap);
+            if (node != null) {
+               nodes.add(node);
+            }
+         } catch (RuntimeException e) {
+            // Skip image, something is broken about it.
+            // Most probable cause is that another process just deleted it.
+            logger.debug("Failed loading machine " + machine.getAbsolutePath() + ". Skipping.", e);
+         }
+      }
+      if (!changed.isEmpty() || !updatedIndex.keySet().equals(index.keySet())) {
+         machineIndex.save(updatedIndex);
+      }
       return nodes;
    }
 
+   private ListeningExecutorService parser(int configs) {
+      int threads = Math.min(parseThreads, configs);
+      if (threads <= 1) {
+         return sameThreadExecutor();
+      }
+      return listeningDecorator(Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+            .setNameFormat("vagrant-machine-config-%d").setDaemon(true).build()));
+   }
+
+   private ListenableFuture<MachineIndex.Entry> loadConfig(ListeningExecutorService parser, final File group,
+         final File machine) {
+      return parser.submit(new Callable<MachineIndex.Entry>() {
+         @Override
+         public MachineIndex.Entry call() {
+            // Read the time first so that a concurrent change gets the config parsed again next time
+            long modified = machine.lastModified();
+            return new MachineIndex.Entry(modified, machineConfigFactory.newInstance(group, machineName(machine)).load());
+         }
+      });
+   }
+
    private Map<String, Image> getImages() {
       Collection<Image> images = imageLister.get();
       Map<String, Image> imageMap = Maps.newHashMap();
@@ -96,13 +191,30 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
       return imageMap;
    }
 
+   private static String machineName(File machine) {
+      return machine.getName().replace(VagrantConstants.MACHINES_CONFIG_EXTENSION, "");
+   }
+
+   private static String id(File group, File machine) {
+      return group.getName() + "/" + machineName(machine);
+   }
+
    // Build minimum viable VagrantNode. Just enough to allow users to halt the machine.
    // If this is found to be inadequate need to keep the missing information in the config
    // file as we can't always fetch it at this point (machine is halted or Windows).
-   private VagrantNode createMachine(File group, File machine, Map<String, Image> images) {
-      String machineName = machine.getName().replace(VagrantConstants.MACHINES_CONFIG_EXTENSION, "");
-      String id = group.getName() + "/" + machineName;
-      Map<String, Object> config = machineConfigFactory.newInstance(group, machineName).load();
+   private VagrantNode createMachine(File group, File machine, Map<String, Object> config, Map<String, Image> images) {
+      String machineName = machineName(machine);
+      String id = id(group, machine);
+      String groupName = group.getName();
+      Object nodeId = config.get(VagrantConstants.CONFIG_NODE_ID);
+      if (nodeId != null) {
+         // Claimed from the pool
+         id = nodeId.toString();
+         groupName = id.substring(0, id.indexOf('/'));
+      } else if (groupName.equals(VagrantConstants.POOL_FOLDER)) {
+         // Not claimed yet, held by the MachinePool
+         return null;
+      }
       String imageName = (String) config.get(VagrantConstants.CONFIG_BOX);
       Image image = images.get(imageName);
       if (image == null) {
@@ -119,7 +231,7 @@ public class VagrantExistingMachines implements Supplier<Collection<VagrantNode>
       VagrantNode node = VagrantNode.builder()
             .setPath(group)
             .setId(id)
-            .setGroup(group.getName())
+            .setGroup(groupName)
             .setName(machineName)
             .setImage(image)
             .setHardware(hardware)
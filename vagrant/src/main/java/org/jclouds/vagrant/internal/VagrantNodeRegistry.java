@@ -20,10 +20,16 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import javax.annotation.Resource;
+import javax.inject.Named;
+
+import org.jclouds.Constants;
+import org.jclouds.logging.Logger;
 import org.jclouds.vagrant.domain.VagrantNode;
 
 import com.google.common.base.Supplier;
 import com.google.common.base.Suppliers;
+import com.google.common.util.concurrent.ListeningExecutorService;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
 
@@ -78,13 +84,15 @@ import com.google.inject.Singleton;
  * problems when it's executed in parallel. Currently the vagrant bindings explicitly serialise
  * execs of vagrant.
  * <p>
- * 3. Machine status can reliably be inferred. The key here is that the vagrant commands are
+ * 3. Machine status can mostly be inferred. The key here is that the vagrant commands are
  * synchronous. If "vagrant up" completes successfully then the status is RUNNING. If it fails
  * an exception propagates and signals an error. This makes it possible to save on expensive
  * state polling. It gets more obvious when several machines are spun up in parallel. Since
  * vagrant commands are executed sequentially a vagrant up would block other vagrant status
  * commands for quite a while.
- * Possible improvements: time out the status value, refreshing it after some period on request
+ * The state of machines from previous runs, or changed outside of jclouds, is read in the
+ * background by {@link VagrantStatusRefresher}, once per group and at most every
+ * {@link org.jclouds.vagrant.reference.VagrantConstants#JCLOUDS_VAGRANT_STATUS_TTL} seconds.
  * <p>
  * The registry allows us to really streamline machine creation. All it takes is a single
  * "vagrant up". It needs around a minute to return a usable machine (obviously depends on the
@@ -93,8 +101,11 @@ import com.google.inject.Singleton;
  * <p>
  * Expiring (and refreshing) machine list while running might not be wanted - would result in
  * parallel execution of vagrant command against another's process machines. Virtualbox (vboxmanage)
- * fails indeterministically when executed in parallel. Expiring the status would be a nice
- * improvement.
+ * fails indeterministically when executed in parallel.
+ * <p>
+ * The machine list is loaded, and the state of the machines read, in the background as soon as the
+ * registry is created, so that it's usually ready by the time it's first needed. Callers arriving earlier wait for the load in
+ * progress instead of starting another one.
  */
 @Singleton
 public class VagrantNodeRegistry {
@@ -117,9 +128,30 @@ public class VagrantNodeRegistry {
 
    }
 
+   @Resource
+   protected Logger logger = Logger.NULL;
+
    private final Supplier<Map<String, VagrantNode>> nodes;
 
    @Inject
+   VagrantNodeRegistry(Supplier<Collection<VagrantNode>> existingMachines,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService executor,
+         final VagrantStatusRefresher statusRefresher) {
+      this(existingMachines);
+      executor.submit(new Runnable() {
+         @Override
+         public void run() {
+            try {
+               // Rediscovered machines start UNRECOGNIZED until their state is read
+               statusRefresher.refresh(list());
+            } catch (RuntimeException e) {
+               // Loaded again on first use
+               logger.warn(e, "Failed loading existing machines in the background");
+            }
+         }
+      });
+   }
+
    VagrantNodeRegistry(Supplier<Collection<VagrantNode>> existingMachines) {
       this.nodes = Suppliers.memoize(new ConcurrentWrapperSupplier(existingMachines));
    }
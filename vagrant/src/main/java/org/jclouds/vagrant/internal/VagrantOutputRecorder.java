@@ -16,43 +16,44 @@
  */
 package org.jclouds.vagrant.internal;
 
+import org.jclouds.vagrant.domain.ProvisioningOutput;
+
 import vagrant.api.CommandIOListener;
 
 public class VagrantOutputRecorder implements CommandIOListener {
 
    private CommandIOListener next;
-   private StringBuilder output = new StringBuilder();
-   private boolean isRecording;
+   private ProvisioningOutputParser parser;
 
    public VagrantOutputRecorder(CommandIOListener next) {
       this.next = next;
    }
 
    @Override
-   public void onInput(String input) {
-      if (isRecording) {
+   public synchronized void onInput(String input) {
+      if (parser != null) {
          next.onInput(input);
       }
    }
 
    @Override
-   public void onOutput(String output) {
-      if (isRecording) {
+   public synchronized void onOutput(String output) {
+      if (parser != null) {
          next.onOutput(output);
-         if (output != null) {
-            this.output.append(output);
-         }
+         parser.onOutput(output);
       }
    }
 
-   public void record() {
-      isRecording = true;
+   public synchronized void record(String machineName) {
+      parser = new ProvisioningOutputParser(machineName);
    }
 
-   public String stopRecording() {
-      isRecording = false;
-      String out = output.toString();
-      output.setLength(0);
+   public synchronized ProvisioningOutput stopRecording() {
+      if (parser == null) {
+         return ProvisioningOutput.create(null, null);
+      }
+      ProvisioningOutput out = parser.getOutput();
+      parser = null;
       return out;
    }
 
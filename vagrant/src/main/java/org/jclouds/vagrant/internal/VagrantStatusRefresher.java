@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Resource;
+import javax.inject.Named;
+
+import org.jclouds.Constants;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.logging.Logger;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.jclouds.vagrant.reference.VagrantConstants;
+
+import com.google.common.base.Function;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.google.common.collect.Multimaps;
+import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+
+/**
+ * Refreshes the state of the machines in the background. The states of a group are read with a
+ * single "vagrant status" and kept for {@link VagrantConstants#JCLOUDS_VAGRANT_STATUS_TTL}
+ * seconds, so listing the nodes never waits for vagrant and at most one status command per group
+ * is in progress at a time. The status is read while no machine is being brought up, as VirtualBox
+ * fails when its commands run in parallel.
+ * <p>
+ * States set by the commands of the adapter while a status is being read take precedence over it.
+ */
+@Singleton
+public class VagrantStatusRefresher {
+   private static final Map<String, Status> VAGRANT_STATES = ImmutableMap.<String, Status>builder()
+         .put("running", Status.RUNNING)
+         .put("poweroff", Status.SUSPENDED)
+         .put("aborted", Status.SUSPENDED)
+         .put("saved", Status.SUSPENDED)
+         .put("paused", Status.SUSPENDED)
+         .put("shutoff", Status.SUSPENDED)
+         .put("stopped", Status.SUSPENDED)
+         .put("not_created", Status.TERMINATED)
+         .build();
+
+   @Resource
+   protected Logger logger = Logger.NULL;
+
+   private final VagrantApiFacade.Factory cliFactory;
+   private final MachineLocks machineLocks;
+   private final ListeningExecutorService executor;
+   private final long ttlNanos;
+   private final Ticker ticker;
+   private final Map<File, Long> refreshedAt = new ConcurrentHashMap<File, Long>();
+   private final Set<File> inProgress = Sets.newSetFromMap(new ConcurrentHashMap<File, Boolean>());
+
+   @Inject
+   VagrantStatusRefresher(VagrantApiFacade.Factory cliFactory, MachineLocks machineLocks,
+         @Named(Constants.PROPERTY_USER_THREADS) ListeningExecutorService executor,
+         @Named(VagrantConstants.JCLOUDS_VAGRANT_STATUS_TTL) long ttlSeconds) {
+      this(cliFactory, machineLocks, executor, ttlSeconds, Ticker.systemTicker());
+   }
+
+   VagrantStatusRefresher(VagrantApiFacade.Factory cliFactory, MachineLocks machineLocks,
+         ListeningExecutorService executor, long ttlSeconds, Ticker ticker) {
+      this.cliFactory = cliFactory;
+      this.machineLocks = machineLocks;
+      this.executor = executor;
+      this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+      this.ticker = ticker;
+   }
+
+   /**
+    * Starts reading the state of the groups of the nodes whose states are older than the TTL.
+    * Returns without waiting for them.
+    */
+   public void refresh(Iterable<VagrantNode> nodes) {
+      Multimap<File, VagrantNode> groups = Multimaps.index(nodes, new Function<VagrantNode, File>() {
+         @Override
+         public File apply(VagrantNode node) {
+            return node.path();
+         }
+      });
+      long now = ticker.read();
+      for (Map.Entry<File, Collection<VagrantNode>> group : groups.asMap().entrySet()) {
+         File path = group.getKey();
+         Long refreshed = refreshedAt.get(path);
+         if (refreshed != null && now - refreshed < ttlNanos) {
+            continue;
+         }
+         if (inProgress.add(path)) {
+            submit(path, ImmutableSet.copyOf(group.getValue()));
+         }
+      }
+   }
+
+   /**
+    * Makes the next {@link #refresh} read the state of the group again.
+    */
+   public void invalidate(File path) {
+      refreshedAt.remove(path);
+   }
+
+   private void submit(final File path, final Collection<VagrantNode> nodes) {
+      try {
+         executor.submit(new Runnable() {
+            @Override
+            public void run() {
+               try {
+                  refreshGroup(path, nodes);
+               } finally {
+                  inProgress.remove(path);
+               }
+            }
+         });
+      } catch (RuntimeException e) {
+         inProgress.remove(path);
+         throw e;
+      }
+   }
+
+   void refreshGroup(File path, Collection<VagrantNode> nodes) {
+      Map<VagrantNode, Long> versions = Maps.newHashMap();
+      for (VagrantNode node : nodes) {
+         versions.put(node, node.machineStateVersion());
+      }
+      Map<String, String> states;
+      machineLocks.acquireExclusive();
+      try {
+         states = cliFactory.create(path).machineStates();
+      } catch (RuntimeException e) {
+         // Keeps the previous states until the TTL expires rather than retrying on every listing
+         logger.warn(e, "Failed reading the state of the machines in %s", path);
+         refreshedAt.put(path, ticker.read());
+         return;
+      } finally {
+         machineLocks.releaseExclusive();
+      }
+      for (Map.Entry<VagrantNode, Long> entry : versions.entrySet()) {
+         VagrantNode node = entry.getKey();
+         String state = states.get(node.name());
+         if (state != null) {
+            node.refreshMachineState(toStatus(state), entry.getValue());
+         }
+      }
+      refreshedAt.put(path, ticker.read());
+   }
+
+   static Status toStatus(String vagrantState) {
+      Status status = VAGRANT_STATES.get(vagrantState);
+      return status != null ? status : Status.UNRECOGNIZED;
+   }
+
+}
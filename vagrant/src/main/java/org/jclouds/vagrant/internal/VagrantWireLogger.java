@@ -28,7 +28,7 @@ import vagrant.api.CommandIOListener;
 public class VagrantWireLogger implements CommandIOListener {
    private HttpWire wire;
 
-   // Vagrant commands are sequential (non-concurrent)
+   // A logger per command facade, commands on other machines have their own partial line
    private String lastPartialLine = "";
 
    @Inject
@@ -45,7 +45,7 @@ public class VagrantWireLogger implements CommandIOListener {
    }
 
    @Override
-   public void onOutput(String output) {
+   public synchronized void onOutput(String output) {
       if (output != null) {
          int nlPos = output.indexOf('\n');
          String fullLineOutput;
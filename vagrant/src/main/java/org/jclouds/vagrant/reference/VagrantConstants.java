@@ -23,6 +23,16 @@ public final class VagrantConstants {
 
    public static final String JCLOUDS_VAGRANT_HOME = "vagrant.home";
    public static final String JCLOUDS_VAGRANT_HOME_DEFAULT = new File(System.getProperty("user.home"), ".jclouds/vagrant").getAbsolutePath();
+   // VirtualBox can fail when several vboxmanage commands run at once, raise with care. The vagrant bindings
+   // serialise the vagrant commands anyway, so a higher limit doesn't bring machines up in parallel
+   public static final String JCLOUDS_VAGRANT_MAX_CONCURRENT_UP = "vagrant.max-concurrent-up";
+   public static final String JCLOUDS_VAGRANT_MAX_CONCURRENT_UP_DEFAULT = "1";
+   public static final String JCLOUDS_VAGRANT_STATUS_TTL = "vagrant.status-ttl";
+   public static final String JCLOUDS_VAGRANT_STATUS_TTL_DEFAULT = "30";
+   public static final String JCLOUDS_VAGRANT_POOL_SIZE = "vagrant.pool.size";
+   public static final String JCLOUDS_VAGRANT_POOL_SIZE_DEFAULT = "0";
+   public static final String JCLOUDS_VAGRANT_POOL_MAX_CONCURRENT_REFILLS = "vagrant.pool.max-concurrent-refills";
+   public static final String JCLOUDS_VAGRANT_POOL_MAX_CONCURRENT_REFILLS_DEFAULT = "1";
    public static final String VAGRANTFILE = "Vagrantfile";
    public static final String DEFAULT_USERNAME = "vagrant";
    public static final String DEFAULT_PASSWORD = "vagrant";
@@ -53,6 +63,9 @@ public final class VagrantConstants {
    public static final String MACHINES_CONFIG_SUBFOLDER = "machines";
    public static final String MACHINES_CONFIG_EXTENSION = ".yaml";
    public static final String MACHINES_AUTO_HARDWARE = "automatic";
+   public static final String MACHINES_INDEX = ".machines.index";
+   public static final String POOL_FOLDER = ".pool";
+   public static final String POOL_MEMBER_PREFIX = "pool-";
 
    // Config file keys
    public static final String CONFIG_JCLOUDS_VERSION = "jcloudsVersion";
@@ -63,4 +76,6 @@ public final class VagrantConstants {
    public static final String CONFIG_CPUS = "cpus";
    public static final String CONFIG_USERNAME = "username";
    public static final String CONFIG_PASSWORD = "password";
+   public static final String CONFIG_PROVIDER = "provider";
+   public static final String CONFIG_NODE_ID = "nodeId";
 }
@@ -22,13 +22,23 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.Arrays;
 
 import org.jclouds.util.Closeables2;
+import org.jclouds.vagrant.reference.VagrantConstants;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Optional;
 import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.google.common.io.Resources;
 
 public class VagrantUtils {
+   public static File getVagrantHome() {
+      Optional<String> home = Optional.fromNullable(System.getenv(VagrantConstants.ENV_VAGRANT_HOME));
+      return new File(home.or(VagrantConstants.ENV_VAGRANT_HOME_DEFAULT));
+   }
+
    public static void deleteFolder(File path) {
       if (path.isDirectory()) {
          for (File sub : path.listFiles()) {
@@ -40,6 +50,20 @@ public class VagrantUtils {
       }
    }
 
+   // The Vagrantfile is read by the commands running against the other machines of the folder,
+   // so it's only replaced when it changes, and then atomically
+   public static void writeVagrantfile(File path) throws IOException {
+      path.mkdirs();
+      File vagrantfile = new File(path, VagrantConstants.VAGRANTFILE);
+      byte[] content = Resources.toByteArray(VagrantUtils.class.getClassLoader().getResource(VagrantConstants.VAGRANTFILE));
+      if (vagrantfile.exists() && Arrays.equals(Files.toByteArray(vagrantfile), content)) {
+         return;
+      }
+      File tmp = new File(path, VagrantConstants.VAGRANTFILE + ".tmp");
+      write(tmp, new ByteArrayInputStream(content));
+      Files.move(tmp, vagrantfile);
+   }
+
    public static void write(File file, String value) throws IOException {
       write(file, new ByteArrayInputStream(value.getBytes(Charsets.UTF_8)));
    }
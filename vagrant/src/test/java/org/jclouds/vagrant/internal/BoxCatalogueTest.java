@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+import java.io.File;
+
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.Test;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Files;
+
+import vagrant.api.domain.Box;
+
+public class BoxCatalogueTest {
+
+   @Test
+   public void testListBoxes() {
+      File vagrantHome = Files.createTempDir();
+      new File(vagrantHome, "boxes/jclouds-VAGRANTSLASH-vagrant/0/virtualbox").mkdirs();
+      new File(vagrantHome, "boxes/jclouds-VAGRANTSLASH-vagrant/1/virtualbox").mkdirs();
+      new File(vagrantHome, "boxes/jclouds-VAGRANTSLASH-vagrant/1/vmware_desktop").mkdirs();
+
+      BoxCatalogue catalogue = new BoxCatalogue(vagrantHome);
+      try {
+         assertEquals(ImmutableSet.copyOf(catalogue.listBoxes()), ImmutableSet.of(
+               new Box("jclouds/vagrant", "0", "virtualbox"),
+               new Box("jclouds/vagrant", "1", "virtualbox"),
+               new Box("jclouds/vagrant", "1", "vmware_desktop")));
+         assertEquals(catalogue.getBox("jclouds/vagrant").getVersion(), "1");
+         assertNull(catalogue.getBox("jclouds/missing"));
+      } finally {
+         catalogue.close();
+         VagrantUtils.deleteFolder(vagrantHome);
+      }
+   }
+
+   @Test
+   public void testNoBoxesFolder() {
+      File vagrantHome = Files.createTempDir();
+      BoxCatalogue catalogue = new BoxCatalogue(vagrantHome);
+      try {
+         assertEquals(catalogue.listBoxes().size(), 0);
+
+         // Listed again until the folder can be watched
+         new File(vagrantHome, "boxes/jclouds-VAGRANTSLASH-vagrant/0/virtualbox").mkdirs();
+         assertEquals(catalogue.getBox("jclouds/vagrant").getProvider(), "virtualbox");
+      } finally {
+         catalogue.close();
+         VagrantUtils.deleteFolder(vagrantHome);
+      }
+   }
+
+}
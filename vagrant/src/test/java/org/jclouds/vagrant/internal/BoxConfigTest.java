@@ -17,6 +17,7 @@
 package org.jclouds.vagrant.internal;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
 
 import java.io.File;
 import java.io.IOException;
@@ -54,6 +55,10 @@ public class BoxConfigTest {
       assertEquals(boxConfig.getStringKey(VagrantConstants.KEY_SSH_PRIVATE_KEY_PATH), Optional.of("/path/to/private.key"));
       assertEquals(boxConfig.getStringKey(VagrantConstants.KEY_SSH_PORT), Optional.of("2222"));
 
+      BoxConfig.Factory boxConfigFactory = new BoxConfig.Factory();
+      Box box = new Box("jclouds/vagrant", "0", "virtualbox");
+      assertSame(boxConfigFactory.newInstance(vagrantHome, box), boxConfigFactory.newInstance(vagrantHome, box));
+
       VagrantUtils.deleteFolder(vagrantHome);
    }
 
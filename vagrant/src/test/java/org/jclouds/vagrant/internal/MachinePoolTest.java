@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import org.easymock.EasyMock;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.domain.ProvisioningOutput;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.jclouds.vagrant.util.VagrantUtils;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Optional;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class MachinePoolTest {
+   private static final Map<String, Object> CONFIG = ImmutableMap.<String, Object>of(
+         VagrantConstants.CONFIG_BOX, "jclouds/vagrant",
+         VagrantConstants.CONFIG_HARDWARE_ID, "small",
+         VagrantConstants.CONFIG_PROVIDER, "virtualbox");
+
+   @Test
+   public void testClaimAndRefill() {
+      File home = Files.createTempDir();
+      File poolPath = new File(home, VagrantConstants.POOL_FOLDER);
+
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.up(EasyMock.startsWith(VagrantConstants.POOL_MEMBER_PREFIX), EasyMock.eq("virtualbox")))
+            .andReturn(ProvisioningOutput.create(null, null)).times(3);
+      vagrant.halt(EasyMock.startsWith(VagrantConstants.POOL_MEMBER_PREFIX));
+      EasyMock.expectLastCall().times(3);
+      VagrantApiFacade.Factory cliFactory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(cliFactory.create(poolPath)).andReturn(vagrant).times(3);
+      EasyMock.replay(vagrant, cliFactory);
+
+      MachineConfig.Factory machineConfigFactory = new MachineConfig.Factory();
+      MachinePool pool = new MachinePool(home.getAbsolutePath(), 1, 1, machineConfigFactory,
+            new MachineIndex(home.getAbsolutePath()), new MachineLocks(1), cliFactory, MoreExecutors.sameThreadExecutor());
+      try {
+         // The first node of a profile is created from the box, the pool fills up meanwhile
+         assertFalse(pool.claim(CONFIG, "vagrant/node1").isPresent());
+
+         Optional<String> member = pool.claim(CONFIG, "vagrant/node2");
+         assertTrue(member.isPresent());
+         assertTrue(new File(poolPath, VagrantConstants.VAGRANTFILE).exists());
+         Map<String, Object> memberConfig = machineConfigFactory.newInstance(poolPath, member.get()).load();
+         assertEquals(memberConfig.get(VagrantConstants.CONFIG_NODE_ID), "vagrant/node2");
+         assertEquals(memberConfig.get(VagrantConstants.CONFIG_BOX), "jclouds/vagrant");
+
+         // Replaced by a new member
+         Optional<String> next = pool.claim(CONFIG, "vagrant/node3");
+         assertTrue(next.isPresent());
+         assertNotEquals(next.get(), member.get());
+
+         EasyMock.verify(vagrant, cliFactory);
+      } finally {
+         VagrantUtils.deleteFolder(home);
+      }
+   }
+
+   @Test
+   public void testReleaseClaimedMember() {
+      File home = Files.createTempDir();
+      File poolPath = new File(home, VagrantConstants.POOL_FOLDER);
+
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.up(EasyMock.startsWith(VagrantConstants.POOL_MEMBER_PREFIX), EasyMock.eq("virtualbox")))
+            .andReturn(ProvisioningOutput.create(null, null)).times(3);
+      vagrant.halt(EasyMock.startsWith(VagrantConstants.POOL_MEMBER_PREFIX));
+      EasyMock.expectLastCall().times(3);
+      VagrantApiFacade.Factory cliFactory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(cliFactory.create(poolPath)).andReturn(vagrant).times(3);
+      EasyMock.replay(vagrant, cliFactory);
+
+      MachineConfig.Factory machineConfigFactory = new MachineConfig.Factory();
+      MachinePool pool = new MachinePool(home.getAbsolutePath(), 1, 1, machineConfigFactory,
+            new MachineIndex(home.getAbsolutePath()), new MachineLocks(1), cliFactory, MoreExecutors.sameThreadExecutor());
+      try {
+         assertFalse(pool.claim(CONFIG, "vagrant/node1").isPresent());
+         Optional<String> member = pool.claim(CONFIG, "vagrant/node2");
+         assertTrue(member.isPresent());
+         File memberConfig = machineConfigFactory.newInstance(poolPath, member.get()).getConfigPath();
+         assertTrue(memberConfig.exists());
+
+         // Destroying the node of the member only removes its files
+         pool.release(member.get());
+         assertFalse(memberConfig.exists());
+         assertTrue(new File(poolPath, VagrantConstants.VAGRANTFILE).exists());
+
+         // The members created since are still claimable
+         Optional<String> next = pool.claim(CONFIG, "vagrant/node3");
+         assertTrue(next.isPresent());
+         assertTrue(machineConfigFactory.newInstance(poolPath, next.get()).getConfigPath().exists());
+
+         // Released in turn, the folder and its Vagrantfile stay
+         pool.release(next.get());
+         assertTrue(poolPath.isDirectory());
+         assertTrue(new File(poolPath, VagrantConstants.VAGRANTFILE).exists());
+      } finally {
+         VagrantUtils.deleteFolder(home);
+      }
+   }
+
+}
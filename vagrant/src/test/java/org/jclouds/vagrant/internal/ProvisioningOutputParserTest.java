@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import org.jclouds.vagrant.domain.ProvisioningOutput;
+import org.jclouds.vagrant.reference.VagrantConstants;
+import org.testng.annotations.Test;
+
+public class ProvisioningOutputParserTest {
+   private static final String PREFIX = "1482768916,web,ui,output,==> web: ";
+
+   @Test
+   public void testLinuxOutput() {
+      ProvisioningOutputParser parser = new ProvisioningOutputParser("web");
+      parser.onOutput("1482768916,web,metadata,provider,virtualbox\n");
+      parser.onOutput(PREFIX + "Running provisioner: shell...\n");
+      parser.onOutput(PREFIX + VagrantConstants.DELIMITER_NETWORKS_START + "\n" + PREFIX + "    inet 10.0.2");
+      parser.onOutput(".15/24 brd 10.0.2.255 scope global eth0\n");
+      parser.onOutput(PREFIX + "    inet 172.28.128.3/24 brd 172.28.128.255 scope global eth1\n");
+      parser.onOutput(PREFIX + VagrantConstants.DELIMITER_NETWORKS_END + "\n");
+      assertFalse(parser.isComplete());
+      parser.onOutput(PREFIX + VagrantConstants.DELIMITER_HOSTNAME_START + "\n");
+      parser.onOutput(PREFIX + "web-host\n");
+      parser.onOutput(PREFIX + VagrantConstants.DELIMITER_HOSTNAME_END);
+      parser.onOutput(null);
+      assertTrue(parser.isComplete());
+
+      ProvisioningOutput output = parser.getOutput();
+      assertEquals(output.networks(), "inet 10.0.2.15/24 brd 10.0.2.255 scope global eth0\n"
+            + "    inet 172.28.128.3/24 brd 172.28.128.255 scope global eth1");
+      assertEquals(output.hostname(), "web-host");
+   }
+
+   @Test
+   public void testEscapedNewlines() {
+      // Windows output printed at once, with the new lines shown verbatim
+      ProvisioningOutputParser parser = new ProvisioningOutputParser("win");
+      parser.onOutput("1482768916,win,ui,output,==> win: " + VagrantConstants.DELIMITER_NETWORKS_START
+            + "\\n   IPv4 Address. . . . . . . . . . . : 172.28.128.4\\n"
+            + VagrantConstants.DELIMITER_NETWORKS_END + "\\n"
+            + VagrantConstants.DELIMITER_HOSTNAME_START + "\\nWIN-HOST\\n"
+            + VagrantConstants.DELIMITER_HOSTNAME_END + "\n");
+
+      ProvisioningOutput output = parser.getOutput();
+      assertEquals(output.networks(), "IPv4 Address. . . . . . . . . . . : 172.28.128.4");
+      assertEquals(output.hostname(), "WIN-HOST");
+   }
+
+   @Test
+   public void testIncompleteBlock() {
+      ProvisioningOutputParser parser = new ProvisioningOutputParser("web");
+      parser.onOutput(PREFIX + VagrantConstants.DELIMITER_HOSTNAME_START + "\n" + PREFIX + "web-host\n");
+
+      ProvisioningOutput output = parser.getOutput();
+      assertNull(output.networks());
+      assertNull(output.hostname());
+   }
+
+}
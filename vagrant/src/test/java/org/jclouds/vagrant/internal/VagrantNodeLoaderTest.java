@@ -61,6 +61,86 @@ public class VagrantNodeLoaderTest {
         doTest(hardwareConfig, expectedHardware);
     }
 
+    @Test
+    public void testIndexedMachine() throws Exception {
+        File home = Files.createTempDir();
+        File group = new File(home, "groupId");
+        File machines = new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER);
+        machines.mkdirs();
+        File machine = new File(machines, "machineId" + VagrantConstants.MACHINES_CONFIG_EXTENSION);
+        Files.write("dummy", machine, Charsets.UTF_8);
+        String imageId = "centos/7";
+        new MachineIndex(home.getAbsolutePath()).put("groupId/machineId", machine.lastModified(),
+                ImmutableMap.<String, Object>of(
+                        VagrantConstants.CONFIG_BOX, imageId,
+                        VagrantConstants.CONFIG_HARDWARE_ID, "small"));
+
+        // The config is read from the index, not parsed
+        MachineConfig.Factory factory = EasyMock.createMock(MachineConfig.Factory.class);
+
+        Image image = EasyMock.createMock(Image.class);
+        EasyMock.expect(image.getId()).andReturn(imageId);
+
+        @SuppressWarnings("unchecked")
+        Supplier<Collection<Image>> imageSupplier = EasyMock.createMock(Supplier.class);
+        EasyMock.expect(imageSupplier.get()).andReturn(ImmutableList.<Image>of(image));
+
+        @SuppressWarnings("unchecked")
+        Supplier<Map<String, Hardware>> hardwareSupplier = EasyMock.createMock(Supplier.class);
+        EasyMock.expect(hardwareSupplier.get()).andReturn(ImmutableMap.<String, Hardware>of(
+                "small", new HardwareBuilder().ids("small").ram(1024).processor(new Processor(1.0, 1)).build()));
+
+        EasyMock.replay(factory, imageSupplier, image, hardwareSupplier);
+
+        VagrantExistingMachines nodeLoader = new VagrantExistingMachines(home.getAbsolutePath(), factory, imageSupplier, hardwareSupplier);
+        VagrantNode node = Iterables.getOnlyElement(nodeLoader.get());
+        assertEquals(node.id(), "groupId/machineId");
+        assertEquals(node.hardware().getId(), "small");
+        EasyMock.verify(factory);
+        VagrantUtils.deleteFolder(home);
+    }
+
+    @Test
+    public void testParsedInParallel() throws Exception {
+        File home = Files.createTempDir();
+        File group = new File(home, "groupId");
+        File machines = new File(group, VagrantConstants.MACHINES_CONFIG_SUBFOLDER);
+        machines.mkdirs();
+        String imageId = "centos/7";
+        MachineConfig.Factory factory = EasyMock.createMock(MachineConfig.Factory.class);
+        for (int i = 0; i < 3; i++) {
+            Files.write("dummy", new File(machines, "machine" + i + VagrantConstants.MACHINES_CONFIG_EXTENSION), Charsets.UTF_8);
+            MachineConfig config = EasyMock.createMock(MachineConfig.class);
+            EasyMock.expect(config.load()).andReturn(ImmutableMap.<String, Object>of(
+                    VagrantConstants.CONFIG_BOX, imageId,
+                    VagrantConstants.CONFIG_HARDWARE_ID, "small"));
+            EasyMock.replay(config);
+            EasyMock.expect(factory.newInstance(group, "machine" + i)).andReturn(config);
+        }
+
+        Image image = EasyMock.createMock(Image.class);
+        EasyMock.expect(image.getId()).andReturn(imageId);
+
+        @SuppressWarnings("unchecked")
+        Supplier<Collection<Image>> imageSupplier = EasyMock.createMock(Supplier.class);
+        EasyMock.expect(imageSupplier.get()).andReturn(ImmutableList.<Image>of(image));
+
+        @SuppressWarnings("unchecked")
+        Supplier<Map<String, Hardware>> hardwareSupplier = EasyMock.createMock(Supplier.class);
+        EasyMock.expect(hardwareSupplier.get()).andReturn(ImmutableMap.<String, Hardware>of(
+                "small", new HardwareBuilder().ids("small").ram(1024).processor(new Processor(1.0, 1)).build())).times(3);
+
+        EasyMock.replay(factory, imageSupplier, image, hardwareSupplier);
+
+        MachineIndex index = new MachineIndex(home.getAbsolutePath());
+        VagrantExistingMachines nodeLoader = new VagrantExistingMachines(home.getAbsolutePath(), factory, imageSupplier,
+                hardwareSupplier, index, 4);
+        assertEquals(nodeLoader.get().size(), 3);
+        assertEquals(index.load().size(), 3);
+        EasyMock.verify(factory, imageSupplier);
+        VagrantUtils.deleteFolder(home);
+    }
+
     protected void doTest(ImmutableMap<String, Object> hardwareConfig, Hardware expectedHardware) throws IOException {
         String groupName = "groupId";
         String machineName = "machineId";
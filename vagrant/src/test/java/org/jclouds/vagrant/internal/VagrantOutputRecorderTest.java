@@ -18,6 +18,8 @@ package org.jclouds.vagrant.internal;
 
 import static org.testng.Assert.assertEquals;
 
+import org.jclouds.vagrant.domain.ProvisioningOutput;
+import org.jclouds.vagrant.reference.VagrantConstants;
 import org.testng.annotations.Test;
 
 import vagrant.api.CommandIOListener;
@@ -28,6 +30,10 @@ public class VagrantOutputRecorderTest {
    protected static final String OUT2 = "1482768916,,ui,info,Bringing machine ";
    protected static final String OUT3 = "'f99' up with 'virtualbox' provider...\n";
    protected static final String OUT4 = "1482768916,f99,action,up,sta";
+   protected static final String HOSTNAME =
+         "1482768916,f99,ui,output,==> f99: " + VagrantConstants.DELIMITER_HOSTNAME_START + "\n"
+         + "1482768916,f99,ui,output,==> f99: f99-host\n"
+         + "1482768916,f99,ui,output,==> f99: " + VagrantConstants.DELIMITER_HOSTNAME_END + "\n";
 
    private static CommandIOListener nopIOListener = new CommandIOListener() {
       @Override
@@ -42,17 +48,20 @@ public class VagrantOutputRecorderTest {
    @Test
    public void testOutputRecorder() {
       VagrantOutputRecorder outputRecorder = new VagrantOutputRecorder(nopIOListener);
-      outputRecorder.record();
-      assertEquals(outputRecorder.stopRecording(), "");
-      outputRecorder.record();
+      outputRecorder.record("f99");
+      assertEquals(outputRecorder.stopRecording(), ProvisioningOutput.create(null, null));
+      outputRecorder.record("f99");
       outputRecorder.onInput("vagrant up");
-      assertEquals(outputRecorder.stopRecording(), "");
-      outputRecorder.record();
       outputRecorder.onOutput(OUT1);
       outputRecorder.onOutput(OUT2);
       outputRecorder.onOutput(OUT3 + OUT4);
-      assertEquals(outputRecorder.stopRecording(), OUT1 + OUT2 + OUT3 + OUT4);
-      outputRecorder.onOutput(OUT1);
-      assertEquals(outputRecorder.stopRecording(), "");
+      assertEquals(outputRecorder.stopRecording(), ProvisioningOutput.create(null, null));
+      outputRecorder.record("f99");
+      outputRecorder.onOutput(HOSTNAME.substring(0, 40));
+      outputRecorder.onOutput(HOSTNAME.substring(40));
+      assertEquals(outputRecorder.stopRecording(), ProvisioningOutput.create(null, "f99-host"));
+      // Not recording
+      outputRecorder.onOutput(HOSTNAME);
+      assertEquals(outputRecorder.stopRecording(), ProvisioningOutput.create(null, null));
    }
 }
@@ -0,0 +1,199 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.jclouds.vagrant.internal;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.easymock.EasyMock;
+import org.easymock.IAnswer;
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.HardwareBuilder;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.NodeMetadata.Status;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.Processor;
+import org.jclouds.vagrant.api.VagrantApiFacade;
+import org.jclouds.vagrant.domain.VagrantNode;
+import org.testng.annotations.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+
+public class VagrantStatusRefresherTest {
+
+   private static class FakeTicker extends Ticker {
+      private long nanos;
+
+      @Override
+      public long read() {
+         return nanos;
+      }
+   }
+
+   @Test
+   public void testParseMachineStates() {
+      String output = "1490000000,,metadata,machine-count,2\n"
+            + "1490000000,web,provider-name,virtualbox\n"
+            + "1490000000,web,state,running\n"
+            + "1490000000,db,state,poweroff\n"
+            + "1490000000,,ui,info,Current machine states:\n";
+      assertEquals(VagrantCliFacade.parseMachineStates(output), ImmutableMap.of("web", "running", "db", "poweroff"));
+   }
+
+   @Test
+   public void testToStatus() {
+      assertEquals(VagrantStatusRefresher.toStatus("running"), Status.RUNNING);
+      assertEquals(VagrantStatusRefresher.toStatus("poweroff"), Status.SUSPENDED);
+      assertEquals(VagrantStatusRefresher.toStatus("not_created"), Status.TERMINATED);
+      assertEquals(VagrantStatusRefresher.toStatus("inaccessible"), Status.UNRECOGNIZED);
+   }
+
+   @Test
+   public void testRefreshOncePerGroupWithinTtl() {
+      File path = new File("/path/to/group");
+      VagrantNode web = node(path, "web");
+      VagrantNode db = node(path, "db");
+      web.setMachineState(Status.UNRECOGNIZED);
+      db.setMachineState(Status.UNRECOGNIZED);
+
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.machineStates()).andReturn(ImmutableMap.of("web", "running", "db", "poweroff")).times(2);
+      VagrantApiFacade.Factory cliFactory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(cliFactory.create(path)).andReturn(vagrant).times(2);
+      EasyMock.replay(vagrant, cliFactory);
+
+      FakeTicker ticker = new FakeTicker();
+      VagrantStatusRefresher refresher = new VagrantStatusRefresher(cliFactory, new MachineLocks(1),
+            MoreExecutors.sameThreadExecutor(), 30, ticker);
+
+      refresher.refresh(ImmutableList.of(web, db));
+      assertEquals(web.machineState(), Status.RUNNING);
+      assertEquals(db.machineState(), Status.SUSPENDED);
+
+      // Within the TTL the state set by a command is kept
+      db.setMachineState(Status.RUNNING);
+      ticker.nanos += TimeUnit.SECONDS.toNanos(10);
+      refresher.refresh(ImmutableList.of(web, db));
+      assertEquals(db.machineState(), Status.RUNNING);
+
+      ticker.nanos += TimeUnit.SECONDS.toNanos(30);
+      refresher.refresh(ImmutableList.of(web, db));
+      assertEquals(db.machineState(), Status.SUSPENDED);
+
+      EasyMock.verify(vagrant, cliFactory);
+   }
+
+   @Test
+   public void testCommandStateWinsOverRefreshInProgress() {
+      File path = new File("/path/to/group");
+      final VagrantNode web = node(path, "web");
+      web.setMachineState(Status.PENDING);
+
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.machineStates()).andAnswer(new IAnswer<Map<String, String>>() {
+         @Override
+         public Map<String, String> answer() {
+            // vagrant up completes while the status is being read
+            web.setMachineState(Status.RUNNING);
+            return ImmutableMap.of("web", "not_created");
+         }
+      });
+      VagrantApiFacade.Factory cliFactory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(cliFactory.create(path)).andReturn(vagrant);
+      EasyMock.replay(vagrant, cliFactory);
+
+      VagrantStatusRefresher refresher = new VagrantStatusRefresher(cliFactory, new MachineLocks(1),
+            MoreExecutors.sameThreadExecutor(), 30, new FakeTicker());
+      refresher.refresh(ImmutableList.of(web));
+      assertEquals(web.machineState(), Status.RUNNING);
+
+      EasyMock.verify(vagrant, cliFactory);
+   }
+
+   @Test
+   public void testRefreshWaitsForUpInProgress() throws InterruptedException {
+      File path = new File("/path/to/group");
+      VagrantNode web = node(path, "web");
+      web.setMachineState(Status.UNRECOGNIZED);
+
+      final CountDownLatch statusRead = new CountDownLatch(1);
+      VagrantApiFacade vagrant = EasyMock.createMock(VagrantApiFacade.class);
+      EasyMock.expect(vagrant.machineStates()).andAnswer(new IAnswer<Map<String, String>>() {
+         @Override
+         public Map<String, String> answer() {
+            statusRead.countDown();
+            return ImmutableMap.of("web", "running");
+         }
+      });
+      VagrantApiFacade.Factory cliFactory = EasyMock.createMock(VagrantApiFacade.Factory.class);
+      EasyMock.expect(cliFactory.create(path)).andReturn(vagrant);
+      EasyMock.replay(vagrant, cliFactory);
+
+      MachineLocks machineLocks = new MachineLocks(2);
+      ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newSingleThreadExecutor());
+      try {
+         VagrantStatusRefresher refresher = new VagrantStatusRefresher(cliFactory, machineLocks, executor, 30,
+               new FakeTicker());
+         // A machine is being brought up
+         machineLocks.acquireUp();
+         refresher.refresh(ImmutableList.of(web));
+         assertFalse(statusRead.await(500, TimeUnit.MILLISECONDS), "status read while a machine was brought up");
+
+         machineLocks.releaseUp();
+         assertTrue(statusRead.await(10, TimeUnit.SECONDS), "status not read after the machine was brought up");
+      } finally {
+         executor.shutdown();
+         assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+      }
+      assertEquals(web.machineState(), Status.RUNNING);
+
+      EasyMock.verify(vagrant, cliFactory);
+   }
+
+   private static VagrantNode node(File path, String name) {
+      OperatingSystem os = new OperatingSystem(OsFamily.UNRECOGNIZED, "Jclouds OS", "10", "x64", "Jclouds Test Image", true);
+      Image image = new ImageBuilder()
+            .ids("jclouds/box")
+            .operatingSystem(os)
+            .status(Image.Status.AVAILABLE)
+            .build();
+      Hardware hardware = new HardwareBuilder().ids("mini").ram(100).processor(new Processor(1.0, 1)).build();
+      return VagrantNode.builder()
+            .setPath(path)
+            .setId("group/" + name)
+            .setGroup("group")
+            .setName(name)
+            .setImage(image)
+            .setNetworks(ImmutableList.<String>of())
+            .setHardware(hardware)
+            .setHostname(name)
+            .build();
+   }
+}